@@ -0,0 +1,236 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The `CatalogPersister` class writes the mutations and snapshots of a `MovieDatabase` to disk on a background thread.
+ * Mutations are encoded on the caller's thread and buffered; the background thread appends everything buffered
+ * since its last write to the `MovieLog` in one write followed by a single fsync, so a burst of mutations costs
+ * one durable write (group commit). Snapshots are written by `MovieCatalogFile` to a temporary file, forced to disk
+ * and atomically renamed over the database file, so a crash never leaves a partially written catalog.
+ * The mutations a snapshot supersedes are only dropped once it is in place; if it cannot be written, they are
+ * appended to the log instead, so the log still holds every change since the last snapshot on disk.
+ * Mutations that cannot be appended are put back ahead of the ones queued since, so the next drain writes them
+ * again instead of leaving them only in memory.
+ * Callers that need durability wait on the future returned by {@link #flush()}.
+ */
+public class CatalogPersister {
+
+    // Constants
+
+    private static final long IDLE_TIMEOUT_SECONDS = 1;
+
+    // Fields
+
+    private String databaseFileName;
+    private MovieLog log;
+    private ThreadPoolExecutor executor;
+    private ByteArrayOutputStream pendingRecords;
+    private DataOutputStream pendingOut;
+    private int pendingCount;
+    private int supersededBytes;
+    private int supersededCount;
+    private List<Movie> pendingSnapshot;
+    private int pendingNextId;
+    private CompletableFuture<Void> pendingFuture;
+    private CompletableFuture<Void> lastFuture;
+    private boolean drainScheduled;
+
+    // Constructors
+
+    /**
+     * Constructs a `CatalogPersister` for the specified database file and mutation log.
+     *
+     * @param databaseFileName The name of the file snapshots are written to.
+     * @param log              The log mutations are appended to.
+     */
+    public CatalogPersister(String databaseFileName, MovieLog log) {
+        this.databaseFileName = databaseFileName;
+        this.log = log;
+        this.executor = new ThreadPoolExecutor(1, 1, IDLE_TIMEOUT_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "catalog-persister " + databaseFileName);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+        this.pendingRecords = new ByteArrayOutputStream();
+        this.pendingOut = new DataOutputStream(pendingRecords);
+        this.pendingFuture = new CompletableFuture<>();
+        this.lastFuture = CompletableFuture.completedFuture(null);
+    }
+
+    // Methods
+
+    /**
+     * Queues a single mutation to be appended to the log. Returns without waiting for any I/O.
+     *
+     * @param operation The operation to record, either {@link MovieLog#ADD} or {@link MovieLog#REMOVE}.
+     * @param movie     The movie the operation was applied to.
+     */
+    public synchronized void logMutation(byte operation, Movie movie) {
+        encode(operation, movie);
+        scheduleDrain();
+    }
+
+    /**
+     * Queues one mutation per movie to be appended to the log. Returns without waiting for any I/O.
+     *
+     * @param operation The operation to record, either {@link MovieLog#ADD} or {@link MovieLog#REMOVE}.
+     * @param movies    The movies the operation was applied to.
+     */
+    public synchronized void logMutations(byte operation, Collection<Movie> movies) {
+        for (Movie movie : movies) {
+            encode(operation, movie);
+        }
+        scheduleDrain();
+    }
+
+    /**
+     * Queues a full snapshot of the catalog. The snapshot supersedes every mutation queued before it, so once it
+     * is on disk those are dropped and the log is cleared.
+     *
+     * @param movies A copy of the movies in the catalog that the caller will not modify afterwards.
+     * @param nextId The ID the database will assign to the next movie it adds.
+     */
+    public synchronized void snapshot(List<Movie> movies, int nextId) {
+        pendingSnapshot = movies;
+        pendingNextId = nextId;
+        supersededBytes = pendingRecords.size();
+        supersededCount = pendingCount;
+        scheduleDrain();
+    }
+
+    /**
+     * Returns a future that completes once every mutation and snapshot queued so far is durable on disk.
+     * The future completes exceptionally if writing any of them failed.
+     *
+     * @return The future tracking the queued writes.
+     */
+    public synchronized CompletableFuture<Void> flush() {
+        if (pendingSnapshot == null && pendingCount == 0) {
+            return lastFuture;
+        }
+        scheduleDrain();
+        return pendingFuture;
+    }
+
+    /**
+     * Waits for every queued write to complete and stops the background thread.
+     */
+    public void close() {
+        try {
+            flush().join();
+        } catch (RuntimeException e) {
+            // the failure has already been reported by the background thread
+        }
+        executor.shutdown();
+        synchronized (this) {
+            log.close();
+        }
+    }
+
+    private void encode(byte operation, Movie movie) {
+        try {
+            MovieLog.writeRecord(pendingOut, operation, movie);
+            pendingCount++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void scheduleDrain() {
+        if (!drainScheduled) {
+            drainScheduled = true;
+            executor.execute(this::drain);
+        }
+    }
+
+    /**
+     * Writes everything queued since the previous drain. Runs on the background thread.
+     */
+    private void drain() {
+        List<Movie> snapshot;
+        int nextId;
+        byte[] records;
+        int count;
+        int skippedBytes;
+        int skippedCount;
+        CompletableFuture<Void> future;
+        synchronized (this) {
+            snapshot = pendingSnapshot;
+            nextId = pendingNextId;
+            records = pendingRecords.toByteArray();
+            count = pendingCount;
+            skippedBytes = supersededBytes;
+            skippedCount = supersededCount;
+            future = pendingFuture;
+            pendingSnapshot = null;
+            pendingRecords.reset();
+            pendingCount = 0;
+            supersededBytes = 0;
+            supersededCount = 0;
+            pendingFuture = new CompletableFuture<>();
+            lastFuture = future;
+            drainScheduled = false;
+        }
+        try {
+            if (snapshot != null) {
+                try {
+                    MovieCatalogFile.write(databaseFileName, snapshot, nextId);
+                } catch (IOException | RuntimeException e) {
+                    // The old snapshot is still in place, so the log has to keep every mutation made since
+                    append(records, count);
+                    throw e;
+                }
+                log.clear();
+                records = Arrays.copyOfRange(records, skippedBytes, records.length);
+                count -= skippedCount;
+            }
+            append(records, count);
+            future.complete(null);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error saving the database: " + e.getMessage());
+            future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Appends drained records to the log, putting them back at the head of the queue if the append fails.
+     */
+    private void append(byte[] records, int count) throws IOException {
+        if (count == 0) {
+            return;
+        }
+        try {
+            log.append(records, count);
+        } catch (IOException | RuntimeException e) {
+            requeue(records, count);
+            throw e;
+        }
+    }
+
+    /**
+     * Puts records that could not be written back ahead of the records queued since they were drained. A snapshot
+     * queued in the meantime supersedes them as well.
+     */
+    private synchronized void requeue(byte[] records, int count) {
+        byte[] queued = pendingRecords.toByteArray();
+        pendingRecords.reset();
+        pendingRecords.write(records, 0, records.length);
+        pendingRecords.write(queued, 0, queued.length);
+        pendingCount += count;
+        if (pendingSnapshot != null) {
+            supersededBytes += records.length;
+            supersededCount += count;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.Assert.*;
+
+public class CatalogPersisterTest {
+
+    private static final String DATABASE_FILE = "Tests/testPersister.ser";
+
+    @After
+    public void tearDown() {
+        new File(DATABASE_FILE).delete();
+        new File(DATABASE_FILE + ".log").delete();
+    }
+
+    @Test
+    public void testMutationsAreKeptWhenSnapshotFails() {
+        Movie movie1 = new Movie("Movie 1", "Director 1", 2020, 120, null);
+        Movie movie2 = new Movie("Movie 2", "Director 2", 2019, 90, null);
+        movie1.setId(1);
+        movie2.setId(2);
+        List<Movie> unwritable = new AbstractList<Movie>() {
+            @Override
+            public Movie get(int index) {
+                throw new IllegalStateException("Disk full");
+            }
+
+            @Override
+            public int size() {
+                return 1;
+            }
+        };
+        CatalogPersister persister = new CatalogPersister(DATABASE_FILE, new MovieLog(DATABASE_FILE + ".log"));
+
+        persister.logMutation(MovieLog.ADD, movie1);
+        persister.snapshot(unwritable, 2);
+        persister.logMutation(MovieLog.ADD, movie2);
+        try {
+            persister.flush().join();
+            fail("The failed snapshot should fail the flush");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        persister.close();
+
+        assertFalse(new File(DATABASE_FILE).exists());
+        List<Movie> replayed = new ArrayList<>();
+        new MovieLog(DATABASE_FILE + ".log").replay(replayed);
+        assertEquals(Arrays.asList(movie1, movie2), replayed);
+    }
+
+    @Test
+    public void testSnapshotSupersedesQueuedMutations() {
+        Movie movie1 = new Movie("Movie 1", "Director 1", 2020, 120, null);
+        Movie movie2 = new Movie("Movie 2", "Director 2", 2019, 90, null);
+        movie1.setId(1);
+        movie2.setId(2);
+        MovieLog log = new MovieLog(DATABASE_FILE + ".log");
+        CatalogPersister persister = new CatalogPersister(DATABASE_FILE, log);
+
+        persister.logMutation(MovieLog.ADD, movie1);
+        persister.snapshot(Arrays.asList(movie1), 2);
+        persister.logMutation(MovieLog.ADD, movie2);
+        persister.close();
+
+        List<Movie> replayed = new ArrayList<>();
+        assertEquals(1, new MovieLog(DATABASE_FILE + ".log").replay(replayed));
+        assertEquals(Arrays.asList(movie2), replayed);
+    }
+
+    @Test
+    public void testFailedAppendIsWrittenByTheNextFlush() {
+        Movie movie1 = new Movie("Movie 1", "Director 1", 2020, 120, null);
+        Movie movie2 = new Movie("Movie 2", "Director 2", 2019, 90, null);
+        movie1.setId(1);
+        movie2.setId(2);
+        MovieLog failingOnce = new MovieLog(DATABASE_FILE + ".log") {
+            private boolean failed;
+
+            @Override
+            public void append(byte[] records, int count) throws IOException {
+                if (!failed) {
+                    failed = true;
+                    throw new IOException("Disk full");
+                }
+                super.append(records, count);
+            }
+        };
+        CatalogPersister persister = new CatalogPersister(DATABASE_FILE, failingOnce);
+
+        persister.logMutation(MovieLog.ADD, movie1);
+        try {
+            persister.flush().join();
+            fail("The failed append should fail the flush");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        persister.logMutation(MovieLog.ADD, movie2);
+        persister.flush().join();
+        persister.close();
+
+        List<Movie> replayed = new ArrayList<>();
+        assertEquals(2, new MovieLog(DATABASE_FILE + ".log").replay(replayed));
+        assertEquals(Arrays.asList(movie1, movie2), replayed);
+    }
+}
@@ -0,0 +1,101 @@
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The `CatalogVersion` class is a version of the catalog of a `MovieDatabase` pinned by a reader, obtained with
+ * {@link MovieDatabase#pin()} or {@link MovieDatabase#pin(long)}. Every change committed to the database, whether
+ * one addition or removal or a whole bulk import, gets the next version number, and a pinned version keeps showing
+ * the movies as they were when it was committed, however long the reader takes:
+ * <pre>
+ * try (CatalogVersion version = database.pin()) {
+ *     long total = version.getMovies().parallelStream().mapToLong(Movie::getRunningTime).sum();
+ *     version.exportTo("catalog-" + version.getVersion() + ".bin");
+ * }
+ * </pre>
+ * Pinning does not lock, so readers never hold up writers. Versions share every unchanged chunk of their
+ * `MovieSnapshot`s, and the database only keeps an older version while a reader has it pinned, so it can be
+ * garbage collected as soon as the last reader closes it.
+ */
+public class CatalogVersion implements AutoCloseable {
+
+    // Fields
+
+    private final MovieDatabase database;
+    private final Commit commit;
+    private final AtomicBoolean closed;
+
+    // Constructors
+
+    /**
+     * Constructs a `CatalogVersion` for a commit the database has already counted a pin for.
+     *
+     * @param database The database the version belongs to.
+     * @param commit   The pinned commit.
+     */
+    CatalogVersion(MovieDatabase database, Commit commit) {
+        this.database = database;
+        this.commit = commit;
+        this.closed = new AtomicBoolean();
+    }
+
+    // Methods
+
+    /**
+     * Gets the version number of the catalog.
+     *
+     * @return The number of the commit that produced this version.
+     */
+    public long getVersion() {
+        return commit.version;
+    }
+
+    /**
+     * Gets the movies of this version of the catalog.
+     *
+     * @return An immutable list of the movies, in catalog order.
+     */
+    public List<Movie> getMovies() {
+        return commit.movies;
+    }
+
+    /**
+     * Writes this version of the catalog to a catalog file, with the next movie ID of the version, while the
+     * database keeps accepting changes.
+     *
+     * @param fileName The name of the file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    public void exportTo(String fileName) throws IOException {
+        MovieCatalogFile.write(fileName, commit.movies, commit.nextId);
+    }
+
+    /**
+     * Unpins the version. The database drops it once no other reader has it pinned and it is not the latest
+     * version. Closing a version more than once has no further effect.
+     */
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            database.unpin(commit);
+        }
+    }
+
+    /**
+     * A version of the catalog published by a commit. The number of readers that have it pinned is only changed
+     * by the database while it holds the entry of the version in its map of pinned versions.
+     */
+    static class Commit {
+
+        final long version;
+        final MovieSnapshot movies;
+        final int nextId;
+        int pins;
+
+        Commit(long version, MovieSnapshot movies, int nextId) {
+            this.version = version;
+            this.movies = movies;
+            this.nextId = nextId;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CatalogVersionTest {
+
+    private static final String DATABASE_FILE = "Tests/testVersions.ser";
+    private static final String EXPORT_FILE = "Tests/testVersionExport.bin";
+
+    private MovieDatabase database;
+    private Movie movie1;
+    private Movie movie2;
+
+    @Before
+    public void setUp() {
+        database = new MovieDatabase(DATABASE_FILE);
+        movie1 = new Movie("Movie 1", "Director 1", 2020, 120, null);
+        movie2 = new Movie("Movie 2", "Director 2", 2019, 90, null);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+        new File(DATABASE_FILE).delete();
+        new File(DATABASE_FILE + ".log").delete();
+        new File(EXPORT_FILE).delete();
+    }
+
+    @Test
+    public void testPinnedVersionIgnoresLaterCommits() {
+        database.addMovie(movie1);
+        try (CatalogVersion version = database.pin()) {
+            database.addMovie(movie2);
+            database.removeMovie(movie1);
+
+            assertEquals(Arrays.asList(movie1), version.getMovies());
+            assertEquals(Arrays.asList(movie2), database.getMovies());
+            assertEquals(version.getVersion() + 2, database.getVersion());
+        }
+    }
+
+    @Test
+    public void testBulkImportIsOneVersion() {
+        long before = database.getVersion();
+        database.addMovies(Arrays.asList(movie1, movie2));
+
+        assertEquals(before + 1, database.getVersion());
+        try (CatalogVersion version = database.pin(before + 1)) {
+            assertEquals(Arrays.asList(movie1, movie2), version.getMovies());
+        }
+    }
+
+    @Test
+    public void testVersionsAreDroppedOnceUnpinned() {
+        database.addMovie(movie1);
+        CatalogVersion first = database.pin();
+        long number = first.getVersion();
+        database.addMovie(movie2);
+
+        try (CatalogVersion shared = database.pin(number)) {
+            first.close();
+            first.close();
+            assertEquals(Arrays.asList(movie1), shared.getMovies());
+        }
+        try {
+            database.pin(number);
+            fail("An unpinned version that is not the latest is dropped");
+        } catch (IllegalArgumentException e) {
+            assertEquals(2, database.getMovies().size());
+        }
+    }
+
+    @Test
+    public void testExportPinnedVersion() throws IOException {
+        database.addMovie(movie1);
+        try (CatalogVersion version = database.pin()) {
+            database.addMovie(movie2);
+            version.exportTo(EXPORT_FILE);
+        }
+
+        List<Movie> exported = MovieCatalogFile.read(EXPORT_FILE);
+        assertEquals(Arrays.asList(movie1), exported);
+        assertEquals(movie1.getId(), exported.get(0).getId());
+        assertEquals(movie1.getId() + 1, MovieCatalogFile.readNextId(EXPORT_FILE));
+    }
+}
@@ -0,0 +1,483 @@
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * The `ColumnarMovieCatalog` class is a list of movies stored column by column instead of as one object per movie.
+ * IDs, years and running times are primitive `int[]` columns, directors are dictionary-encoded as `int` codes of a
+ * `StringDictionary`, and titles and photo directories are UTF-8 bytes in a shared blob addressed by offset
+ * and length. A movie takes about 24 bytes plus the bytes of its title and photo directory, instead of the object
+ * headers, pointers and `String`s of a `Movie`, and scans over one field, such as {@link #totalRunningTime()},
+ * read a single contiguous array.
+ *
+ * Each `Movie` is built when it is accessed, so the returned movies are copies: changing them does not change
+ * the catalog. The list supports adding, replacing and removing movies, so a `MovieDatabase` can use it in place
+ * of an `ArrayList`. Replaced strings leave unused bytes in the blob, which is compacted once they make up half
+ * of it.
+ *
+ * A read-only {@link #view()} shares the columns of the catalog instead of copying them. The catalog only writes
+ * past the end of its views when movies are appended, and copies its columns before replacing or removing a movie
+ * once a view has been taken, so a view can be read from other threads while the catalog keeps changing.
+ */
+public class ColumnarMovieCatalog extends AbstractList<Movie> implements RandomAccess {
+
+    // Fields
+
+    private int size;
+    private int[] ids;
+    private int[] years;
+    private int[] runningTimes;
+    private int[] directorCodes;
+    private StringDictionary directors;
+    private StringColumn titles;
+    private StringColumn photoDirectories;
+    private boolean readOnly;
+    private boolean shared;
+
+    // Constructors
+
+    /**
+     * Constructs an empty `ColumnarMovieCatalog`.
+     */
+    public ColumnarMovieCatalog() {
+        this(16);
+    }
+
+    /**
+     * Constructs a `ColumnarMovieCatalog` holding the movies of a collection, in the order of the collection.
+     *
+     * @param movies The movies to store.
+     */
+    public ColumnarMovieCatalog(Collection<Movie> movies) {
+        this(Math.max(16, movies.size()));
+        for (Movie movie : movies) {
+            add(movie);
+        }
+    }
+
+    private ColumnarMovieCatalog(int capacity) {
+        this.ids = new int[capacity];
+        this.years = new int[capacity];
+        this.runningTimes = new int[capacity];
+        this.directorCodes = new int[capacity];
+        this.directors = new StringDictionary();
+        this.titles = new StringColumn(capacity);
+        this.photoDirectories = new StringColumn(capacity);
+    }
+
+    /**
+     * Constructs a read-only view sharing the columns of a catalog.
+     *
+     * @param catalog The catalog to view.
+     */
+    private ColumnarMovieCatalog(ColumnarMovieCatalog catalog) {
+        this.size = catalog.size;
+        this.ids = catalog.ids;
+        this.years = catalog.years;
+        this.runningTimes = catalog.runningTimes;
+        this.directorCodes = catalog.directorCodes;
+        this.directors = catalog.directors.view();
+        this.titles = new StringColumn(catalog.titles);
+        this.photoDirectories = new StringColumn(catalog.photoDirectories);
+        this.readOnly = true;
+    }
+
+    // Methods
+
+    /**
+     * Builds the movie stored at the specified position.
+     *
+     * @param index The position of the movie in the catalog.
+     * @return A new `Movie` holding the fields and the ID of the stored movie.
+     * @throws IndexOutOfBoundsException If the index is out of range.
+     */
+    @Override
+    public Movie get(int index) {
+        checkIndex(index, size);
+        Movie movie = new Movie(titles.get(index), getDirector(index), years[index], runningTimes[index],
+                photoDirectories.get(index));
+        movie.setId(ids[index]);
+        return movie;
+    }
+
+    /**
+     * Replaces the movie at the specified position.
+     *
+     * @param index The position of the movie to replace.
+     * @param movie The movie to store.
+     * @return The movie previously stored at the position.
+     * @throws IndexOutOfBoundsException     If the index is out of range.
+     * @throws UnsupportedOperationException If the catalog is a view.
+     */
+    @Override
+    public Movie set(int index, Movie movie) {
+        Movie previous = get(index);
+        checkWritable(true);
+        store(index, movie);
+        return previous;
+    }
+
+    /**
+     * Inserts a movie at the specified position, shifting the following movies.
+     *
+     * @param index The position to insert the movie at.
+     * @param movie The movie to store.
+     * @throws IndexOutOfBoundsException     If the index is out of range.
+     * @throws UnsupportedOperationException If the catalog is a view.
+     */
+    @Override
+    public void add(int index, Movie movie) {
+        checkIndex(index, size + 1);
+        checkWritable(index < size);
+        if (size == ids.length) {
+            int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            years = Arrays.copyOf(years, capacity);
+            runningTimes = Arrays.copyOf(runningTimes, capacity);
+            directorCodes = Arrays.copyOf(directorCodes, capacity);
+        }
+        shift(index, index + 1, size - index);
+        titles.insert(index, size);
+        photoDirectories.insert(index, size);
+        size++;
+        store(index, movie);
+        modCount++;
+    }
+
+    /**
+     * Removes the movie at the specified position, shifting the following movies.
+     * Removing the last movie does not move any other movie.
+     *
+     * @param index The position of the movie to remove.
+     * @return The removed movie.
+     * @throws IndexOutOfBoundsException     If the index is out of range.
+     * @throws UnsupportedOperationException If the catalog is a view.
+     */
+    @Override
+    public Movie remove(int index) {
+        Movie removed = get(index);
+        checkWritable(true);
+        shift(index + 1, index, size - index - 1);
+        titles.delete(index, size);
+        photoDirectories.delete(index, size);
+        size--;
+        modCount++;
+        return removed;
+    }
+
+    /**
+     * Gets the number of movies in the catalog.
+     *
+     * @return The number of movies.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the ID of the movie at the specified position without building the movie.
+     *
+     * @param index The position of the movie.
+     * @return The ID of the movie.
+     */
+    public int getId(int index) {
+        checkIndex(index, size);
+        return ids[index];
+    }
+
+    /**
+     * Gets the title of the movie at the specified position without building the movie.
+     *
+     * @param index The position of the movie.
+     * @return The title of the movie.
+     */
+    public String getTitle(int index) {
+        checkIndex(index, size);
+        return titles.get(index);
+    }
+
+    /**
+     * Gets the release year of the movie at the specified position without building the movie.
+     *
+     * @param index The position of the movie.
+     * @return The release year of the movie.
+     */
+    public int getYear(int index) {
+        checkIndex(index, size);
+        return years[index];
+    }
+
+    /**
+     * Gets the running time of the movie at the specified position without building the movie.
+     *
+     * @param index The position of the movie.
+     * @return The running time of the movie, in minutes.
+     */
+    public int getRunningTime(int index) {
+        checkIndex(index, size);
+        return runningTimes[index];
+    }
+
+    /**
+     * Gets the director of the movie at the specified position without building the movie.
+     *
+     * @param index The position of the movie.
+     * @return The director of the movie, or null if it has none.
+     */
+    public String getDirector(int index) {
+        checkIndex(index, size);
+        return directors.decode(directorCodes[index]);
+    }
+
+    /**
+     * Gets the dictionary code of the director of the movie at the specified position without building the movie.
+     * Codes are decoded and ranked alphabetically by {@link #getDirectorDictionary()}.
+     *
+     * @param index The position of the movie.
+     * @return The code of the director of the movie.
+     */
+    public int getDirectorCode(int index) {
+        checkIndex(index, size);
+        return directorCodes[index];
+    }
+
+    /**
+     * Gets the dictionary of the directors of the catalog.
+     *
+     * @return The director dictionary, which must not be modified.
+     */
+    public StringDictionary getDirectorDictionary() {
+        return directors;
+    }
+
+    /**
+     * Sums the running times of every movie in a single pass over the running time column.
+     *
+     * @return The total running time, in minutes.
+     */
+    public long totalRunningTime() {
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total += runningTimes[i];
+        }
+        return total;
+    }
+
+    /**
+     * Creates a read-only view of the movies currently in the catalog, sharing its columns instead of copying them.
+     * Movies appended to the catalog afterwards are not part of the view, and movies replaced or removed afterwards
+     * keep their values in the view.
+     *
+     * @return A view of the catalog, which cannot be modified.
+     */
+    public ColumnarMovieCatalog view() {
+        shared = true;
+        return new ColumnarMovieCatalog(this);
+    }
+
+    /**
+     * Copies the catalog column by column, without building any movie.
+     *
+     * @return An independent copy of the catalog.
+     */
+    public ColumnarMovieCatalog copy() {
+        return copy(new BitSet());
+    }
+
+    /**
+     * Copies the catalog column by column without some of its movies, and without building any movie.
+     *
+     * @param skipped The positions of the movies to leave out.
+     * @return An independent copy of the other movies of the catalog, in catalog order.
+     */
+    public ColumnarMovieCatalog copy(BitSet skipped) {
+        int[] kept = new int[size];
+        int count = 0;
+        for (int index = skipped.nextClearBit(0); index < size; index = skipped.nextClearBit(index + 1)) {
+            kept[count++] = index;
+        }
+        ColumnarMovieCatalog copy = new ColumnarMovieCatalog(Math.max(16, count));
+        copy.size = count;
+        for (int i = 0; i < count; i++) {
+            copy.ids[i] = ids[kept[i]];
+            copy.years[i] = years[kept[i]];
+            copy.runningTimes[i] = runningTimes[kept[i]];
+            copy.directorCodes[i] = directorCodes[kept[i]];
+        }
+        copy.directors = directors.copy();
+        copy.titles = titles.copy(kept, count);
+        copy.photoDirectories = photoDirectories.copy(kept, count);
+        return copy;
+    }
+
+    private void store(int index, Movie movie) {
+        ids[index] = movie.getId();
+        years[index] = movie.getYear();
+        runningTimes[index] = movie.getRunningTime();
+        directorCodes[index] = directors.encode(movie.getDirector());
+        titles.set(index, movie.getTitle(), size);
+        photoDirectories.set(index, movie.getPhotoDirectory(), size);
+    }
+
+    /**
+     * Checks that the catalog can be modified, and copies the columns shared with a view before a change that
+     * writes over the movies the view holds.
+     *
+     * @param inPlace Whether the change writes over movies already in the catalog, rather than appending one.
+     */
+    private void checkWritable(boolean inPlace) {
+        if (readOnly) {
+            throw new UnsupportedOperationException("A view of a catalog cannot be modified");
+        }
+        if (shared && inPlace) {
+            ids = ids.clone();
+            years = years.clone();
+            runningTimes = runningTimes.clone();
+            directorCodes = directorCodes.clone();
+            titles.unshare();
+            photoDirectories.unshare();
+            shared = false;
+        }
+    }
+
+    private void shift(int from, int to, int length) {
+        System.arraycopy(ids, from, ids, to, length);
+        System.arraycopy(years, from, years, to, length);
+        System.arraycopy(runningTimes, from, runningTimes, to, length);
+        System.arraycopy(directorCodes, from, directorCodes, to, length);
+    }
+
+    private static void checkIndex(int index, int bound) {
+        if (index < 0 || index >= bound) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + bound);
+        }
+    }
+
+    /**
+     * A column of nullable strings stored as UTF-8 bytes in one blob, with the offset and length of each string.
+     * A length of -1 stands for null.
+     */
+    private static class StringColumn {
+
+        private byte[] blob;
+        private int blobLength;
+        private int unusedBytes;
+        private int[] offsets;
+        private int[] lengths;
+
+        StringColumn(int capacity) {
+            this.blob = new byte[capacity * 16];
+            this.offsets = new int[capacity];
+            this.lengths = new int[capacity];
+        }
+
+        /**
+         * Constructs a view sharing the arrays of a column.
+         */
+        StringColumn(StringColumn column) {
+            this.blob = column.blob;
+            this.blobLength = column.blobLength;
+            this.unusedBytes = column.unusedBytes;
+            this.offsets = column.offsets;
+            this.lengths = column.lengths;
+        }
+
+        String get(int index) {
+            int length = lengths[index];
+            return length < 0 ? null : new String(blob, offsets[index], length, StandardCharsets.UTF_8);
+        }
+
+        void set(int index, String value, int size) {
+            unusedBytes += Math.max(0, lengths[index]);
+            lengths[index] = -1;
+            if (value == null) {
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (blobLength + bytes.length > blob.length) {
+                if (unusedBytes > blobLength / 2) {
+                    compact(size);
+                }
+                if (blobLength + bytes.length > blob.length) {
+                    blob = Arrays.copyOf(blob, Math.max(blob.length * 2, blobLength + bytes.length));
+                }
+            }
+            System.arraycopy(bytes, 0, blob, blobLength, bytes.length);
+            offsets[index] = blobLength;
+            lengths[index] = bytes.length;
+            blobLength += bytes.length;
+        }
+
+        /**
+         * Opens an empty slot at a position, shifting the following strings. The slot holds null.
+         */
+        void insert(int index, int size) {
+            if (size == offsets.length) {
+                offsets = Arrays.copyOf(offsets, size * 2);
+                lengths = Arrays.copyOf(lengths, size * 2);
+            }
+            System.arraycopy(offsets, index, offsets, index + 1, size - index);
+            System.arraycopy(lengths, index, lengths, index + 1, size - index);
+            lengths[index] = -1;
+        }
+
+        /**
+         * Removes the string at a position, shifting the following strings.
+         */
+        void delete(int index, int size) {
+            unusedBytes += Math.max(0, lengths[index]);
+            System.arraycopy(offsets, index + 1, offsets, index, size - index - 1);
+            System.arraycopy(lengths, index + 1, lengths, index, size - index - 1);
+        }
+
+        /**
+         * Copies the strings of the first `size` positions into a new column without unused bytes.
+         */
+        StringColumn copy(int size) {
+            int[] kept = new int[size];
+            for (int i = 0; i < size; i++) {
+                kept[i] = i;
+            }
+            return copy(kept, size);
+        }
+
+        /**
+         * Copies the strings of the given positions, in the given order, into a new column without unused bytes.
+         */
+        StringColumn copy(int[] kept, int count) {
+            StringColumn copy = new StringColumn(Math.max(16, count));
+            copy.blob = new byte[Math.max(16, blobLength - unusedBytes)];
+            for (int i = 0; i < count; i++) {
+                int index = kept[i];
+                copy.lengths[i] = lengths[index];
+                if (lengths[index] >= 0) {
+                    System.arraycopy(blob, offsets[index], copy.blob, copy.blobLength, lengths[index]);
+                    copy.offsets[i] = copy.blobLength;
+                    copy.blobLength += lengths[index];
+                }
+            }
+            return copy;
+        }
+
+        /**
+         * Copies the offsets and lengths, which are written in place, so that a view sharing them keeps its values.
+         * The blob is only written past its used bytes, so it stays shared.
+         */
+        void unshare() {
+            offsets = offsets.clone();
+            lengths = lengths.clone();
+        }
+
+        private void compact(int size) {
+            StringColumn compacted = copy(size);
+            blob = compacted.blob;
+            blobLength = compacted.blobLength;
+            unusedBytes = 0;
+            offsets = Arrays.copyOf(compacted.offsets, offsets.length);
+        }
+    }
+}
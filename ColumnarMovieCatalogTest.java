@@ -0,0 +1,101 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ColumnarMovieCatalogTest {
+
+    private ColumnarMovieCatalog catalog;
+    private Movie movie1;
+    private Movie movie2;
+    private Movie movie3;
+
+    @Before
+    public void setUp() {
+        movie1 = new Movie("Movie 1", "Director 1", 2020, 120, "path/to/photo1.jpg");
+        movie2 = new Movie("Am\u00e9lie", null, 2001, 122, null);
+        movie3 = new Movie("Movie 3", "Director 1", 1999, 90, "path/to/photo3.jpg");
+        movie1.setId(1);
+        movie2.setId(2);
+        movie3.setId(3);
+        catalog = new ColumnarMovieCatalog(Arrays.asList(movie1, movie2));
+    }
+
+    @Test
+    public void testGetRebuildsEveryField() {
+        Movie movie = catalog.get(0);
+
+        assertEquals(movie1, movie);
+        assertEquals(1, movie.getId());
+        assertEquals(120, movie.getRunningTime());
+        assertEquals("path/to/photo1.jpg", movie.getPhotoDirectory());
+        assertEquals("Am\u00e9lie", catalog.get(1).getTitle());
+        assertNull(catalog.get(1).getDirector());
+        assertNull(catalog.get(1).getPhotoDirectory());
+    }
+
+    @Test
+    public void testListOperations() {
+        catalog.add(movie3);
+        catalog.add(0, movie3);
+        catalog.remove(2);
+        catalog.set(0, movie2);
+
+        assertEquals(Arrays.asList(movie2, movie1, movie3), catalog);
+        assertEquals(3, catalog.getId(2));
+        assertEquals("Director 1", catalog.getDirector(2));
+        assertEquals(2001, catalog.getYear(0));
+        assertEquals(120, catalog.getRunningTime(1));
+    }
+
+    @Test
+    public void testReplacingStringsManyTimes() {
+        for (int i = 0; i < 1000; i++) {
+            catalog.set(0, new Movie("Title " + i, "Director " + i % 3, 2000, i % 200, null));
+        }
+
+        assertEquals("Title 999", catalog.get(0).getTitle());
+        assertEquals("Director 0", catalog.getDirector(0));
+        assertEquals(movie2, catalog.get(1));
+    }
+
+    @Test
+    public void testTotalRunningTimeAndCopy() {
+        ColumnarMovieCatalog copy = catalog.copy();
+        catalog.add(movie3);
+
+        assertEquals(332, catalog.totalRunningTime());
+        assertEquals(242, copy.totalRunningTime());
+        assertEquals(new ArrayList<>(Arrays.asList(movie1, movie2)), copy);
+    }
+
+    @Test
+    public void testViewIsNotAffectedByLaterChanges() {
+        ColumnarMovieCatalog view = catalog.view();
+        for (int i = 0; i < 100; i++) {
+            catalog.add(new Movie("Title " + i, "Director " + i, 2000, 100, null));
+        }
+        catalog.set(0, movie3);
+        catalog.remove(1);
+
+        assertEquals(Arrays.asList(movie1, movie2), view);
+        assertEquals("Movie 1", view.getTitle(0));
+        assertEquals(242, view.totalRunningTime());
+        assertEquals(movie3, catalog.get(0));
+        assertEquals(101, catalog.size());
+        try {
+            view.add(movie3);
+            fail("A view cannot be modified");
+        } catch (UnsupportedOperationException e) {
+            assertEquals(2, view.size());
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetOutOfRange() {
+        catalog.get(2);
+    }
+}
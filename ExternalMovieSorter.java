@@ -0,0 +1,390 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * The `ExternalMovieSorter` class sorts a catalog file that may be far larger than the heap into a new catalog
+ * file whose records are in the order of a `MovieOrder`. The string section of a catalog does not depend on the
+ * order of the records, so it is copied as is and only the fixed-width records are sorted:
+ * <ol>
+ * <li>The records are read sequentially in runs of a bounded number of records. Each run is sorted in memory,
+ * together with the UTF-8 bytes of its title or director when sorting by one, and spilled to a temporary file.</li>
+ * <li>The runs are merged with a k-way merge: a heap holds the next record of every run, each run being read
+ * through its own NIO buffer. When there are more runs than can be merged at once, groups of runs are merged
+ * into longer runs first.</li>
+ * <li>The merged records are streamed after the copied string section into the sorted catalog file, which is
+ * then renamed over the target, like a snapshot written by `MovieCatalogFile`.</li>
+ * </ol>
+ * The heap used depends on the run size and the number of runs merged at once, not on the size of the catalog.
+ * Ties are broken by movie ID and missing titles and directors sort first, as in `MovieOrder`; strings are
+ * compared by their UTF-8 bytes, which is the order of their code points.
+ */
+public class ExternalMovieSorter {
+
+    // Constants
+
+    static final int DEFAULT_RUN_SIZE = 1 << 18;
+    static final int MAX_MERGE_WIDTH = 64;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int ID_FIELD = 5;
+
+    // Fields
+
+    private int runSize;
+    private int field;
+    private boolean stringKey;
+    private Comparator<Entry> comparator;
+
+    // Constructors
+
+    /**
+     * Constructs an `ExternalMovieSorter` sorting runs of {@link #DEFAULT_RUN_SIZE} records.
+     *
+     * @param order The order to sort the records in.
+     */
+    public ExternalMovieSorter(MovieOrder order) {
+        this(order, DEFAULT_RUN_SIZE);
+    }
+
+    /**
+     * Constructs an `ExternalMovieSorter`.
+     *
+     * @param order   The order to sort the records in.
+     * @param runSize The number of records sorted in memory at a time.
+     * @throws IllegalArgumentException If the run size is not positive.
+     */
+    public ExternalMovieSorter(MovieOrder order, int runSize) {
+        if (runSize <= 0) {
+            throw new IllegalArgumentException("Run size must be a positive number");
+        }
+        this.runSize = runSize;
+        this.field = fieldOf(order);
+        this.stringKey = order == MovieOrder.TITLE || order == MovieOrder.DIRECTOR;
+        Comparator<Entry> byKey = stringKey
+                ? (a, b) -> compareBytes(a.key, b.key)
+                : Comparator.comparingInt(entry -> entry.record[field]);
+        this.comparator = byKey.thenComparingInt(entry -> entry.record[ID_FIELD]);
+    }
+
+    // Methods
+
+    /**
+     * Sorts a catalog file into a new catalog file. Temporary run files are written next to the sorted file
+     * and deleted afterwards, also when the sort fails: a run is registered for deletion as soon as it is created.
+     *
+     * @param catalogFileName The name of the catalog file to sort, in the current format.
+     * @param sortedFileName  The name of the sorted catalog file to write; it may be the catalog file itself.
+     * @throws IOException If a file cannot be read or written, or the catalog must be migrated first.
+     */
+    public void sort(String catalogFileName, String sortedFileName) throws IOException {
+        Path target = Paths.get(sortedFileName).toAbsolutePath();
+        Path temporary = Paths.get(sortedFileName + ".tmp");
+        List<Path> runs = new ArrayList<>();
+        List<Path> merged = new ArrayList<>();
+        try {
+            long recordsStart;
+            try (FileChannel catalog = FileChannel.open(Paths.get(catalogFileName), StandardOpenOption.READ)) {
+                recordsStart = createRuns(catalog, catalogFileName, target.getParent(), runs);
+                try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    long copied = 0;
+                    while (copied < recordsStart) {
+                        copied += catalog.transferTo(copied, recordsStart - copied, out);
+                    }
+                }
+            }
+            while (runs.size() > MAX_MERGE_WIDTH) {
+                merged = new ArrayList<>();
+                for (int i = 0; i < runs.size(); i += MAX_MERGE_WIDTH) {
+                    List<Path> group = runs.subList(i, Math.min(runs.size(), i + MAX_MERGE_WIDTH));
+                    Path run = Files.createTempFile(target.getParent(), "movies", ".run");
+                    merged.add(run);
+                    try (FileChannel out = FileChannel.open(run, StandardOpenOption.WRITE)) {
+                        merge(group, out, true);
+                    }
+                    for (Path done : group) {
+                        Files.deleteIfExists(done);
+                    }
+                }
+                runs = merged;
+            }
+            try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                merge(runs, out, false);
+                out.force(true);
+            }
+            try {
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            MovieCatalogFile.syncDirectory(target.getParent());
+        } finally {
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+            for (Path run : merged) {
+                Files.deleteIfExists(run);
+            }
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Reads the records of a catalog in runs, sorts each run and writes it to a temporary file.
+     *
+     * @return The position of the first record in the catalog file.
+     */
+    private long createRuns(FileChannel catalog, String fileName, Path directory, List<Path> runs)
+            throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(MovieCatalogFile.HEADER_SIZE);
+        readFully(catalog, header, 0);
+        header.flip();
+        if (MovieCatalogFile.readHeader(header, fileName) != MovieCatalogFile.VERSION) {
+            throw new IOException("Catalog file must be migrated before it can be sorted: " + fileName);
+        }
+        int stringCount = header.getInt();
+        int movieCount = header.getInt();
+        long stringBytes = header.getLong();
+        long offsetsStart = MovieCatalogFile.HEADER_SIZE;
+        long dataStart = offsetsStart + (long) (stringCount + 1) * Integer.BYTES;
+        long recordsStart = dataStart + stringBytes;
+        if (recordsStart + (long) movieCount * MovieCatalogFile.RECORD_SIZE > catalog.size()) {
+            throw new IOException("Catalog file is truncated or corrupt: " + fileName);
+        }
+
+        ByteBuffer records = ByteBuffer.allocate(BUFFER_SIZE - BUFFER_SIZE % MovieCatalogFile.RECORD_SIZE);
+        records.flip();
+        ByteBuffer offsets = ByteBuffer.allocate(2 * Integer.BYTES);
+        long position = recordsStart;
+        int read = 0;
+        while (read < movieCount) {
+            int count = Math.min(runSize, movieCount - read);
+            Entry[] run = new Entry[count];
+            for (int i = 0; i < count; i++) {
+                if (!records.hasRemaining()) {
+                    records.clear();
+                    long remaining = (long) (movieCount - read - i) * MovieCatalogFile.RECORD_SIZE;
+                    records.limit((int) Math.min(records.capacity(), remaining));
+                    readFully(catalog, records, position);
+                    position += records.limit();
+                    records.flip();
+                }
+                int[] record = new int[MovieCatalogFile.RECORD_FIELDS];
+                for (int f = 0; f < record.length; f++) {
+                    record[f] = records.getInt();
+                }
+                byte[] key = null;
+                if (stringKey && record[field] != MovieCatalogFile.NULL_ID) {
+                    offsets.clear();
+                    readFully(catalog, offsets, offsetsStart + (long) record[field] * Integer.BYTES);
+                    int start = offsets.getInt(0);
+                    ByteBuffer bytes = ByteBuffer.allocate(offsets.getInt(Integer.BYTES) - start);
+                    readFully(catalog, bytes, dataStart + start);
+                    key = bytes.array();
+                }
+                run[i] = new Entry(record, key);
+            }
+            read += count;
+            Arrays.sort(run, comparator);
+            Path file = Files.createTempFile(directory, "movies", ".run");
+            runs.add(file);
+            try (FileChannel out = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+                for (Entry entry : run) {
+                    write(entry, out, buffer, true);
+                }
+                MovieCatalogFile.drain(out, buffer);
+            }
+        }
+        return recordsStart;
+    }
+
+    /**
+     * Merges sorted runs into a channel, either as a longer run or as the records of the sorted catalog.
+     */
+    private void merge(List<Path> runs, FileChannel out, boolean asRun) throws IOException {
+        PriorityQueue<RunReader> heap = new PriorityQueue<>(Math.max(1, runs.size()),
+                (a, b) -> comparator.compare(a.current, b.current));
+        List<RunReader> readers = new ArrayList<>();
+        try {
+            for (Path run : runs) {
+                RunReader reader = new RunReader(FileChannel.open(run, StandardOpenOption.READ));
+                readers.add(reader);
+                if (reader.advance()) {
+                    heap.add(reader);
+                }
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            while (!heap.isEmpty()) {
+                RunReader reader = heap.poll();
+                write(reader.current, out, buffer, asRun);
+                if (reader.advance()) {
+                    heap.add(reader);
+                }
+            }
+            MovieCatalogFile.drain(out, buffer);
+        } finally {
+            for (RunReader reader : readers) {
+                reader.channel.close();
+            }
+        }
+    }
+
+    /**
+     * Writes a record, followed by its string key when writing a run of a string order.
+     */
+    private void write(Entry entry, FileChannel out, ByteBuffer buffer, boolean asRun) throws IOException {
+        MovieCatalogFile.ensureCapacity(out, buffer, MovieCatalogFile.RECORD_SIZE + Integer.BYTES);
+        for (int value : entry.record) {
+            buffer.putInt(value);
+        }
+        if (!asRun || !stringKey) {
+            return;
+        }
+        if (entry.key == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        buffer.putInt(entry.key.length);
+        int written = 0;
+        while (written < entry.key.length) {
+            MovieCatalogFile.ensureCapacity(out, buffer, 1);
+            int length = Math.min(buffer.remaining(), entry.key.length - written);
+            buffer.put(entry.key, written, length);
+            written += length;
+        }
+    }
+
+    /**
+     * Gets the position in a record of the field sorted by an order.
+     */
+    private static int fieldOf(MovieOrder order) {
+        switch (order) {
+            case TITLE:
+                return 0;
+            case DIRECTOR:
+                return 1;
+            case YEAR:
+                return 2;
+            case RUNNING_TIME:
+                return 3;
+            default:
+                throw new IllegalArgumentException("Unsupported sort key: " + order);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of file");
+            }
+            position += read;
+        }
+    }
+
+    private static int compareBytes(byte[] a, byte[] b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : -1) : 1;
+        }
+        return Arrays.compareUnsigned(a, b);
+    }
+
+    /**
+     * A record of the catalog with the UTF-8 bytes of its sort key when sorting by a string.
+     */
+    private static class Entry {
+
+        private final int[] record;
+        private final byte[] key;
+
+        Entry(int[] record, byte[] key) {
+            this.record = record;
+            this.key = key;
+        }
+    }
+
+    /**
+     * Reads the entries of a run file through a buffer, one entry ahead of the merge.
+     */
+    private class RunReader {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private Entry current;
+
+        RunReader(FileChannel channel) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            this.buffer.flip();
+        }
+
+        /**
+         * Reads the next entry of the run into {@link #current}.
+         *
+         * @return False if the run has no more entries.
+         */
+        boolean advance() throws IOException {
+            if (!fill(MovieCatalogFile.RECORD_SIZE)) {
+                current = null;
+                return false;
+            }
+            int[] record = new int[MovieCatalogFile.RECORD_FIELDS];
+            for (int f = 0; f < record.length; f++) {
+                record[f] = buffer.getInt();
+            }
+            byte[] key = null;
+            if (stringKey) {
+                if (!fill(Integer.BYTES)) {
+                    throw new EOFException("Run file is truncated");
+                }
+                int length = buffer.getInt();
+                if (length >= 0) {
+                    key = new byte[length];
+                    int copied = 0;
+                    while (copied < length) {
+                        if (!fill(1)) {
+                            throw new EOFException("Run file is truncated");
+                        }
+                        int chunk = Math.min(buffer.remaining(), length - copied);
+                        buffer.get(key, copied, chunk);
+                        copied += chunk;
+                    }
+                }
+            }
+            current = new Entry(record, key);
+            return true;
+        }
+
+        /**
+         * Makes sure the buffer holds at least the requested number of bytes, reading more of the run if needed.
+         *
+         * @return False if the run ends before that many bytes.
+         */
+        private boolean fill(int needed) throws IOException {
+            if (buffer.remaining() >= needed) {
+                return true;
+            }
+            buffer.compact();
+            while (buffer.position() < needed) {
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+            }
+            buffer.flip();
+            return buffer.remaining() >= needed;
+        }
+    }
+}
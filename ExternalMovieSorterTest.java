@@ -0,0 +1,87 @@
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ExternalMovieSorterTest {
+
+    private static final String CATALOG_FILE = "Tests/testUnsortedCatalog.bin";
+    private static final String SORTED_FILE = "Tests/testSortedCatalog.bin";
+
+    @After
+    public void tearDown() {
+        new File(CATALOG_FILE).delete();
+        new File(SORTED_FILE).delete();
+    }
+
+    @Test
+    public void testSortByEveryOrder() throws IOException {
+        MovieCatalogFile.write(CATALOG_FILE, randomMovies(300));
+        List<Movie> movies = MovieCatalogFile.read(CATALOG_FILE);
+
+        for (MovieOrder order : MovieOrder.values()) {
+            new ExternalMovieSorter(order, 4).sort(CATALOG_FILE, SORTED_FILE);
+
+            List<Movie> expected = new ArrayList<>(movies);
+            expected.sort(order.comparator());
+            List<Movie> sorted = MovieCatalogFile.read(SORTED_FILE);
+            assertEquals(expected, sorted);
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getId(), sorted.get(i).getId());
+                assertEquals(expected.get(i).getPhotoDirectory(), sorted.get(i).getPhotoDirectory());
+            }
+            assertEquals(MovieCatalogFile.readNextId(CATALOG_FILE), MovieCatalogFile.readNextId(SORTED_FILE));
+        }
+        assertEquals(0, leftoverRunFiles());
+    }
+
+    @Test
+    public void testSortInPlace() throws IOException {
+        MovieCatalogFile.write(CATALOG_FILE, randomMovies(50));
+
+        new ExternalMovieSorter(MovieOrder.TITLE, 7).sort(CATALOG_FILE, CATALOG_FILE);
+
+        List<Movie> sorted = MovieCatalogFile.read(CATALOG_FILE);
+        assertEquals(50, sorted.size());
+        for (int i = 1; i < sorted.size(); i++) {
+            assertTrue(MovieOrder.TITLE.comparator().compare(sorted.get(i - 1), sorted.get(i)) < 0);
+        }
+    }
+
+    @Test
+    public void testSortEmptyCatalog() throws IOException {
+        MovieCatalogFile.write(CATALOG_FILE, new ArrayList<>());
+
+        new ExternalMovieSorter(MovieOrder.DIRECTOR).sort(CATALOG_FILE, SORTED_FILE);
+
+        assertTrue(MovieCatalogFile.read(SORTED_FILE).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRunSize() {
+        new ExternalMovieSorter(MovieOrder.YEAR, 0);
+    }
+
+    private static List<Movie> randomMovies(int count) {
+        String[] directors = {"Christopher Nolan", "James Cameron", "Pedro Almod\u00f3var", null};
+        Random random = new Random(42);
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String title = random.nextInt(10) == 0 ? null : "Movie " + random.nextInt(count / 2);
+            movies.add(new Movie(title, directors[random.nextInt(directors.length)], 1950 + random.nextInt(70),
+                    80 + random.nextInt(100), random.nextBoolean() ? "Database/" + i + ".jpg" : null));
+        }
+        return movies;
+    }
+
+    private static int leftoverRunFiles() {
+        File[] runs = new File("Tests").listFiles((directory, name) -> name.endsWith(".run"));
+        return runs == null ? 0 : runs.length;
+    }
+}
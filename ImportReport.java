@@ -0,0 +1,128 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The `ImportReport` class summarizes the outcome of a bulk import into a `MovieDatabase`.
+ * It records how many movies were imported and, for every item that was rejected, its position
+ * in the input and the reason it was rejected.
+ */
+public class ImportReport {
+
+    // Fields
+
+    private int importedCount;
+    private List<Rejection> rejections;
+
+    // Constructors
+
+    /**
+     * Constructs an empty `ImportReport`.
+     */
+    public ImportReport() {
+        this.rejections = new ArrayList<>();
+    }
+
+    // Methods
+
+    /**
+     * Records that an item of the input was rejected.
+     *
+     * @param position The 1-based position of the item in the input.
+     * @param movie    The rejected movie, or null if the item could not be turned into a movie.
+     * @param reason   The reason the item was rejected.
+     */
+    public void reject(long position, Movie movie, String reason) {
+        rejections.add(new Rejection(position, movie, reason));
+    }
+
+    /**
+     * Sets the number of movies that were imported.
+     *
+     * @param importedCount The number of imported movies.
+     */
+    void setImportedCount(int importedCount) {
+        this.importedCount = importedCount;
+    }
+
+    /**
+     * Gets the number of movies that were imported.
+     *
+     * @return The number of imported movies.
+     */
+    public int getImportedCount() {
+        return importedCount;
+    }
+
+    /**
+     * Gets the items that were rejected, in input order.
+     *
+     * @return An unmodifiable list of rejections.
+     */
+    public List<Rejection> getRejections() {
+        return Collections.unmodifiableList(rejections);
+    }
+
+    /**
+     * Returns a string representation of the report.
+     *
+     * @return A string containing the number of imported and rejected items.
+     */
+    @Override
+    public String toString() {
+        return "Imported = " + importedCount + ", Rejected = " + rejections.size();
+    }
+
+    /**
+     * A single item rejected during an import.
+     */
+    public static class Rejection {
+
+        private final long position;
+        private final Movie movie;
+        private final String reason;
+
+        Rejection(long position, Movie movie, String reason) {
+            this.position = position;
+            this.movie = movie;
+            this.reason = reason;
+        }
+
+        /**
+         * Gets the 1-based position of the rejected item in the input.
+         *
+         * @return The position of the item.
+         */
+        public long getPosition() {
+            return position;
+        }
+
+        /**
+         * Gets the rejected movie.
+         *
+         * @return The rejected movie, or null if the item could not be turned into a movie.
+         */
+        public Movie getMovie() {
+            return movie;
+        }
+
+        /**
+         * Gets the reason the item was rejected.
+         *
+         * @return The rejection reason.
+         */
+        public String getReason() {
+            return reason;
+        }
+
+        /**
+         * Returns a string representation of the rejection.
+         *
+         * @return A string containing the position and the reason.
+         */
+        @Override
+        public String toString() {
+            return position + ": " + reason;
+        }
+    }
+}
@@ -0,0 +1,571 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * The `InvertedIndex` class is a full-text index over the titles and directors of movies.
+ * Text is normalized like in `PrefixIndex` and split into tokens, and each token maps to a posting list of the
+ * IDs of the movies containing it. Posting lists are kept sorted and stored as variable-length encoded gaps,
+ * so most IDs take one or two bytes.
+ *
+ * A query is tokenized the same way and each query token is matched in three stages: the token itself, tokens
+ * it is a prefix of (for the last query token only, so results follow the user as they type), and, when neither
+ * matches, tokens within a small edit distance that share character trigrams with it, so typos are tolerated.
+ * Movies are ranked by the sum over the query tokens of the best match weight, weighted by the rarity of the
+ * matched token and by the field it was found in. The index is updated incrementally as movies are added
+ * and removed. A removed movie is only marked in a set of deleted IDs and counted as dead in its posting lists,
+ * which searches skip; a posting list is rewritten without its dead IDs in one pass once they make up half of it.
+ */
+public class InvertedIndex {
+
+    // Constants
+
+    private static final float TITLE_WEIGHT = 1.0f;
+    private static final float DIRECTOR_WEIGHT = 0.5f;
+    private static final float EXACT_MATCH = 1.0f;
+    private static final float PREFIX_MATCH = 0.8f;
+    private static final float FUZZY_MATCH = 0.6f;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+
+    // Fields
+
+    private Map<String, PostingList> titlePostings;
+    private Map<String, PostingList> directorPostings;
+    private ConcurrentSkipListMap<String, Integer> vocabulary;
+    private Map<String, Set<String>> tokensByTrigram;
+    private int movieCount;
+    private BitSet deleted;
+    private int deadPostings;
+
+    // Constructors
+
+    /**
+     * Constructs an empty `InvertedIndex`.
+     */
+    public InvertedIndex() {
+        this.titlePostings = new HashMap<>();
+        this.directorPostings = new HashMap<>();
+        this.vocabulary = new ConcurrentSkipListMap<>();
+        this.tokensByTrigram = new HashMap<>();
+        this.deleted = new BitSet();
+    }
+
+    // Methods
+
+    /**
+     * Adds a movie to the index. The movie must have been given an ID by a `MovieDatabase`.
+     *
+     * @param movie The movie to add.
+     */
+    public void add(Movie movie) {
+        if (deleted.get(movie.getId())) {
+            purgeDeleted();
+        }
+        for (String token : tokenize(movie.getTitle())) {
+            addPosting(titlePostings, token, movie.getId());
+        }
+        for (String token : tokenize(movie.getDirector())) {
+            addPosting(directorPostings, token, movie.getId());
+        }
+        movieCount++;
+    }
+
+    /**
+     * Adds every movie of a collection to the index.
+     *
+     * @param newMovies The movies to add.
+     */
+    public void addAll(Collection<Movie> newMovies) {
+        for (Movie movie : newMovies) {
+            add(movie);
+        }
+    }
+
+    /**
+     * Removes a movie from the index. The ID of the movie is marked as deleted rather than removed from each of
+     * its posting lists, so the lists are not rewritten on every removal.
+     *
+     * @param movie The movie to remove, which must have been added with the same title and director.
+     */
+    public void remove(Movie movie) {
+        deleted.set(movie.getId());
+        for (String token : tokenize(movie.getTitle())) {
+            removePosting(titlePostings, token);
+        }
+        for (String token : tokenize(movie.getDirector())) {
+            removePosting(directorPostings, token);
+        }
+        movieCount--;
+        if (deadPostings == 0) {
+            deleted.clear();
+        }
+    }
+
+    /**
+     * Finds the movies best matching a free-text query.
+     *
+     * @param query The query, such as "fellowship" or "nolan dark knigt".
+     * @param limit The maximum number of results.
+     * @return The IDs of up to `limit` matching movies, best match first.
+     */
+    public int[] search(String query, int limit) {
+        List<String> queryTokens = new ArrayList<>(tokenize(query));
+        List<Map<String, Float>> expansions = new ArrayList<>(queryTokens.size());
+        long candidates = 0;
+        for (int i = 0; i < queryTokens.size(); i++) {
+            Map<String, Float> matches = expand(queryTokens.get(i), i == queryTokens.size() - 1);
+            for (String match : matches.keySet()) {
+                candidates += size(titlePostings.get(match)) + size(directorPostings.get(match));
+            }
+            expansions.add(matches);
+        }
+        Scores scores = new Scores((int) Math.min(candidates, movieCount));
+        for (Map<String, Float> matches : expansions) {
+            for (Map.Entry<String, Float> match : matches.entrySet()) {
+                score(titlePostings.get(match.getKey()), match.getValue() * TITLE_WEIGHT, scores);
+                score(directorPostings.get(match.getKey()), match.getValue() * DIRECTOR_WEIGHT, scores);
+            }
+            scores.endTerm();
+        }
+        return scores.top(limit);
+    }
+
+    private static int size(PostingList postings) {
+        return postings == null ? 0 : postings.size();
+    }
+
+    /**
+     * Finds the indexed tokens a query token matches, with the weight of each kind of match.
+     *
+     * @param token  The query token.
+     * @param isLast Whether the token is the last of the query, which may still be being typed.
+     * @return The matching tokens of the index and their match weights.
+     */
+    private Map<String, Float> expand(String token, boolean isLast) {
+        Map<String, Float> matches = new HashMap<>();
+        if (vocabulary.containsKey(token)) {
+            matches.put(token, EXACT_MATCH);
+        }
+        if (isLast) {
+            for (String candidate : vocabulary.tailMap(token, false).keySet()) {
+                if (!candidate.startsWith(token) || matches.size() > MAX_PREFIX_EXPANSIONS) {
+                    break;
+                }
+                matches.put(candidate, PREFIX_MATCH);
+            }
+        }
+        if (matches.isEmpty()) {
+            int maxDistance = token.length() <= 4 ? 1 : 2;
+            for (String candidate : fuzzyCandidates(token)) {
+                int distance = editDistance(token, candidate, maxDistance);
+                if (distance <= maxDistance) {
+                    matches.put(candidate, FUZZY_MATCH / distance);
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Finds the indexed tokens sharing at least one character trigram with a token and of similar length.
+     *
+     * @param token The token to find candidates for.
+     * @return The candidate tokens.
+     */
+    private Set<String> fuzzyCandidates(String token) {
+        Set<String> candidates = new HashSet<>();
+        for (String trigram : trigrams(token)) {
+            Set<String> tokens = tokensByTrigram.get(trigram);
+            if (tokens == null) {
+                continue;
+            }
+            for (String candidate : tokens) {
+                if (Math.abs(candidate.length() - token.length()) <= 2) {
+                    candidates.add(candidate);
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Offers the weighted score of the current query token to every movie of a posting list.
+     */
+    private void score(PostingList postings, float weight, Scores scores) {
+        if (postings == null) {
+            return;
+        }
+        float idf = (float) Math.log(1 + (double) Math.max(movieCount, 1) / postings.size());
+        float score = weight * idf;
+        for (int id : postings.toArray()) {
+            if (!deleted.get(id)) {
+                scores.offer(id, score);
+            }
+        }
+    }
+
+    private void addPosting(Map<String, PostingList> postings, String token, int id) {
+        postings.computeIfAbsent(token, newToken -> {
+            if (vocabulary.merge(newToken, 1, Integer::sum) == 1) {
+                for (String trigram : trigrams(newToken)) {
+                    tokensByTrigram.computeIfAbsent(trigram, gram -> new HashSet<>()).add(newToken);
+                }
+            }
+            return new PostingList();
+        }).add(id);
+    }
+
+    /**
+     * Counts a deleted ID in a posting list, dropping the list once it holds no other ID and compacting it once
+     * half of its IDs are deleted.
+     */
+    private void removePosting(Map<String, PostingList> postings, String token) {
+        PostingList list = postings.get(token);
+        if (list == null) {
+            return;
+        }
+        list.markRemoved();
+        deadPostings++;
+        if (list.size() > 0) {
+            if (list.needsCompaction()) {
+                deadPostings -= list.compact(deleted);
+            }
+            return;
+        }
+        deadPostings -= list.removedCount();
+        postings.remove(token);
+        if (vocabulary.merge(token, -1, Integer::sum) == 0) {
+            vocabulary.remove(token);
+            for (String trigram : trigrams(token)) {
+                Set<String> tokens = tokensByTrigram.get(trigram);
+                tokens.remove(token);
+                if (tokens.isEmpty()) {
+                    tokensByTrigram.remove(trigram);
+                }
+            }
+        }
+    }
+
+    /**
+     * Rewrites every posting list holding deleted IDs without them, so that the IDs can be added again.
+     */
+    private void purgeDeleted() {
+        for (Map<String, PostingList> postings : List.of(titlePostings, directorPostings)) {
+            for (PostingList list : postings.values()) {
+                if (list.removedCount() > 0) {
+                    list.compact(deleted);
+                }
+            }
+        }
+        deadPostings = 0;
+        deleted.clear();
+    }
+
+    /**
+     * Splits normalized text into distinct tokens of letters and digits.
+     *
+     * @param text The text to tokenize, may be null.
+     * @return The distinct tokens of the text, in order of appearance.
+     */
+    static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : PrefixIndex.normalize(text).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Gets the character trigrams of a token padded with a boundary marker on both sides.
+     */
+    private static Set<String> trigrams(String token) {
+        String padded = "$" + token + "$";
+        Set<String> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    /**
+     * Computes the Levenshtein distance between two strings, giving up once it exceeds a maximum.
+     *
+     * @param a           The first string.
+     * @param b           The second string.
+     * @param maxDistance The largest distance of interest.
+     * @return The edit distance, or `maxDistance + 1` if it is larger than `maxDistance`.
+     */
+    static int editDistance(String a, String b, int maxDistance) {
+        if (Math.abs(a.length() - b.length()) > maxDistance) {
+            return maxDistance + 1;
+        }
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMinimum = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+                rowMinimum = Math.min(rowMinimum, current[j]);
+            }
+            if (rowMinimum > maxDistance) {
+                return maxDistance + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[b.length()], maxDistance + 1);
+    }
+
+    /**
+     * Accumulates the scores of a query in an open-addressing hash table keyed by movie ID, sized to the postings
+     * the query reads rather than to the highest ID, so a query costs memory in proportion to its candidates.
+     * Each movie keeps the best score offered for the current query token, and the best scores of the tokens are
+     * summed, so a movie is not rewarded for matching one query token in several ways.
+     */
+    private static class Scores {
+
+        private final int[] ids;
+        private final float[] total;
+        private final float[] term;
+        private final int shift;
+        private int[] termTouched = new int[16];
+        private int termTouchedCount;
+
+        /**
+         * Constructs the table for a number of candidate movies, at most half full.
+         */
+        Scores(int candidates) {
+            int capacity = Integer.highestOneBit(Math.max(8, Math.min(candidates, 1 << 29)) * 2 - 1) << 1;
+            this.ids = new int[capacity];
+            this.total = new float[capacity];
+            this.term = new float[capacity];
+            this.shift = Integer.SIZE - Integer.numberOfTrailingZeros(capacity);
+        }
+
+        void offer(int id, float score) {
+            int slot = slot(id);
+            if (term[slot] == 0) {
+                termTouched = append(termTouched, termTouchedCount++, slot);
+            }
+            term[slot] = Math.max(term[slot], score);
+        }
+
+        void endTerm() {
+            for (int i = 0; i < termTouchedCount; i++) {
+                int slot = termTouched[i];
+                total[slot] += term[slot];
+                term[slot] = 0;
+            }
+            termTouchedCount = 0;
+        }
+
+        /**
+         * Selects the best scored IDs with a bounded heap, breaking ties by ID.
+         */
+        int[] top(int limit) {
+            if (limit <= 0) {
+                return new int[0];
+            }
+            PriorityQueue<Integer> heap = new PriorityQueue<>((a, b) -> {
+                int byScore = Float.compare(total[a], total[b]);
+                return byScore != 0 ? byScore : Integer.compare(ids[b], ids[a]);
+            });
+            for (int slot = 0; slot < ids.length; slot++) {
+                if (ids[slot] != 0) {
+                    heap.add(slot);
+                    if (heap.size() > limit) {
+                        heap.poll();
+                    }
+                }
+            }
+            int[] top = new int[heap.size()];
+            for (int i = top.length - 1; i >= 0; i--) {
+                top[i] = ids[heap.poll()];
+            }
+            return top;
+        }
+
+        /**
+         * Finds the slot of an ID by linear probing, claiming an empty slot for it if it is not in the table yet.
+         * IDs are greater than zero, so 0 marks an empty slot.
+         */
+        private int slot(int id) {
+            int mask = ids.length - 1;
+            int slot = (id * 0x9E3779B9) >>> shift;
+            while (ids[slot] != id && ids[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            ids[slot] = id;
+            return slot;
+        }
+
+        private static int[] append(int[] array, int index, int value) {
+            if (index == array.length) {
+                array = Arrays.copyOf(array, array.length * 2);
+            }
+            array[index] = value;
+            return array;
+        }
+    }
+
+    /**
+     * A sorted list of movie IDs stored as variable-length encoded gaps between consecutive IDs.
+     * IDs are almost always added in increasing order, which appends to the end of the encoding.
+     * The index removes IDs by marking them dead and compacting the list in bulk, see {@link #markRemoved()}.
+     */
+    static class PostingList {
+
+        private byte[] data = new byte[4];
+        private int length;
+        private int size;
+        private int removed;
+        private int lastId;
+
+        /**
+         * Adds an ID to the list, keeping it sorted.
+         *
+         * @param id The ID to add, greater than zero.
+         */
+        void add(int id) {
+            if (id > lastId) {
+                append(id - lastId);
+                lastId = id;
+                size++;
+                return;
+            }
+            int[] ids = toArray();
+            int position = Arrays.binarySearch(ids, id);
+            if (position >= 0) {
+                return;
+            }
+            int insertion = -position - 1;
+            int[] updated = new int[ids.length + 1];
+            System.arraycopy(ids, 0, updated, 0, insertion);
+            updated[insertion] = id;
+            System.arraycopy(ids, insertion, updated, insertion + 1, ids.length - insertion);
+            encode(updated);
+        }
+
+        /**
+         * Counts one of the IDs of the list as removed, without decoding the list. The caller keeps track of
+         * which IDs are removed and skips them when reading the list.
+         */
+        void markRemoved() {
+            removed++;
+        }
+
+        /**
+         * Gets the number of IDs counted as removed but still encoded in the list.
+         *
+         * @return The number of removed IDs.
+         */
+        int removedCount() {
+            return removed;
+        }
+
+        /**
+         * Tells whether removed IDs make up half of the list, so that it should be compacted.
+         *
+         * @return True if the list should be compacted.
+         */
+        boolean needsCompaction() {
+            return removed * 2 >= size;
+        }
+
+        /**
+         * Rewrites the list without the removed IDs, decoding and encoding it once.
+         *
+         * @param removedIds The removed IDs.
+         * @return The number of IDs dropped from the list.
+         */
+        int compact(BitSet removedIds) {
+            int[] ids = toArray();
+            int kept = 0;
+            for (int id : ids) {
+                if (!removedIds.get(id)) {
+                    ids[kept++] = id;
+                }
+            }
+            encode(Arrays.copyOf(ids, kept));
+            int dropped = ids.length - kept;
+            removed = 0;
+            return dropped;
+        }
+
+        /**
+         * Gets the number of IDs in the list, not counting the removed ones.
+         *
+         * @return The number of IDs.
+         */
+        int size() {
+            return size - removed;
+        }
+
+        /**
+         * Decodes the list, including the IDs counted as removed.
+         *
+         * @return The IDs of the list in increasing order.
+         */
+        int[] toArray() {
+            int[] ids = new int[size];
+            int id = 0;
+            int position = 0;
+            for (int i = 0; i < size; i++) {
+                int gap = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[position++];
+                    gap |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                id += gap;
+                ids[i] = id;
+            }
+            return ids;
+        }
+
+        private void encode(int[] ids) {
+            data = new byte[Math.max(4, ids.length * 2)];
+            length = 0;
+            size = 0;
+            lastId = 0;
+            for (int id : ids) {
+                append(id - lastId);
+                lastId = id;
+                size++;
+            }
+        }
+
+        private void append(int gap) {
+            if (length + 5 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            while ((gap & ~0x7F) != 0) {
+                data[length++] = (byte) ((gap & 0x7F) | 0x80);
+                gap >>>= 7;
+            }
+            data[length++] = (byte) gap;
+        }
+    }
+}
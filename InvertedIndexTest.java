@@ -0,0 +1,107 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import static org.junit.Assert.*;
+
+public class InvertedIndexTest {
+
+    private InvertedIndex index;
+    private Movie fellowship;
+    private Movie darkKnight;
+    private Movie amelie;
+
+    @Before
+    public void setUp() {
+        index = new InvertedIndex();
+        fellowship = new Movie("The Lord of the Rings: The Fellowship of the Ring", "Peter Jackson", 2001, 178, null);
+        darkKnight = new Movie("The Dark Knight", "Christopher Nolan", 2008, 152, null);
+        amelie = new Movie("Am\u00e9lie", "Jean-Pierre Jeunet", 2001, 122, null);
+        fellowship.setId(1);
+        darkKnight.setId(2);
+        amelie.setId(3);
+        index.addAll(Arrays.asList(fellowship, darkKnight, amelie));
+    }
+
+    @Test
+    public void testSearchMatchesWordsAnywhere() {
+        assertArrayEquals(new int[]{1}, index.search("Fellowship", 10));
+        assertArrayEquals(new int[]{2}, index.search("knight nolan", 10));
+        assertArrayEquals(new int[]{3}, index.search("AMELIE", 10));
+        assertArrayEquals(new int[0], index.search(" , ", 10));
+    }
+
+    @Test
+    public void testSearchCompletesLastWordAndToleratesTypos() {
+        assertArrayEquals(new int[]{1}, index.search("lord fellows", 10));
+        assertArrayEquals(new int[]{2}, index.search("dark knigt", 10));
+        assertArrayEquals(new int[]{2}, index.search("cristopher", 10));
+    }
+
+    @Test
+    public void testSearchRanksRareWordsFirstAndStopsAtLimit() {
+        assertArrayEquals(new int[]{2, 1}, index.search("the dark", 10));
+        assertArrayEquals(new int[]{2}, index.search("the dark", 1));
+    }
+
+    @Test
+    public void testRemove() {
+        index.remove(darkKnight);
+
+        assertArrayEquals(new int[]{1}, index.search("the", 10));
+        assertArrayEquals(new int[0], index.search("knight", 10));
+    }
+
+    @Test
+    public void testRemovedMoviesAreSkippedAndCanBeAddedAgain() {
+        Movie darkCrystal = new Movie("The Dark Crystal", "Jim Henson", 1982, 93, null);
+        Movie darkCity = new Movie("Dark City", "Alex Proyas", 1998, 100, null);
+        darkCrystal.setId(4);
+        darkCity.setId(5);
+        index.addAll(Arrays.asList(darkCrystal, darkCity));
+
+        index.remove(darkKnight);
+        assertArrayEquals(new int[]{4, 5}, index.search("dark", 10));
+        index.remove(darkCrystal);
+        assertArrayEquals(new int[]{5}, index.search("dark", 10));
+        assertArrayEquals(new int[]{1}, index.search("the", 10));
+
+        index.add(darkKnight);
+        assertArrayEquals(new int[]{2, 5}, index.search("dark", 10));
+        assertArrayEquals(new int[]{2}, index.search("knight", 10));
+        assertArrayEquals(new int[0], index.search("crystal", 10));
+    }
+
+    @Test
+    public void testPostingListCompressesIdGaps() {
+        InvertedIndex.PostingList postings = new InvertedIndex.PostingList();
+        postings.add(300);
+        postings.add(5);
+        postings.add(100000);
+        postings.add(301);
+
+        assertArrayEquals(new int[]{5, 300, 301, 100000}, postings.toArray());
+
+        BitSet removedIds = new BitSet();
+        removedIds.set(5);
+        removedIds.set(7);
+        postings.markRemoved();
+        assertEquals(3, postings.size());
+        assertFalse(postings.needsCompaction());
+        assertEquals(1, postings.compact(removedIds));
+        assertEquals(0, postings.removedCount());
+        assertArrayEquals(new int[]{300, 301, 100000}, postings.toArray());
+        assertEquals(3, postings.size());
+        postings.add(100001);
+        assertArrayEquals(new int[]{300, 301, 100000, 100001}, postings.toArray());
+    }
+
+    @Test
+    public void testEditDistance() {
+        assertEquals(1, InvertedIndex.editDistance("knight", "knigt", 2));
+        assertEquals(1, InvertedIndex.editDistance("kubrik", "kubrick", 1));
+        assertEquals(3, InvertedIndex.editDistance("jackson", "jeunet", 2));
+    }
+}
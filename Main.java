@@ -1,20 +1,34 @@
 import javax.swing.SwingUtilities;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 
 
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        // Serve the catalog over HTTP instead of opening the GUI: --server [port] [host]
+        if (args.length > 0 && args[0].equals("--server")) {
+            MovieServer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         // Create and add movies to the movie database
         MovieDatabase movieDatabase = new MovieDatabase("Database/movies.ser");
-        movieDatabase.addMovie(new Movie("The Godfather", "Francis Ford Coppola", 1972, 175, "Database/GodFather.jpg"));
-        movieDatabase.addMovie(new Movie("Interstellar", "Christopher Nolan", 2014, 169, "Database/InterStaller.jpg"));
-        movieDatabase.addMovie(new Movie("Titanic", "James Cameron", 1997, 195, "Database/titanic.jpg"));
-        movieDatabase.addMovie(new Movie("The Shawshank Redemption", "Frank Darabont", 1994, 142, "Database/shawshank.jpg"));
-        movieDatabase.addMovie(new Movie("The Dark Knight", "Christopher Nolan", 2008, 152, "Database/DarkKnight.jpg"));
-        movieDatabase.addMovie(new Movie("Jurassic Park", "Steven Spielberg", 1993, 127, "Database/JurassicPark.jpg"));
-        movieDatabase.addMovie(new Movie("The Matrix", "The Wachowskis", 1999, 136, "Database/TheMatrix.jpg"));
-        movieDatabase.addMovie(new Movie("Avatar", "James Cameron", 2009, 162, "Database/Avatar.jpg"));
-        movieDatabase.addMovie(new Movie("The Lord of the Rings: The Fellowship of the Ring", "Peter Jackson", 2001, 178, "Database/LOTRFellowship.jpg"));
-        movieDatabase.addMovie(new Movie("Inception", "Christopher Nolan", 2010, 148, "Database/Inception.jpg"));
+        // Load the saved catalog first, so the movies below are only added the first time the application runs
+        movieDatabase.loadDatabase();
+        movieDatabase.addMovies(List.of(
+                new Movie("The Godfather", "Francis Ford Coppola", 1972, 175, "Database/GodFather.jpg"),
+                new Movie("Interstellar", "Christopher Nolan", 2014, 169, "Database/InterStaller.jpg"),
+                new Movie("Titanic", "James Cameron", 1997, 195, "Database/titanic.jpg"),
+                new Movie("The Shawshank Redemption", "Frank Darabont", 1994, 142, "Database/shawshank.jpg"),
+                new Movie("The Dark Knight", "Christopher Nolan", 2008, 152, "Database/DarkKnight.jpg"),
+                new Movie("Jurassic Park", "Steven Spielberg", 1993, 127, "Database/JurassicPark.jpg"),
+                new Movie("The Matrix", "The Wachowskis", 1999, 136, "Database/TheMatrix.jpg"),
+                new Movie("Avatar", "James Cameron", 2009, 162, "Database/Avatar.jpg"),
+                new Movie("The Lord of the Rings: The Fellowship of the Ring", "Peter Jackson", 2001, 178, "Database/LOTRFellowship.jpg"),
+                new Movie("Inception", "Christopher Nolan", 2010, 148, "Database/Inception.jpg")
+        ));
+        // Write any pending changes to disk before the application exits
+        Runtime.getRuntime().addShutdownHook(new Thread(movieDatabase::close));
 
         // Start the UserGUI with the movie database
         SwingUtilities.invokeLater(() -> {
@@ -0,0 +1,207 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * The `MappedMovieCatalog` class is a read-only list of movies backed by a memory-mapped catalog file.
+ * Opening it only reads the header of the file; each `Movie` is built from its fixed-width record when it is
+ * accessed, so opening is near-instant and the heap used does not depend on the size of the catalog.
+ * The returned movies are views: changing them does not change the file.
+ */
+public class MappedMovieCatalog extends AbstractList<Movie> implements RandomAccess {
+
+    // Fields
+
+    private ByteBuffer buffer;
+    private int stringCount;
+    private int movieCount;
+    private int offsetsStart;
+    private int dataStart;
+    private int recordsStart;
+    private int nextId;
+
+    // Constructors
+
+    /**
+     * Constructs a `MappedMovieCatalog` by memory-mapping the specified catalog file.
+     *
+     * @param fileName The name of the catalog file to map.
+     * @throws IOException If the file cannot be mapped or is not a catalog file in the current format.
+     */
+    public MappedMovieCatalog(String fileName) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Catalog file is too large to be mapped: " + fileName);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            this.buffer = mapped;
+            if (MovieCatalogFile.readHeader(mapped, fileName) != MovieCatalogFile.VERSION) {
+                throw new IOException("Catalog file must be migrated before it can be mapped: " + fileName);
+            }
+            this.stringCount = mapped.getInt();
+            this.movieCount = mapped.getInt();
+            long stringBytes = mapped.getLong();
+            this.nextId = mapped.getInt();
+            this.offsetsStart = MovieCatalogFile.HEADER_SIZE;
+            this.dataStart = offsetsStart + (stringCount + 1) * Integer.BYTES;
+            long end = dataStart + stringBytes + (long) movieCount * MovieCatalogFile.RECORD_SIZE;
+            if (end > channel.size()) {
+                throw new IOException("Catalog file is truncated or corrupt: " + fileName);
+            }
+            this.recordsStart = (int) (dataStart + stringBytes);
+        }
+    }
+
+    // Methods
+
+    /**
+     * Builds the movie stored in the record at the specified position.
+     *
+     * @param index The position of the movie in the catalog.
+     * @return A new `Movie` holding the fields and the ID of the record.
+     * @throws IndexOutOfBoundsException If the index is out of range.
+     */
+    @Override
+    public Movie get(int index) {
+        int record = recordOffset(index);
+        Movie movie = new Movie(
+                string(buffer.getInt(record)),
+                string(buffer.getInt(record + Integer.BYTES)),
+                buffer.getInt(record + 2 * Integer.BYTES),
+                buffer.getInt(record + 3 * Integer.BYTES),
+                string(buffer.getInt(record + 4 * Integer.BYTES)));
+        movie.setId(buffer.getInt(record + 5 * Integer.BYTES));
+        return movie;
+    }
+
+    /**
+     * Gets the number of movies in the catalog.
+     *
+     * @return The number of movies.
+     */
+    @Override
+    public int size() {
+        return movieCount;
+    }
+
+    /**
+     * Gets the ID the database assigns to the next movie it adds, as stored in the catalog file.
+     *
+     * @return The next movie ID.
+     */
+    public int getNextId() {
+        return nextId;
+    }
+
+    /**
+     * Gets the ID of the movie at the specified position without building the movie.
+     *
+     * @param index The position of the movie.
+     * @return The ID of the movie.
+     */
+    public int getId(int index) {
+        return buffer.getInt(recordOffset(index) + 5 * Integer.BYTES);
+    }
+
+    /**
+     * Gets the title of the movie at the specified position without building the movie.
+     *
+     * @param index The position of the movie.
+     * @return The title of the movie.
+     */
+    public String getTitle(int index) {
+        return string(buffer.getInt(recordOffset(index)));
+    }
+
+    /**
+     * Gets the director of the movie at the specified position without building the movie.
+     *
+     * @param index The position of the movie.
+     * @return The director of the movie, or null if it has none.
+     */
+    public String getDirector(int index) {
+        return string(buffer.getInt(recordOffset(index) + Integer.BYTES));
+    }
+
+    /**
+     * Gets the release year of the movie at the specified position without building the movie.
+     *
+     * @param index The position of the movie.
+     * @return The release year of the movie.
+     */
+    public int getYear(int index) {
+        return buffer.getInt(recordOffset(index) + 2 * Integer.BYTES);
+    }
+
+    /**
+     * Finds the position of the first movie with the specified title without building any other movie.
+     * The title is looked up once in the string dictionary and then matched against the title IDs of the records.
+     *
+     * @param title The title to search for.
+     * @return The position of the first movie with the title, or -1 if there is none.
+     */
+    public int indexOfTitle(String title) {
+        if (title == null) {
+            return -1;
+        }
+        int titleId = stringId(title.getBytes(StandardCharsets.UTF_8));
+        if (titleId == MovieCatalogFile.NULL_ID) {
+            return -1;
+        }
+        for (int i = 0; i < movieCount; i++) {
+            if (buffer.getInt(recordOffset(i)) == titleId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the dictionary ID of a string by comparing its UTF-8 bytes with the dictionary entries.
+     *
+     * @param bytes The UTF-8 bytes of the string.
+     * @return The ID of the string, or {@link MovieCatalogFile#NULL_ID} if it is not in the dictionary.
+     */
+    private int stringId(byte[] bytes) {
+        byte[] candidate = new byte[bytes.length];
+        for (int id = 0; id < stringCount; id++) {
+            int start = stringOffset(id);
+            if (stringOffset(id + 1) - start != bytes.length) {
+                continue;
+            }
+            buffer.get(dataStart + start, candidate);
+            if (Arrays.equals(candidate, bytes)) {
+                return id;
+            }
+        }
+        return MovieCatalogFile.NULL_ID;
+    }
+
+    private String string(int id) {
+        if (id == MovieCatalogFile.NULL_ID) {
+            return null;
+        }
+        int start = stringOffset(id);
+        byte[] bytes = new byte[stringOffset(id + 1) - start];
+        buffer.get(dataStart + start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int stringOffset(int id) {
+        return buffer.getInt(offsetsStart + id * Integer.BYTES);
+    }
+
+    private int recordOffset(int index) {
+        if (index < 0 || index >= movieCount) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + movieCount);
+        }
+        return recordsStart + index * MovieCatalogFile.RECORD_SIZE;
+    }
+}
@@ -1,13 +1,18 @@
 import java.io.Serializable;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Objects;
 
 /**
  * Represents a movie with attributes such as title, director, year of release, running time, and photo directory.
- * Provides methods for sorting a list of movies based on different criteria.
+ * Provides methods for sorting a list of movies based on different criteria; see `MovieSorter` for sorting by
+ * several criteria at once.
  */
 public class Movie implements Serializable {
 
+    // Constants
+
+    private static final long serialVersionUID = 799850004609621472L;
+
     // Fields
 
     private String title;
@@ -15,6 +20,7 @@ public class Movie implements Serializable {
     private int year;
     private int runningTime;
     private String photoDirectory;
+    private int id;
 
     // Constructors
 
@@ -49,6 +55,24 @@ public class Movie implements Serializable {
 
     // Getters and Setters
 
+    /**
+     * Gets the stable ID of the movie, assigned by the `MovieDatabase` it was added to.
+     *
+     * @return The ID of the movie, or 0 if it has not been added to a database yet.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Sets the stable ID of the movie. IDs are assigned by `MovieDatabase` and restored from the catalog file.
+     *
+     * @param id The ID of the movie.
+     */
+    void setId(int id) {
+        this.id = id;
+    }
+
     /**
      * Gets the photo directory of the movie.
      *
@@ -170,11 +194,22 @@ public class Movie implements Serializable {
             return false;
         }
         Movie otherMovie = (Movie) obj;
-        return getTitle().equals(otherMovie.getTitle())
-                && getDirector().equals(otherMovie.getDirector())
+        return Objects.equals(getTitle(), otherMovie.getTitle())
+                && Objects.equals(getDirector(), otherMovie.getDirector())
                 && getYear() == otherMovie.getYear();
     }
 
+    /**
+     * Returns a hash code based on title, director, and year, consistent with {@link #equals(Object)}.
+     * A movie must not change its title, director or year while it is held in a hash-based collection.
+     *
+     * @return The hash code of the movie.
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(getTitle(), getDirector(), getYear());
+    }
+
     /**
      * Sorts a list of movies alphabetically by title.
      *
@@ -182,9 +217,7 @@ public class Movie implements Serializable {
      * @return A sorted list of movies by title.
      */
     public static List<Movie> sortMoviesByTitle(List<Movie> movies) {
-        return movies.stream()
-                .sorted((movie1, movie2) -> movie1.getTitle().compareTo(movie2.getTitle()))
-                .collect(Collectors.toList());
+        return MovieSorter.by(MovieOrder.TITLE).sort(movies);
     }
 
     /**
@@ -194,9 +227,7 @@ public class Movie implements Serializable {
      * @return A sorted list of movies by director.
      */
     public static List<Movie> sortMoviesByDirector(List<Movie> movies) {
-        return movies.stream()
-                .sorted((movie1, movie2) -> movie1.getDirector().compareTo(movie2.getDirector()))
-                .collect(Collectors.toList());
+        return MovieSorter.by(MovieOrder.DIRECTOR).sort(movies);
     }
 
     /**
@@ -206,9 +237,7 @@ public class Movie implements Serializable {
      * @return A sorted list of movies by year.
      */
     public static List<Movie> sortMoviesByYear(List<Movie> movies) {
-        return movies.stream()
-                .sorted((movie1, movie2) -> Integer.compare(movie1.getYear(), movie2.getYear()))
-                .collect(Collectors.toList());
+        return MovieSorter.by(MovieOrder.YEAR).sort(movies);
     }
 
     /**
@@ -218,9 +247,7 @@ public class Movie implements Serializable {
      * @return A sorted list of movies by running time.
      */
     public static List<Movie> sortMoviesByRunningTime(List<Movie> movies) {
-        return movies.stream()
-                .sorted((movie1, movie2) -> Integer.compare(movie1.getRunningTime(), movie2.getRunningTime()))
-                .collect(Collectors.toList());
+        return MovieSorter.by(MovieOrder.RUNNING_TIME).sort(movies);
     }
 
 
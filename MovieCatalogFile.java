@@ -0,0 +1,371 @@
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The `MovieCatalogFile` class reads and writes movie catalogs in a compact, versioned binary format.
+ * Every distinct string (title, director or photo directory) is stored once in a dictionary section and the
+ * movies are stored as fixed-width records of dictionary IDs and numbers, so the file carries no class
+ * descriptors and does not depend on the layout of the `Movie` class.
+ *
+ * Layout of a catalog file (all numbers big-endian):
+ * <pre>
+ * int    magic           'SSMC'
+ * int    version
+ * int    stringCount
+ * int    movieCount
+ * long   stringBytes     length of the string data section
+ * int    nextId          the movie ID the database assigns next
+ * int[]  stringOffsets   stringCount + 1 offsets into the string data section
+ * byte[] stringData      UTF-8 bytes of every distinct string
+ * int[]  records         movieCount records of titleId, directorId, year, runningTime, photoDirectoryId, movieId
+ * </pre>
+ * A string ID of {@link #NULL_ID} stands for a null field.
+ * The class also migrates catalogs written with Java serialization or in version 1 of the format, which has
+ * no movie IDs, by earlier versions of the application. Movies of such catalogs are numbered in file order.
+ */
+public class MovieCatalogFile {
+
+    // Constants
+
+    static final int MAGIC = 0x53534D43;
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 28;
+    static final int RECORD_FIELDS = 6;
+    static final int RECORD_SIZE = RECORD_FIELDS * Integer.BYTES;
+    private static final int VERSION_1_HEADER_SIZE = 24;
+    static final int NULL_ID = -1;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int SERIALIZATION_MAGIC = 0xACED;
+
+    // Constructors
+
+    private MovieCatalogFile() {
+    }
+
+    // Methods
+
+    /**
+     * Writes a list of movies to a catalog file, replacing any existing content.
+     * The next movie ID stored in the file is one more than the highest ID of the movies.
+     *
+     * @param fileName The name of the file to write.
+     * @param movies   The movies to write.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(String fileName, List<Movie> movies) throws IOException {
+        int nextId = 1;
+        for (Movie movie : movies) {
+            nextId = Math.max(nextId, movie.getId() + 1);
+        }
+        write(fileName, movies, nextId);
+    }
+
+    /**
+     * Writes a list of movies to a catalog file, replacing any existing content.
+     * Movies that have no ID yet are stored with the next free ID.
+     * The catalog is written to a temporary file, forced to disk and atomically renamed over the target,
+     * so a crash leaves either the old or the new catalog in place, and readers that have the previous
+     * file memory-mapped keep seeing its old content.
+     *
+     * @param fileName The name of the file to write.
+     * @param movies   The movies to write.
+     * @param nextId   The ID the database will assign to the next movie it adds.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(String fileName, List<Movie> movies, int nextId) throws IOException {
+        Map<String, Integer> stringIds = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        int[] records = new int[movies.size() * RECORD_FIELDS];
+        long stringBytes = 0;
+
+        for (int i = 0; i < movies.size(); i++) {
+            Movie movie = movies.get(i);
+            String[] fields = {movie.getTitle(), movie.getDirector(), movie.getPhotoDirectory()};
+            int[] ids = new int[fields.length];
+            for (int f = 0; f < fields.length; f++) {
+                if (fields[f] == null) {
+                    ids[f] = NULL_ID;
+                    continue;
+                }
+                Integer id = stringIds.get(fields[f]);
+                if (id == null) {
+                    id = strings.size();
+                    byte[] bytes = fields[f].getBytes(StandardCharsets.UTF_8);
+                    stringIds.put(fields[f], id);
+                    strings.add(bytes);
+                    stringBytes += bytes.length;
+                }
+                ids[f] = id;
+            }
+            int base = i * RECORD_FIELDS;
+            records[base] = ids[0];
+            records[base + 1] = ids[1];
+            records[base + 2] = movie.getYear();
+            records[base + 3] = movie.getRunningTime();
+            records[base + 4] = ids[2];
+            records[base + 5] = movie.getId() != 0 ? movie.getId() : nextId++;
+        }
+        if (stringBytes > Integer.MAX_VALUE) {
+            throw new IOException("Catalog strings exceed the maximum size of the catalog format.");
+        }
+
+        Path temporary = Paths.get(fileName + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(strings.size()).putInt(movies.size()).putLong(stringBytes)
+                    .putInt(nextId);
+
+            int offset = 0;
+            for (int i = 0; i <= strings.size(); i++) {
+                ensureCapacity(channel, buffer, Integer.BYTES);
+                buffer.putInt(offset);
+                if (i < strings.size()) {
+                    offset += strings.get(i).length;
+                }
+            }
+            for (byte[] bytes : strings) {
+                int written = 0;
+                while (written < bytes.length) {
+                    ensureCapacity(channel, buffer, 1);
+                    int length = Math.min(buffer.remaining(), bytes.length - written);
+                    buffer.put(bytes, written, length);
+                    written += length;
+                }
+            }
+            for (int value : records) {
+                ensureCapacity(channel, buffer, Integer.BYTES);
+                buffer.putInt(value);
+            }
+            drain(channel, buffer);
+            channel.force(true);
+        }
+        Path target = Paths.get(fileName);
+        try {
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        syncDirectory(target.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Reads every movie of a catalog file.
+     *
+     * @param fileName The name of the file to read.
+     * @return A mutable list containing the movies of the catalog, in file order.
+     * @throws IOException If the file cannot be read or is not a valid catalog file, including when its counts,
+     *                     string offsets or string IDs are out of range or a record does not describe a valid movie.
+     */
+    public static List<Movie> read(String fileName) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Catalog file is too large to be read into memory: " + fileName);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // keep reading until the buffer is full or the end of the file is reached
+            }
+            buffer.flip();
+
+            int version = readHeader(buffer, fileName);
+            int stringCount = buffer.getInt();
+            int movieCount = buffer.getInt();
+            long stringBytes = buffer.getLong();
+            if (version > 1) {
+                buffer.getInt();
+            }
+            int recordSize = version > 1 ? RECORD_SIZE : RECORD_SIZE - Integer.BYTES;
+            if (stringCount < 0 || movieCount < 0 || stringBytes < 0
+                    || (stringCount + 1L) * Integer.BYTES + stringBytes + (long) movieCount * recordSize
+                    > buffer.remaining()) {
+                throw corrupt(fileName, null);
+            }
+
+            int[] offsets = new int[stringCount + 1];
+            for (int i = 0; i <= stringCount; i++) {
+                offsets[i] = buffer.getInt();
+                if (offsets[i] < (i == 0 ? 0 : offsets[i - 1]) || offsets[i] > stringBytes) {
+                    throw corrupt(fileName, null);
+                }
+            }
+            int dataStart = buffer.position();
+            String[] strings = new String[stringCount];
+            for (int i = 0; i < stringCount; i++) {
+                strings[i] = new String(buffer.array(), dataStart + offsets[i], offsets[i + 1] - offsets[i],
+                        StandardCharsets.UTF_8);
+            }
+            buffer.position(dataStart + (int) stringBytes);
+
+            List<Movie> movies = new ArrayList<>(movieCount);
+            for (int i = 0; i < movieCount; i++) {
+                String title = lookup(strings, buffer.getInt(), fileName);
+                String director = lookup(strings, buffer.getInt(), fileName);
+                int year = buffer.getInt();
+                int runningTime = buffer.getInt();
+                String photoDirectory = lookup(strings, buffer.getInt(), fileName);
+                Movie movie = new Movie(title, director, year, runningTime, photoDirectory);
+                movie.setId(version > 1 ? buffer.getInt() : i + 1);
+                movies.add(movie);
+            }
+            return movies;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw corrupt(fileName, e);
+        }
+    }
+
+    private static IOException corrupt(String fileName, Exception cause) {
+        return new IOException("Catalog file is truncated or corrupt: " + fileName, cause);
+    }
+
+    /**
+     * Reads the ID the database assigns to the next movie it adds, from the header of a catalog file.
+     *
+     * @param fileName The name of the file to read.
+     * @return The next movie ID of the catalog.
+     * @throws IOException If the file cannot be read or is not a valid catalog file.
+     */
+    public static int readNextId(String fileName) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // keep reading until the header is complete or the end of the file is reached
+            }
+            header.flip();
+            if (readHeader(header, fileName) == 1) {
+                return header.getInt(12) + 1;
+            }
+            if (header.limit() < HEADER_SIZE) {
+                throw new IOException("Catalog file is truncated or corrupt: " + fileName);
+            }
+            return header.getInt(24);
+        }
+    }
+
+    /**
+     * Checks whether a file holds a catalog written with Java serialization by an earlier version of the application.
+     *
+     * @param fileName The name of the file to check.
+     * @return True if the file starts with the Java serialization stream header, false otherwise.
+     */
+    public static boolean isLegacy(String fileName) {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(fileName))) {
+            return in.readUnsignedShort() == SERIALIZATION_MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Rewrites a catalog written with Java serialization or in an older version of the binary format into the
+     * current binary catalog format, in place. Movies are numbered in file order.
+     * Files that are already in the current format are left untouched.
+     *
+     * @param fileName The name of the file to migrate.
+     * @return True if the file was migrated, false if it did not need to be.
+     * @throws IOException If the legacy file cannot be read or the new file cannot be written.
+     */
+    @SuppressWarnings("unchecked")
+    public static boolean migrate(String fileName) throws IOException {
+        List<Movie> movies;
+        int version = readVersion(fileName);
+        if (isLegacy(fileName)) {
+            try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(fileName)))) {
+                movies = (List<Movie>) ois.readObject();
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Legacy catalog contains unknown classes: " + e.getMessage());
+            }
+            for (int i = 0; i < movies.size(); i++) {
+                movies.get(i).setId(i + 1);
+            }
+        } else if (version >= 1 && version < VERSION) {
+            movies = read(fileName);
+        } else {
+            return false;
+        }
+        write(fileName, movies);
+        System.out.println("Migrated legacy movie database: " + fileName);
+        return true;
+    }
+
+    /**
+     * Validates the magic number and version of a catalog file.
+     *
+     * @param buffer   The buffer positioned at the start of the file.
+     * @param fileName The name of the file, used in error messages.
+     * @return The version of the catalog format, with the buffer positioned after it.
+     * @throws IOException If the file is not a catalog file or has an unsupported version.
+     */
+    static int readHeader(ByteBuffer buffer, String fileName) throws IOException {
+        if (buffer.remaining() < VERSION_1_HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a movie catalog file: " + fileName);
+        }
+        int version = buffer.getInt();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported movie catalog version " + version + ": " + fileName);
+        }
+        return version;
+    }
+
+    private static int readVersion(String fileName) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(fileName))) {
+            return in.readInt() == MAGIC ? in.readInt() : -1;
+        } catch (EOFException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Forces the directory entry of a renamed file to disk. Not every platform allows opening a directory,
+     * in which case the rename is left to the file system to persist.
+     *
+     * @param directory The directory containing the file.
+     */
+    static void syncDirectory(Path directory) {
+        if (directory == null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // directories cannot be opened for syncing on this platform
+        }
+    }
+
+    private static String lookup(String[] strings, int id, String fileName) throws IOException {
+        if (id == NULL_ID) {
+            return null;
+        }
+        if (id < 0 || id >= strings.length) {
+            throw corrupt(fileName, null);
+        }
+        return strings[id];
+    }
+
+    static void ensureCapacity(FileChannel channel, ByteBuffer buffer, int needed) throws IOException {
+        if (buffer.remaining() < needed) {
+            drain(channel, buffer);
+        }
+    }
+
+    static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
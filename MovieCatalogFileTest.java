@@ -0,0 +1,170 @@
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MovieCatalogFileTest {
+
+    private static final String CATALOG_FILE = "Tests/testCatalog.bin";
+
+    @After
+    public void tearDown() {
+        new File(CATALOG_FILE).delete();
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        List<Movie> movies = Arrays.asList(
+                new Movie("Inception", "Christopher Nolan", 2010, 148, "Database/Inception.jpg"),
+                new Movie("Interstellar", "Christopher Nolan", 2014, 169, null),
+                new Movie("Titanic", "James Cameron", 1997, 195, "Database/titanic.jpg"));
+
+        MovieCatalogFile.write(CATALOG_FILE, movies);
+        List<Movie> loaded = MovieCatalogFile.read(CATALOG_FILE);
+
+        assertEquals(movies, loaded);
+        assertEquals(169, loaded.get(1).getRunningTime());
+        assertNull(loaded.get(1).getPhotoDirectory());
+        assertEquals("Database/titanic.jpg", loaded.get(2).getPhotoDirectory());
+        assertSame(loaded.get(0).getDirector(), loaded.get(1).getDirector());
+    }
+
+    @Test
+    public void testWriteAndReadEmptyCatalog() throws IOException {
+        MovieCatalogFile.write(CATALOG_FILE, new ArrayList<>());
+        assertTrue(MovieCatalogFile.read(CATALOG_FILE).isEmpty());
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadInvalidFile() throws IOException {
+        try (FileOutputStream out = new FileOutputStream(CATALOG_FILE)) {
+            out.write("not a catalog".getBytes());
+        }
+        MovieCatalogFile.read(CATALOG_FILE);
+    }
+
+    @Test
+    public void testReadRejectsOutOfRangeFields() throws IOException {
+        // a negative movie count, a string ID past the dictionary and a year that fails validation
+        int[][] records = {{0, MovieCatalogFile.NULL_ID, 1979}, {5, MovieCatalogFile.NULL_ID, 1979}, {0, 0, 1500}};
+        int[] movieCounts = {-1, 1, 1};
+        for (int i = 0; i < records.length; i++) {
+            try (DataOutputStream out = new DataOutputStream(new FileOutputStream(CATALOG_FILE))) {
+                out.writeInt(MovieCatalogFile.MAGIC);
+                out.writeInt(MovieCatalogFile.VERSION);
+                out.writeInt(1);
+                out.writeInt(movieCounts[i]);
+                out.writeLong(5);
+                out.writeInt(2);
+                out.writeInt(0);
+                out.writeInt(5);
+                out.writeBytes("Alien");
+                out.writeInt(records[i][0]);
+                out.writeInt(records[i][1]);
+                out.writeInt(records[i][2]);
+                out.writeInt(100);
+                out.writeInt(MovieCatalogFile.NULL_ID);
+                out.writeInt(1);
+            }
+            try {
+                MovieCatalogFile.read(CATALOG_FILE);
+                fail("Corrupt catalog " + i + " should be rejected");
+            } catch (IOException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testMigrateLegacyCatalog() throws IOException {
+        List<Movie> movies = new ArrayList<>();
+        movies.add(new Movie("The Matrix", "The Wachowskis", 1999, 136, "Database/TheMatrix.jpg"));
+        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(CATALOG_FILE))) {
+            oos.writeObject(movies);
+        }
+
+        assertTrue(MovieCatalogFile.isLegacy(CATALOG_FILE));
+        assertTrue(MovieCatalogFile.migrate(CATALOG_FILE));
+        assertFalse(MovieCatalogFile.isLegacy(CATALOG_FILE));
+        assertFalse(MovieCatalogFile.migrate(CATALOG_FILE));
+        assertEquals(movies, MovieCatalogFile.read(CATALOG_FILE));
+    }
+
+    @Test
+    public void testWriteAndReadMovieIds() throws IOException {
+        Movie inception = new Movie("Inception", "Christopher Nolan", 2010, 148, null);
+        inception.setId(7);
+        Movie titanic = new Movie("Titanic", "James Cameron", 1997, 195, null);
+
+        MovieCatalogFile.write(CATALOG_FILE, Arrays.asList(inception, titanic), 12);
+        List<Movie> loaded = MovieCatalogFile.read(CATALOG_FILE);
+
+        assertEquals(7, loaded.get(0).getId());
+        assertEquals(12, loaded.get(1).getId());
+        assertEquals(13, MovieCatalogFile.readNextId(CATALOG_FILE));
+        assertEquals(12, new MappedMovieCatalog(CATALOG_FILE).get(1).getId());
+    }
+
+    @Test
+    public void testMigrateVersion1Catalog() throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(CATALOG_FILE))) {
+            out.writeInt(MovieCatalogFile.MAGIC);
+            out.writeInt(1);
+            out.writeInt(2);
+            out.writeInt(2);
+            out.writeLong(7);
+            out.writeInt(0);
+            out.writeInt(5);
+            out.writeInt(7);
+            out.writeBytes("AlienUp");
+            for (int title = 0; title < 2; title++) {
+                out.writeInt(title);
+                out.writeInt(MovieCatalogFile.NULL_ID);
+                out.writeInt(1979 + title);
+                out.writeInt(100);
+                out.writeInt(MovieCatalogFile.NULL_ID);
+            }
+        }
+
+        assertTrue(MovieCatalogFile.migrate(CATALOG_FILE));
+        List<Movie> loaded = MovieCatalogFile.read(CATALOG_FILE);
+
+        assertEquals("Alien", loaded.get(0).getTitle());
+        assertEquals("Up", loaded.get(1).getTitle());
+        assertEquals(1, loaded.get(0).getId());
+        assertEquals(2, loaded.get(1).getId());
+        assertEquals(3, MovieCatalogFile.readNextId(CATALOG_FILE));
+    }
+
+    @Test
+    public void testMappedCatalog() throws IOException {
+        List<Movie> movies = Arrays.asList(
+                new Movie("Inception", "Christopher Nolan", 2010, 148, "Database/Inception.jpg"),
+                new Movie("Avatar", "James Cameron", 2009, 162, null));
+        MovieCatalogFile.write(CATALOG_FILE, movies);
+
+        MappedMovieCatalog mapped = new MappedMovieCatalog(CATALOG_FILE);
+
+        assertEquals(2, mapped.size());
+        assertEquals(movies.get(1), mapped.get(1));
+        assertEquals(162, mapped.get(1).getRunningTime());
+        assertNull(mapped.get(1).getPhotoDirectory());
+        assertEquals("Avatar", mapped.getTitle(1));
+        assertEquals("James Cameron", mapped.getDirector(1));
+        assertEquals(2009, mapped.getYear(1));
+        assertEquals(mapped.get(1).getId(), mapped.getId(1));
+        assertEquals(1, mapped.indexOfTitle("Avatar"));
+        assertEquals(-1, mapped.indexOfTitle("Titanic"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testMappedCatalogIsReadOnly() throws IOException {
+        MovieCatalogFile.write(CATALOG_FILE, new ArrayList<>());
+        new MappedMovieCatalog(CATALOG_FILE).add(new Movie());
+    }
+}
@@ -1,18 +1,88 @@
 import java.io.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
 /**
  * The `MovieDatabase` class manages a collection of movies, providing methods to add, remove, and retrieve movies.
  * It also supports saving and loading the movie database to and from a file.
+ * Mutations are recorded in an append-only `MovieLog` next to the database file, and the log is folded into
+ * a full snapshot once it grows past {@link #COMPACTION_THRESHOLD} records. Both are written by a background
+ * `CatalogPersister`, so mutations return without waiting for disk I/O; {@link #flush()} waits for durability.
+ * Every movie added to the database is given a stable ID that is persisted with it and never reused,
+ * so other data, such as watchlists, can refer to movies by ID.
+ * Movies are indexed by ID in an array of rows, and by title, director and year and by title in `RowHashIndex`es,
+ * so adding, removing and looking up a single movie take constant time regardless of the size of the catalog. Every movie keeps the row
+ * it was added in; removing a movie only marks its row as removed, so the catalog keeps its order without
+ * shifting the other movies, and the rows are rewritten without the removed ones once those are the majority.
+ * Sorted indexes, one per `MovieOrder`, are built the first time an order is requested and then kept up to date
+ * by every addition and removal, so switching between sort orders does not sort the catalog again.
+ * Prefix indexes over normalized titles and directors back search as you type, see {@link #searchByPrefix}, and
+ * an `InvertedIndex` over the words of titles and directors backs ranked, typo-tolerant search, see {@link #search}.
+ * Range queries on year and running time, see {@link #findInRanges}, are answered from `SortedIntColumn`s without
+ * touching the movies that do not match.
+ * Directors and photo directories are interned in `StringDictionary`s as movies are indexed, so each distinct
+ * name is held once, and movies are grouped and sorted by director on the alphabetical ranks of the dictionary
+ * codes.
+ * The movies can be held in an `ArrayList`, a read-only `MappedMovieCatalog` or a compact
+ * `ColumnarMovieCatalog`, depending on how the database is loaded.
+ * The database can be shared between threads. Writers are serialized by a `StampedLock` and publish an immutable
+ * `MovieSnapshot` of the catalog through a volatile field, so {@link #getMovies()} and the scans built on it never
+ * block and never see a half-applied change. Lookups on the indexes share the read lock, and only wait for writers.
+ * Every commit, that is every addition, removal, bulk import or load, gets the next version number, and readers
+ * can pin a version with {@link #pin()} to scan or export it while writers carry on; see `CatalogVersion`.
+ * Movies must not change their title, director, year or running time while they are in the database.
  * Additionally, it includes a method to calculate the total watch time of a given watchlist.
  */
 public class MovieDatabase {
 
+    // Constants
+
+    static final int COMPACTION_THRESHOLD = 1000;
+
     // Fields
 
     private List<Movie> movies;
     private String databaseFileName;
+    private MovieLog log;
+    private CatalogPersister persister;
+    private int loggedSinceSnapshot;
+    private BitSet removedRows;
+    private int removedCount;
+    private int[] rowsById;
+    private RowHashIndex rowsByKey;
+    private RowHashIndex rowsByTitle;
+    private StringDictionary directors;
+    private StringDictionary photoDirectories;
+    private Map<MovieOrder, NavigableSet<Movie>> sortedIndexes;
+    private PrefixIndex titlePrefixes;
+    private PrefixIndex directorPrefixes;
+    private InvertedIndex words;
+    private SortedIntColumn years;
+    private SortedIntColumn runningTimes;
+    private int nextId;
+    private long version;
+    private volatile CatalogVersion.Commit current;
+    private final Map<Long, CatalogVersion.Commit> pinnedVersions = new ConcurrentHashMap<>();
+    private final StampedLock lock = new StampedLock();
 
     // Constructors
 
@@ -24,6 +94,11 @@ public class MovieDatabase {
     public MovieDatabase(String databaseFileName) {
         this.movies = new ArrayList<>();
         this.databaseFileName = databaseFileName;
+        this.log = new MovieLog(databaseFileName + ".log");
+        this.persister = new CatalogPersister(databaseFileName, log);
+        this.removedRows = new BitSet();
+        this.nextId = 1;
+        this.sortedIndexes = new EnumMap<>(MovieOrder.class);
     }
 
     // Methods
@@ -35,27 +110,135 @@ public class MovieDatabase {
      * @throws IllegalArgumentException If the movie already exists in the database.
      */
     public void addMovie(Movie movie) {
-        if (!movies.contains(movie)) {
-            movies.add(movie);
-            saveDatabase();
-            System.out.println("Movie added to the database: " + movie.getTitle());
-        } else {
-            throw new IllegalArgumentException("Movie already exists in the database.");
+        long stamp = lock.writeLock();
+        try {
+            ensureWritable();
+            ensureIndexed();
+            if (rowOf(movie) < 0) {
+                assignId(movie);
+                movies.add(movie);
+                index(movie, movies.size() - 1);
+                commit(snapshot -> appended(snapshot, List.of(movie)));
+                appendToLog(MovieLog.ADD, movie);
+                System.out.println("Movie added to the database: " + movie.getTitle());
+            } else {
+                throw new IllegalArgumentException("Movie already exists in the database.");
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Adds a collection of movies to the database with a single duplicate check pass and a single write.
+     * Movies that are null or already present, in the database or earlier in the collection, are skipped
+     * and reported instead of aborting the whole import.
+     *
+     * @param newMovies The movies to be added.
+     * @return The report listing how many movies were added and which ones were rejected.
+     */
+    public ImportReport addMovies(Collection<Movie> newMovies) {
+        MovieImportSession session = beginImport();
+        for (Movie movie : newMovies) {
+            session.add(movie);
+        }
+        return session.commit();
+    }
+
+    /**
+     * Begins a bulk import session. Movies staged in the session are added to the database when it is committed.
+     *
+     * @return A new import session for this database.
+     */
+    public MovieImportSession beginImport() {
+        return new MovieImportSession(this);
+    }
+
+    /**
+     * Adds the movies accepted by an import session and persists them once.
+     * The movies were checked for duplicates when they were staged, so they are checked again under the write lock
+     * and the ones added to the database in the meantime are skipped.
+     * The movies are appended to the mutation log, where the group commit of the `CatalogPersister` coalesces
+     * the batches of a long import. The log is folded into a snapshot at most once per import, when its last batch
+     * leaves it past {@link #COMPACTION_THRESHOLD} records, rather than once per batch.
+     *
+     * @param staged    The movies to be added.
+     * @param lastBatch Whether this batch ends the import session.
+     * @return The indexes in `staged` of the movies that were skipped because they are already in the database.
+     */
+    BitSet applyImport(List<Movie> staged, boolean lastBatch) {
+        BitSet duplicates = new BitSet();
+        List<Movie> imported = new ArrayList<>(staged.size());
+        long stamp = lock.writeLock();
+        try {
+            if (!staged.isEmpty()) {
+                ensureWritable();
+                ensureIndexed();
+            }
+            for (int i = 0; i < staged.size(); i++) {
+                if (rowOf(staged.get(i)) >= 0) {
+                    duplicates.set(i);
+                } else {
+                    imported.add(staged.get(i));
+                }
+            }
+            if (!imported.isEmpty()) {
+                // Dropped rather than shifted once per imported movie; the next range query sorts them again.
+                years = null;
+                runningTimes = null;
+                for (Movie movie : imported) {
+                    assignId(movie);
+                    movies.add(movie);
+                    index(movie, movies.size() - 1);
+                }
+                commit(snapshot -> appended(snapshot, imported));
+                persister.logMutations(MovieLog.ADD, imported);
+                loggedSinceSnapshot += imported.size();
+            }
+            if (lastBatch && loggedSinceSnapshot >= COMPACTION_THRESHOLD) {
+                compact();
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        if (!imported.isEmpty()) {
+            System.out.println("Movies imported into the database: " + imported.size());
         }
+        return duplicates;
     }
 
     /**
-     * Removes a movie from the database.
+     * Removes a movie from the database, keeping the order of the other movies. The row of the movie is marked as
+     * removed, so no other movie has to be shifted; the rows are rewritten without the removed ones once they
+     * outnumber the movies of the catalog, which costs O(n) once every n / 2 removals.
      *
      * @param movie The movie to be removed.
      * @throws IllegalArgumentException If the movie is not found in the database.
      */
     public void removeMovie(Movie movie) {
-        if (movies.remove(movie)) {
-            saveDatabase();
-            System.out.println("Movie removed from the database: " + movie.getTitle());
-        } else {
-            throw new IllegalArgumentException("Movie not found in the database.");
+        long stamp = lock.writeLock();
+        try {
+            ensureWritable();
+            ensureIndexed();
+            int row = rowOf(movie);
+            if (row >= 0) {
+                Movie removed = movies.get(row);
+                removedRows.set(row);
+                removedCount++;
+                unindex(removed, row);
+                if (removedCount > movies.size() - removedCount) {
+                    dropRemovedRows();
+                    commit(snapshot -> snapshotOfRows());
+                } else {
+                    commit(snapshot -> snapshot.withoutRow(row));
+                }
+                appendToLog(MovieLog.REMOVE, removed);
+                System.out.println("Movie removed from the database: " + movie.getTitle());
+            } else {
+                throw new IllegalArgumentException("Movie not found in the database.");
+            }
+        } finally {
+            lock.unlockWrite(stamp);
         }
     }
 
@@ -66,62 +249,988 @@ public class MovieDatabase {
      * @return The movie with the specified title, or null if not found.
      */
     public Movie getMovie(String title) {
-        for (Movie movie : movies) {
-            if (movie.getTitle().equals(title)) {
-                return movie;
+        return readIndexes(() -> rowsById != null || movies instanceof MappedMovieCatalog, () -> {
+            if (rowsById == null && movies instanceof MappedMovieCatalog) {
+                int index = ((MappedMovieCatalog) movies).indexOfTitle(title);
+                return index < 0 ? null : movies.get(index);
+            }
+            ensureIndexed();
+            int row = rowsByTitle.findFirst(Objects.hashCode(title), r -> Objects.equals(titleAt(r), title));
+            return row < 0 ? null : movies.get(row);
+        });
+    }
+
+    /**
+     * Retrieves the movie of the database that is equal to the given movie, that is, has the same title,
+     * director and year.
+     *
+     * @param movie The movie to look for.
+     * @return The equal movie held by the database, or null if not found.
+     */
+    public Movie findMovie(Movie movie) {
+        return readIndexes(() -> rowsById != null, () -> {
+            ensureIndexed();
+            int row = rowOf(movie);
+            return row < 0 ? null : movies.get(row);
+        });
+    }
+
+    /**
+     * Retrieves a movie from the database based on its ID.
+     *
+     * @param id The ID of the movie to retrieve.
+     * @return The movie with the specified ID, or null if not found.
+     */
+    public Movie getMovieById(int id) {
+        return readIndexes(() -> rowsById != null, () -> {
+            ensureIndexed();
+            return movieWithId(id);
+        });
+    }
+
+    /**
+     * Retrieves the movies of the database sorted in the specified order. The sorted index of the order is built
+     * the first time it is requested and maintained by every later addition and removal, so the view is returned
+     * without sorting and reflects later changes to the database. The director index compares directors on their
+     * ranks in the director dictionary, which are brought up to date under the write lock when it is requested.
+     *
+     * @param order The order to sort the movies in.
+     * @return A read-only view of the movies in the specified order.
+     */
+    public NavigableSet<Movie> getMoviesSortedBy(MovieOrder order) {
+        return readIndexes(() -> rowsById != null && sortedIndexes.containsKey(order)
+                && (order != MovieOrder.DIRECTOR || directorDictionary().isRanked()), () -> {
+            ensureIndexed();
+            if (order == MovieOrder.DIRECTOR) {
+                directorDictionary().rankAll();
+            }
+            NavigableSet<Movie> sorted = sortedIndexes.get(order);
+            if (sorted == null) {
+                sorted = new ConcurrentSkipListSet<>(comparator(order));
+                sorted.addAll(liveMovies());
+                sortedIndexes.put(order, sorted);
+            }
+            return Collections.unmodifiableNavigableSet(sorted);
+        });
+    }
+
+    /**
+     * Finds movies whose title or director starts with a prefix, ignoring case, accents and extra whitespace.
+     * Title matches come first, in alphabetical order of title, followed by director matches in alphabetical
+     * order of director. The prefix indexes are built on the first search and then kept up to date, so a search
+     * costs a logarithmic seek plus the number of results.
+     *
+     * @param prefix The prefix to search for.
+     * @param limit  The maximum number of movies to return.
+     * @return Up to `limit` matching movies, or an empty list if the prefix is blank.
+     * @throws IllegalArgumentException If the limit is negative.
+     */
+    public List<Movie> searchByPrefix(String prefix, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit cannot be a negative number");
+        }
+        return readIndexes(() -> rowsById != null && titlePrefixes != null, () -> {
+            ensureIndexed();
+            if (titlePrefixes == null) {
+                List<Movie> live = liveMovies();
+                titlePrefixes = new PrefixIndex(Movie::getTitle);
+                titlePrefixes.addAll(live);
+                directorPrefixes = new PrefixIndex(Movie::getDirector);
+                directorPrefixes.addAll(live);
+            }
+            List<Movie> matches = new ArrayList<>();
+            titlePrefixes.collect(prefix, limit, matches);
+            directorPrefixes.collect(prefix, limit, matches);
+            return matches;
+        });
+    }
+
+    /**
+     * Finds the movies best matching a free-text query over the words of titles and directors, ignoring case,
+     * accents and punctuation. The last word of the query also matches longer words it starts, so results follow
+     * the user as they type, and words that match nothing are matched to indexed words within one or two typos.
+     * Rare words and title matches rank above common words and director matches. The inverted index is built on
+     * the first search and then kept up to date.
+     *
+     * @param query The query, such as "lord rings" or "kubrik".
+     * @param limit The maximum number of movies to return.
+     * @return Up to `limit` matching movies, best match first, or an empty list if the query has no words.
+     * @throws IllegalArgumentException If the limit is negative.
+     */
+    public List<Movie> search(String query, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit cannot be a negative number");
+        }
+        return readIndexes(() -> rowsById != null && words != null, () -> {
+            ensureIndexed();
+            if (words == null) {
+                words = new InvertedIndex();
+                words.addAll(liveMovies());
+            }
+            List<Movie> matches = new ArrayList<>();
+            for (int id : words.search(query, limit)) {
+                matches.add(movieWithId(id));
+            }
+            return matches;
+        });
+    }
+
+    /**
+     * Finds the movies released in a range of years whose running time lies in a range, both bounds inclusive.
+     * Each range is looked up by binary search in a sorted column of primitive values, and the IDs in both ranges
+     * are intersected as bit sets, so only the matching movies are retrieved. Pass `Integer.MIN_VALUE` and
+     * `Integer.MAX_VALUE` to leave a range open. The columns are built on the first query and then kept up to date.
+     *
+     * @param fromYear        The earliest release year.
+     * @param toYear          The latest release year.
+     * @param fromRunningTime The shortest running time, in minutes.
+     * @param toRunningTime   The longest running time, in minutes.
+     * @return The matching movies, in order of ID.
+     */
+    public List<Movie> findInRanges(int fromYear, int toYear, int fromRunningTime, int toRunningTime) {
+        return readIndexes(this::hasRangeColumns, () -> {
+            BitSet matches = rangeIds(fromYear, toYear, fromRunningTime, toRunningTime);
+            List<Movie> found = new ArrayList<>(matches.cardinality());
+            for (int id = matches.nextSetBit(0); id >= 0; id = matches.nextSetBit(id + 1)) {
+                found.add(movieWithId(id));
             }
+            return found;
+        });
+    }
+
+    /**
+     * Finds the IDs of the movies whose year and running time lie in the given inclusive ranges.
+     *
+     * @return The set of the IDs of the matching movies.
+     */
+    BitSet findIdsInRanges(int fromYear, int toYear, int fromRunningTime, int toRunningTime) {
+        return readIndexes(this::hasRangeColumns, () -> rangeIds(fromYear, toYear, fromRunningTime, toRunningTime));
+    }
+
+    private BitSet rangeIds(int fromYear, int toYear, int fromRunningTime, int toRunningTime) {
+        ensureRangeColumns();
+        BitSet matches = years.range(fromYear, toYear);
+        if (runningTimes.count(fromRunningTime, toRunningTime) < runningTimes.size()) {
+            matches.and(runningTimes.range(fromRunningTime, toRunningTime));
         }
-        return null;
+        return matches;
+    }
+
+    /**
+     * Copies a slice of the IDs of the movies released in a range of years, under the read lock, so that they can
+     * be read while the database is modified. Only the IDs of the slice are copied.
+     *
+     * @param from  The earliest release year, inclusive.
+     * @param to    The latest release year, inclusive.
+     * @param skip  The number of matching movies to skip.
+     * @param count The largest number of IDs to copy.
+     * @return The IDs of the matching movies in the slice, in `MovieOrder.YEAR` order.
+     */
+    int[] findIdsByYear(int from, int to, long skip, int count) {
+        return readIndexes(this::hasRangeColumns, () -> {
+            ensureRangeColumns();
+            return years.idsInRange(from, to, skip, count);
+        });
+    }
+
+    /**
+     * Copies a slice of the IDs of the movies whose running time lies in a range, under the read lock, so that
+     * they can be read while the database is modified. Only the IDs of the slice are copied.
+     *
+     * @param from  The shortest running time in minutes, inclusive.
+     * @param to    The longest running time in minutes, inclusive.
+     * @param skip  The number of matching movies to skip.
+     * @param count The largest number of IDs to copy.
+     * @return The IDs of the matching movies in the slice, in `MovieOrder.RUNNING_TIME` order.
+     */
+    int[] findIdsByRunningTime(int from, int to, long skip, int count) {
+        return readIndexes(this::hasRangeColumns, () -> {
+            ensureRangeColumns();
+            return runningTimes.idsInRange(from, to, skip, count);
+        });
+    }
+
+    /**
+     * Counts the movies released in a range of years, in logarithmic time.
+     *
+     * @param from The earliest release year, inclusive.
+     * @param to   The latest release year, inclusive.
+     * @return The number of matching movies.
+     */
+    int countInYears(int from, int to) {
+        return readIndexes(this::hasRangeColumns, () -> {
+            ensureRangeColumns();
+            return years.count(from, to);
+        });
+    }
+
+    /**
+     * Counts the movies whose running time lies in a range, in logarithmic time.
+     *
+     * @param from The shortest running time in minutes, inclusive.
+     * @param to   The longest running time in minutes, inclusive.
+     * @return The number of matching movies.
+     */
+    int countInRunningTimes(int from, int to) {
+        return readIndexes(this::hasRangeColumns, () -> {
+            ensureRangeColumns();
+            return runningTimes.count(from, to);
+        });
+    }
+
+    /**
+     * Groups the movies of the database by director. Movies are bucketed by the alphabetical rank of their director
+     * code in a single counting pass, without comparing any names; a `ColumnarMovieCatalog` is grouped straight
+     * from its director code column. Grouping runs under the read lock; only when directors have been added since
+     * the dictionary was last ranked is the write lock taken, to rank them first.
+     *
+     * @return The movies of each director, in alphabetical order of director with movies without a director first,
+     * and in catalog order within each director.
+     */
+    public Map<String, List<Movie>> getMoviesGroupedByDirector() {
+        return readIndexes(() -> rowsById != null && directorDictionary().isRanked(), () -> {
+            ensureIndexed();
+            directorDictionary().rankAll();
+            return groupByDirector();
+        });
+    }
+
+    /**
+     * Buckets the live movies by the rank of their director. Called with the ranks of the dictionary up to date,
+     * so it only reads the dictionary.
+     */
+    private Map<String, List<Movie>> groupByDirector() {
+        ColumnarMovieCatalog columnar = movies instanceof ColumnarMovieCatalog ? (ColumnarMovieCatalog) movies : null;
+        StringDictionary dictionary = directorDictionary();
+        Movie[] indexed = new Movie[movies.size() - removedCount];
+        int[] ranks = new int[indexed.length];
+        int[] starts = new int[dictionary.size() + 2];
+        int i = 0;
+        for (int row = removedRows.nextClearBit(0); row < movies.size(); row = removedRows.nextClearBit(row + 1)) {
+            int code;
+            indexed[i] = movies.get(row);
+            code = columnar != null ? columnar.getDirectorCode(row) : directors.encode(indexed[i].getDirector());
+            ranks[i] = dictionary.rank(code) + 1;
+            starts[ranks[i] + 1]++;
+            i++;
+        }
+        for (int rank = 1; rank < starts.length; rank++) {
+            starts[rank] += starts[rank - 1];
+        }
+        int[] next = starts.clone();
+        Movie[] grouped = new Movie[indexed.length];
+        for (i = 0; i < indexed.length; i++) {
+            grouped[next[ranks[i]]++] = indexed[i];
+        }
+        Map<String, List<Movie>> groups = new LinkedHashMap<>();
+        for (int rank = 0; rank + 1 < starts.length; rank++) {
+            if (starts[rank] < starts[rank + 1]) {
+                List<Movie> group = new ArrayList<>(Arrays.asList(grouped).subList(starts[rank], starts[rank + 1]));
+                groups.put(group.get(0).getDirector(), group);
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * Finds the first `k` movies matching a predicate in the order of a comparator, such as the ten longest movies
+     * with `Comparator.comparingInt(Movie::getRunningTime).reversed()`. The movies are selected with a bounded
+     * heap in O(n log k) time and O(k) memory, without sorting the catalog.
+     *
+     * @param comparator The order of the movies; the first movies in this order are returned.
+     * @param k          The maximum number of movies to return.
+     * @param predicate  The condition movies must match.
+     * @return Up to `k` matching movies, in the order of the comparator.
+     * @throws IllegalArgumentException If `k` is negative.
+     */
+    public List<Movie> topK(Comparator<Movie> comparator, int k, Predicate<Movie> predicate) {
+        TopK top = new TopK(comparator, k);
+        for (Movie movie : getMovies()) {
+            if (predicate.test(movie)) {
+                top.add(movie);
+            }
+        }
+        return top.toList();
+    }
+
+    /**
+     * Finds the first `k` movies matching a predicate in the order of a comparator, like
+     * {@link #topK(Comparator, int, Predicate)}, on the common fork-join pool. The catalog is split into parts that
+     * are selected from in parallel, each with its own bounded heap, and the heaps are merged pairwise, so the
+     * extra memory is O(k) per part. The movies are selected from a snapshot, so the database can be modified
+     * during the selection.
+     *
+     * @param comparator The order of the movies; the first movies in this order are returned.
+     * @param k          The maximum number of movies to return.
+     * @param predicate  The condition movies must match; it is called from several threads.
+     * @return Up to `k` matching movies, in the order of the comparator.
+     * @throws IllegalArgumentException If `k` is negative.
+     */
+    public List<Movie> parallelTopK(Comparator<Movie> comparator, int k, Predicate<Movie> predicate) {
+        if (k < 0) {
+            throw new IllegalArgumentException("K cannot be a negative number");
+        }
+        return getMovies().parallelStream()
+                .filter(predicate)
+                .collect(() -> new TopK(comparator, k), TopK::add, TopK::merge)
+                .toList();
+    }
+
+    /**
+     * Begins a query over the movies of the database. See `MovieQuery` for how queries are evaluated.
+     *
+     * @return A new query matching every movie of the database.
+     */
+    public MovieQuery query() {
+        return new MovieQuery(this);
     }
 
     /**
      * Prints all movies in the database.
      */
     public void printAllMovies() {
-        for (Movie movie : movies) {
+        for (Movie movie : getMovies()) {
             System.out.println(movie);
         }
     }
 
     /**
-     * Saves the current movie database to a file.
+     * Runs a lookup on the indexes under the read lock, so that any number of lookups run at once. When the lookup
+     * first has to build an index, it runs under the write lock instead, converting the read lock if no other
+     * reader holds it.
+     *
+     * @param built  Tells whether the indexes read by the lookup have been built.
+     * @param lookup The lookup, which builds the indexes it reads if needed.
+     * @return The result of the lookup.
+     */
+    private <T> T readIndexes(BooleanSupplier built, Supplier<T> lookup) {
+        long stamp = lock.readLock();
+        try {
+            if (!built.getAsBoolean()) {
+                long writeStamp = lock.tryConvertToWriteLock(stamp);
+                if (writeStamp == 0L) {
+                    lock.unlockRead(stamp);
+                    writeStamp = lock.writeLock();
+                }
+                stamp = writeStamp;
+            }
+            return lookup.get();
+        } finally {
+            lock.unlock(stamp);
+        }
+    }
+
+    /**
+     * Gets the dictionary holding the directors of the catalog: the director column of a `ColumnarMovieCatalog`,
+     * or the dictionary the directors of the other catalogs are interned in.
+     */
+    private StringDictionary directorDictionary() {
+        return movies instanceof ColumnarMovieCatalog ? ((ColumnarMovieCatalog) movies).getDirectorDictionary()
+                : directors;
+    }
+
+    /**
+     * Gets the comparator of a sorted index. Directors are compared on their ranks in the director dictionary,
+     * which is looked up when comparing, as a columnar catalog may replace its dictionary by a copy when written.
+     */
+    private Comparator<Movie> comparator(MovieOrder order) {
+        if (order != MovieOrder.DIRECTOR) {
+            return order.comparator();
+        }
+        Comparator<Movie> byDirector = (a, b) -> directorDictionary().compare(a.getDirector(), b.getDirector());
+        return byDirector.thenComparingInt(Movie::getId);
+    }
+
+    private boolean hasRangeColumns() {
+        return rowsById != null && years != null;
+    }
+
+    /**
+     * Builds the year and running time columns the first time a range query needs them.
+     */
+    private void ensureRangeColumns() {
+        ensureIndexed();
+        if (years == null) {
+            List<Movie> live = liveMovies();
+            years = new SortedIntColumn(Movie::getYear);
+            years.addAll(live);
+            runningTimes = new SortedIntColumn(Movie::getRunningTime);
+            runningTimes.addAll(live);
+        }
+    }
+
+    /**
+     * Gives a movie that is being added the next free ID, unless it already has an ID that is not in use,
+     * as is the case for a movie that is added again after being removed.
+     *
+     * @param movie The movie being added.
+     */
+    private void assignId(Movie movie) {
+        if (movie.getId() <= 0 || rowOfId(movie.getId()) >= 0) {
+            movie.setId(nextId++);
+        } else {
+            nextId = Math.max(nextId, movie.getId() + 1);
+        }
+    }
+
+    /**
+     * Builds the hash indexes when the catalog has just been loaded or copied. The indexes are built on first
+     * use, so loading a memory-mapped catalog stays cheap until a lookup needs them. They hold rows rather than
+     * movies, so a columnar or memory-mapped catalog is not turned into one `Movie` per row by indexing it.
+     */
+    private void ensureIndexed() {
+        if (rowsById != null) {
+            return;
+        }
+        directors = new StringDictionary();
+        photoDirectories = new StringDictionary();
+        indexRows();
+    }
+
+    /**
+     * Fills the hash indexes from the rows that have not been removed. Columnar and memory-mapped catalogs are
+     * indexed from their key columns; only the movies of a heap catalog have their directors interned.
+     */
+    private void indexRows() {
+        rowsById = new int[Math.max(16, nextId)];
+        Arrays.fill(rowsById, -1);
+        rowsByKey = new RowHashIndex();
+        rowsByTitle = new RowHashIndex();
+        ColumnarMovieCatalog columnar = movies instanceof ColumnarMovieCatalog ? (ColumnarMovieCatalog) movies : null;
+        MappedMovieCatalog mapped = movies instanceof MappedMovieCatalog ? (MappedMovieCatalog) movies : null;
+        for (int row = removedRows.nextClearBit(0); row < movies.size(); row = removedRows.nextClearBit(row + 1)) {
+            if (columnar != null) {
+                String title = columnar.getTitle(row);
+                indexRow(columnar.getId(row), Objects.hash(title, columnar.getDirector(row), columnar.getYear(row)),
+                        title, row);
+            } else if (mapped != null) {
+                String title = mapped.getTitle(row);
+                String director = directors.intern(mapped.getDirector(row));
+                int year = mapped.getYear(row);
+                indexRow(mapped.getId(row), Objects.hash(title, director, year), title, row);
+            } else {
+                Movie movie = movies.get(row);
+                movie.setDirector(directors.intern(movie.getDirector()));
+                movie.setPhotoDirectory(photoDirectories.intern(movie.getPhotoDirectory()));
+                indexRow(movie.getId(), movie.hashCode(), movie.getTitle(), row);
+            }
+        }
+    }
+
+    /**
+     * Adds a row to the hash indexes.
+     *
+     * @param id    The ID of the movie at the row.
+     * @param hash  The hash code of the movie, as computed by `Movie.hashCode()`.
+     * @param title The title of the movie.
+     * @param row   The row.
+     */
+    private void indexRow(int id, int hash, String title, int row) {
+        if (id >= rowsById.length) {
+            int length = rowsById.length;
+            rowsById = Arrays.copyOf(rowsById, Math.max(id + 1, length * 2));
+            Arrays.fill(rowsById, length, rowsById.length, -1);
+        }
+        rowsById[id] = row;
+        rowsByKey.add(hash, row);
+        rowsByTitle.add(Objects.hashCode(title), row);
+    }
+
+    /**
+     * Finds the row of the movie equal to the given one, that is, with the same title, director and year.
+     *
+     * @param movie The movie to look for.
+     * @return The row of the equal movie, or -1 if the database holds none.
+     */
+    private int rowOf(Movie movie) {
+        if (movies instanceof ColumnarMovieCatalog) {
+            ColumnarMovieCatalog columnar = (ColumnarMovieCatalog) movies;
+            return rowsByKey.find(movie.hashCode(), row -> columnar.getYear(row) == movie.getYear()
+                    && Objects.equals(columnar.getDirector(row), movie.getDirector())
+                    && Objects.equals(columnar.getTitle(row), movie.getTitle()));
+        }
+        if (movies instanceof MappedMovieCatalog) {
+            MappedMovieCatalog mapped = (MappedMovieCatalog) movies;
+            return rowsByKey.find(movie.hashCode(), row -> mapped.getYear(row) == movie.getYear()
+                    && Objects.equals(mapped.getDirector(row), movie.getDirector())
+                    && Objects.equals(mapped.getTitle(row), movie.getTitle()));
+        }
+        return rowsByKey.find(movie.hashCode(), row -> movies.get(row).equals(movie));
+    }
+
+    private int rowOfId(int id) {
+        return id > 0 && id < rowsById.length ? rowsById[id] : -1;
+    }
+
+    private Movie movieWithId(int id) {
+        int row = rowOfId(id);
+        return row < 0 ? null : movies.get(row);
+    }
+
+    private String titleAt(int row) {
+        if (movies instanceof ColumnarMovieCatalog) {
+            return ((ColumnarMovieCatalog) movies).getTitle(row);
+        }
+        if (movies instanceof MappedMovieCatalog) {
+            return ((MappedMovieCatalog) movies).getTitle(row);
+        }
+        return movies.get(row).getTitle();
+    }
+
+    /**
+     * Gets the movies of the rows that have not been removed, in catalog order.
+     *
+     * @return The list of rows itself if no row has been removed, or else a new list of the remaining movies.
+     */
+    private List<Movie> liveMovies() {
+        if (removedCount == 0) {
+            return movies;
+        }
+        List<Movie> live = new ArrayList<>(movies.size() - removedCount);
+        for (int row = removedRows.nextClearBit(0); row < movies.size(); row = removedRows.nextClearBit(row + 1)) {
+            live.add(movies.get(row));
+        }
+        return live;
+    }
+
+    /**
+     * Rewrites the rows without the removed ones, renumbering the rows of the remaining movies.
+     */
+    private void dropRemovedRows() {
+        if (movies instanceof ColumnarMovieCatalog) {
+            movies = ((ColumnarMovieCatalog) movies).copy(removedRows);
+        } else {
+            movies = liveMovies();
+        }
+        removedRows.clear();
+        removedCount = 0;
+        indexRows();
+    }
+
+    /**
+     * Interns the director and photo directory of a movie in the dictionaries, and adds the movie to the hash
+     * indexes and to the sorted, prefix, word and range indexes that have been built.
+     *
+     * @param movie    The movie to index.
+     * @param position The row of the movie.
+     */
+    private void index(Movie movie, int position) {
+        movie.setDirector(directors.intern(movie.getDirector()));
+        movie.setPhotoDirectory(photoDirectories.intern(movie.getPhotoDirectory()));
+        indexRow(movie.getId(), movie.hashCode(), movie.getTitle(), position);
+        for (NavigableSet<Movie> sorted : sortedIndexes.values()) {
+            sorted.add(movie);
+        }
+        if (titlePrefixes != null) {
+            titlePrefixes.add(movie);
+            directorPrefixes.add(movie);
+        }
+        if (words != null) {
+            words.add(movie);
+        }
+        if (years != null) {
+            years.add(movie);
+            runningTimes.add(movie);
+        }
+    }
+
+    /**
+     * Removes a movie from the hash indexes and from the sorted, prefix, word and range indexes that have been built.
+     *
+     * @param movie The movie to remove.
+     * @param row   The row of the movie.
+     */
+    private void unindex(Movie movie, int row) {
+        rowsById[movie.getId()] = -1;
+        rowsByKey.remove(movie.hashCode(), row);
+        rowsByTitle.remove(Objects.hashCode(movie.getTitle()), row);
+        for (NavigableSet<Movie> sorted : sortedIndexes.values()) {
+            sorted.remove(movie);
+        }
+        if (titlePrefixes != null) {
+            titlePrefixes.remove(movie);
+            directorPrefixes.remove(movie);
+        }
+        if (words != null) {
+            words.remove(movie);
+        }
+        if (years != null) {
+            years.remove(movie);
+            runningTimes.remove(movie);
+        }
+    }
+
+    /**
+     * Drops every index and the published snapshot after the list of movies has been replaced, whose rows have not
+     * been removed from. They are rebuilt on first use.
+     */
+    private void invalidateIndexes() {
+        current = null;
+        removedRows.clear();
+        removedCount = 0;
+        rowsById = null;
+        sortedIndexes.clear();
+        titlePrefixes = null;
+        directorPrefixes = null;
+        words = null;
+        years = null;
+        runningTimes = null;
+    }
+
+    /**
+     * Restores the ID bookkeeping after the catalog has been loaded and the log replayed. Movies added by a log
+     * written by an earlier version are given IDs, and the log is folded into a snapshot so the IDs are kept.
+     *
+     * @param storedNextId The next movie ID stored in the catalog file.
+     */
+    private void restoreIds(int storedNextId) {
+        nextId = Math.max(storedNextId, log.getHighestId() + 1);
+        version++;
+        invalidateIndexes();
+        if (!log.isLegacyFormat()) {
+            return;
+        }
+        for (Movie movie : movies) {
+            nextId = Math.max(nextId, movie.getId() + 1);
+        }
+        for (int i = 0; i < movies.size(); i++) {
+            Movie movie = movies.get(i);
+            if (movie.getId() <= 0) {
+                movie.setId(nextId++);
+                movies.set(i, movie);
+            }
+        }
+        compact();
+    }
+
+    /**
+     * Records a mutation in the log, compacting the log into a new snapshot once it grows too long.
+     *
+     * @param operation The operation to record.
+     * @param movie     The movie the operation was applied to.
+     */
+    private void appendToLog(byte operation, Movie movie) {
+        persister.logMutation(operation, movie);
+        if (++loggedSinceSnapshot >= COMPACTION_THRESHOLD) {
+            compact();
+        }
+    }
+
+    /**
+     * Queues a snapshot of the current catalog, which replaces the mutation log once it is written. The published
+     * `MovieSnapshot` is immutable, so it is handed to the persister as is instead of being copied.
+     */
+    private void compact() {
+        CatalogVersion.Commit latest = current;
+        List<Movie> snapshot;
+        if (latest != null) {
+            snapshot = latest.movies;
+        } else if (movies instanceof ColumnarMovieCatalog) {
+            snapshot = ((ColumnarMovieCatalog) movies).copy(removedRows);
+        } else {
+            snapshot = new ArrayList<>(liveMovies());
+        }
+        persister.snapshot(snapshot, nextId);
+        loggedSinceSnapshot = 0;
+    }
+
+    /**
+     * Saves the current movie database to a file as a full snapshot and clears the mutation log.
+     * The snapshot is written in the binary format of `MovieCatalogFile`; this method waits until it is on disk.
      */
     void saveDatabase() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(databaseFileName))) {
-            oos.writeObject(movies);
-        } catch (IOException e) {
-            System.err.println("Error saving the database: " + e.getMessage());
+        long stamp = lock.writeLock();
+        try {
+            compact();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        awaitFlush();
+    }
+
+    /**
+     * Returns a future that completes once every mutation made so far is durable on disk.
+     *
+     * @return The future tracking the pending writes.
+     */
+    public CompletableFuture<Void> flush() {
+        return persister.flush();
+    }
+
+    /**
+     * Writes every pending mutation to disk and stops the background persistence thread.
+     * The database must not be modified after it has been closed.
+     */
+    public void close() {
+        persister.close();
+    }
+
+    /**
+     * Waits for the pending writes. Failures have already been reported by the persister.
+     */
+    private void awaitFlush() {
+        try {
+            persister.flush().join();
+        } catch (CompletionException e) {
+            // reported on the persistence thread
         }
     }
 
     /**
-     * Loads the movie database from a file.
+     * Loads the movie database from a file, replaying any mutations logged since the last snapshot.
+     * If the file cannot be read, the error is reported and the database keeps the movies it held before.
+     * A database file written with Java serialization or an older catalog format by an earlier version is
+     * migrated to the current binary catalog format the first time it is loaded.
      */
-    @SuppressWarnings("unchecked")
     public void loadDatabase() {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(databaseFileName))) {
-            movies = (List<Movie>) ois.readObject();
-        } catch (IOException | ClassNotFoundException e) {
-            System.err.println("Error loading the database: " + e.getMessage());
+        awaitFlush();
+        long stamp = lock.writeLock();
+        try {
+            readDatabase();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void readDatabase() {
+        int storedNextId = 1;
+        if (new File(databaseFileName).exists()) {
+            try {
+                MovieCatalogFile.migrate(databaseFileName);
+                movies = MovieCatalogFile.read(databaseFileName);
+                storedNextId = MovieCatalogFile.readNextId(databaseFileName);
+            } catch (IOException e) {
+                // The log only holds the changes since the snapshot, so it is not replayed without it
+                System.err.println("Error loading the database: " + e.getMessage());
+                return;
+            }
+        } else {
+            movies = new ArrayList<>();
+        }
+        loggedSinceSnapshot = log.replay(movies);
+        restoreIds(storedNextId);
+    }
+
+    /**
+     * Loads the movie database by memory-mapping the database file instead of reading it onto the heap.
+     * Movies are built only when they are accessed, so loading is near-instant for catalogs of any size.
+     * The catalog is copied onto the heap when it is first modified, or straight away if the mutation
+     * log holds changes that are not part of the snapshot yet.
+     */
+    public void loadDatabaseMapped() {
+        awaitFlush();
+        long stamp = lock.writeLock();
+        try {
+            if (!new File(databaseFileName).exists()) {
+                readDatabase();
+                return;
+            }
+            MappedMovieCatalog catalog;
+            try {
+                MovieCatalogFile.migrate(databaseFileName);
+                catalog = new MappedMovieCatalog(databaseFileName);
+            } catch (IOException e) {
+                System.err.println("Error loading the database: " + e.getMessage());
+                return;
+            }
+            movies = catalog;
+            if (!log.isEmpty()) {
+                ensureWritable();
+                loggedSinceSnapshot = log.replay(movies);
+            }
+            restoreIds(catalog.getNextId());
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Loads the movie database into a `ColumnarMovieCatalog`, which stores the movies column by column in primitive
+     * arrays and string blobs instead of one object per movie, so the catalog takes a fraction of the heap.
+     * The database file is streamed through a memory mapping, so the movies are never all on the heap at once.
+     * Lookups build the hash indexes the first time they are needed; they hold rows read from the key columns,
+     * so indexing does not build a `Movie` per row either.
+     */
+    public void loadDatabaseColumnar() {
+        awaitFlush();
+        long stamp = lock.writeLock();
+        try {
+            int storedNextId = 1;
+            ColumnarMovieCatalog columnar = new ColumnarMovieCatalog();
+            if (new File(databaseFileName).exists()) {
+                try {
+                    MovieCatalogFile.migrate(databaseFileName);
+                    MappedMovieCatalog catalog = new MappedMovieCatalog(databaseFileName);
+                    columnar = new ColumnarMovieCatalog(catalog);
+                    storedNextId = catalog.getNextId();
+                } catch (IOException e) {
+                    System.err.println("Error loading the database: " + e.getMessage());
+                    return;
+                }
+            }
+            movies = columnar;
+            loggedSinceSnapshot = log.replay(movies);
+            restoreIds(storedNextId);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Copies a memory-mapped catalog onto the heap so that it can be modified.
+     */
+    private void ensureWritable() {
+        if (movies instanceof MappedMovieCatalog) {
+            movies = new ArrayList<>(movies);
+            invalidateIndexes();
         }
     }
 
     /**
      * Retrieves the list of movies in the database.
+     * The list is an immutable snapshot of the catalog at the time of the call, which later changes do not affect;
+     * movies are added and removed through the database so its indexes stay current. Snapshots are published by
+     * every change, so this method does not lock, except to build the first snapshot after the catalog is loaded.
      *
      * @return The list of movies in the database.
      */
     public List<Movie> getMovies() {
-        return movies;
+        return currentCommit().movies;
+    }
+
+    /**
+     * Gets the number of the latest version of the catalog. Every commit increments it.
+     *
+     * @return The latest version number.
+     */
+    public long getVersion() {
+        return currentCommit().version;
+    }
+
+    /**
+     * Pins the latest version of the catalog, which keeps showing the movies as they are now until it is closed,
+     * whatever is committed in the meantime. Pinning does not lock.
+     *
+     * @return The pinned version, which must be closed once it is no longer read.
+     */
+    public CatalogVersion pin() {
+        CatalogVersion.Commit latest = currentCommit();
+        return new CatalogVersion(this, pinnedVersions.compute(latest.version, (number, pinned) -> {
+            CatalogVersion.Commit commit = pinned == null ? latest : pinned;
+            commit.pins++;
+            return commit;
+        }));
+    }
+
+    /**
+     * Pins an earlier version of the catalog for a point-in-time read. A version is retained as long as it is the
+     * latest one or a reader has it pinned, so readers can share a version by passing its number around.
+     *
+     * @param number The number of the version to pin.
+     * @return The pinned version, which must be closed once it is no longer read.
+     * @throws IllegalArgumentException If the version is neither the latest nor pinned by another reader.
+     */
+    public CatalogVersion pin(long number) {
+        CatalogVersion.Commit latest = currentCommit();
+        if (latest.version == number) {
+            return pin();
+        }
+        CatalogVersion.Commit pinned = pinnedVersions.computeIfPresent(number, (key, commit) -> {
+            commit.pins++;
+            return commit;
+        });
+        if (pinned == null) {
+            throw new IllegalArgumentException("Version " + number + " of the catalog is no longer retained");
+        }
+        return new CatalogVersion(this, pinned);
+    }
+
+    /**
+     * Releases a pin of a version, dropping the version once no reader has it pinned.
+     *
+     * @param commit The version to release.
+     */
+    void unpin(CatalogVersion.Commit commit) {
+        pinnedVersions.computeIfPresent(commit.version, (number, pinned) -> --pinned.pins == 0 ? null : pinned);
+    }
+
+    /**
+     * Gets the latest published version, publishing the first one after the catalog has been loaded.
+     * The first version of a columnar or memory-mapped catalog is a view of it, so no movie is built to publish it.
+     */
+    private CatalogVersion.Commit currentCommit() {
+        CatalogVersion.Commit latest = current;
+        if (latest != null) {
+            return latest;
+        }
+        long stamp = lock.writeLock();
+        try {
+            if (current == null) {
+                current = new CatalogVersion.Commit(version, snapshotOfRows(), nextId);
+            }
+            return current;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Creates a snapshot of the rows of the catalog that have not been removed. A columnar or memory-mapped catalog
+     * is not copied: the snapshot reads a read-only view of it, building each movie when it is accessed.
+     */
+    private MovieSnapshot snapshotOfRows() {
+        if (movies instanceof ColumnarMovieCatalog) {
+            return MovieSnapshot.view(((ColumnarMovieCatalog) movies).view(), removedRows);
+        }
+        if (movies instanceof MappedMovieCatalog) {
+            return MovieSnapshot.view(movies, removedRows);
+        }
+        return MovieSnapshot.of(movies, removedRows);
+    }
+
+    /**
+     * Derives the snapshot following movies appended to the catalog. The snapshot of a columnar catalog is extended
+     * over a new view of the catalog instead of holding the appended movies.
+     *
+     * @param snapshot The snapshot before the movies were appended.
+     * @param added    The appended movies.
+     */
+    private MovieSnapshot appended(MovieSnapshot snapshot, List<Movie> added) {
+        if (movies instanceof ColumnarMovieCatalog) {
+            return snapshot.extend(((ColumnarMovieCatalog) movies).view());
+        }
+        return snapshot.appendAll(added);
+    }
+
+    /**
+     * Counts a commit and publishes the snapshot it produces, if a snapshot has been published since the catalog
+     * was loaded. Called with the write lock held.
+     *
+     * @param change Derives the new snapshot from the previous one.
+     */
+    private void commit(UnaryOperator<MovieSnapshot> change) {
+        version++;
+        CatalogVersion.Commit previous = current;
+        if (previous != null) {
+            current = new CatalogVersion.Commit(version, change.apply(previous.movies), nextId);
+        }
     }
 
     /**
      * Calculates the total watch time of a given watchlist.
+     * A `ColumnarMovieCatalog`, or a `MovieSnapshot` such as the one returned by {@link #getMovies()} for a columnar
+     * catalog, is summed over its running time column without building its movies.
      *
      * @param watchlist The list of movies in the watchlist.
      * @return The total watch time in minutes.
      */
     public int calculateTotalWatchTimeInWatchlist(List<Movie> watchlist) {
+        if (watchlist instanceof ColumnarMovieCatalog) {
+            return (int) ((ColumnarMovieCatalog) watchlist).totalRunningTime();
+        }
+        if (watchlist instanceof MovieSnapshot) {
+            return (int) ((MovieSnapshot) watchlist).totalRunningTime();
+        }
         int totalWatchTime = 0;
 
         for (Movie movie : watchlist) {
@@ -3,7 +3,11 @@ import org.junit.Test;
 
 import java.io.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.*;
 
@@ -96,4 +100,498 @@ public class MovieDatabaseTest {
 
         assertEquals(210, movieDatabase.calculateTotalWatchTimeInWatchlist(watchlist));
     }
+
+    @Test
+    public void testLoadDatabaseReplaysMutationLog() {
+        MovieDatabase database = new MovieDatabase("Tests/testMutationLog.ser");
+        database.addMovie(movie1);
+        database.addMovie(movie2);
+        database.removeMovie(movie1);
+        database.close();
+
+        MovieDatabase reloaded = new MovieDatabase("Tests/testMutationLog.ser");
+        reloaded.loadDatabase();
+
+        assertFalse(reloaded.getMovies().contains(movie1));
+        assertTrue(reloaded.getMovies().contains(movie2));
+
+        new File("Tests/testMutationLog.ser").delete();
+        new File("Tests/testMutationLog.ser.log").delete();
+    }
+
+    @Test
+    public void testTornLogTailIsCutOffBeforeAppending() throws IOException {
+        MovieDatabase database = new MovieDatabase("Tests/testTornLog.ser");
+        database.addMovie(movie1);
+        database.close();
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream("Tests/testTornLog.ser.log", true))) {
+            // an add record whose year fails validation, followed by a record cut off by a crash
+            out.writeByte(MovieLog.ADD);
+            out.writeInt(99);
+            out.writeBoolean(false);
+            out.writeBoolean(false);
+            out.writeInt(1500);
+            out.writeInt(100);
+            out.writeBoolean(false);
+            out.writeByte(MovieLog.ADD);
+            out.writeShort(7);
+        }
+
+        MovieDatabase reloaded = new MovieDatabase("Tests/testTornLog.ser");
+        reloaded.loadDatabase();
+        assertEquals(Arrays.asList(movie1), reloaded.getMovies());
+        reloaded.addMovie(movie2);
+        reloaded.close();
+
+        MovieDatabase replayed = new MovieDatabase("Tests/testTornLog.ser");
+        replayed.loadDatabase();
+        assertEquals(Arrays.asList(movie1, movie2), replayed.getMovies());
+
+        replayed.close();
+        new File("Tests/testTornLog.ser").delete();
+        new File("Tests/testTornLog.ser.log").delete();
+    }
+
+    @Test
+    public void testLogIsNotReplayedOverUnreadableSnapshot() throws IOException {
+        MovieDatabase database = new MovieDatabase("Tests/testUnreadable.ser");
+        database.addMovie(movie1);
+        database.addMovie(movie2);
+        database.flush().join();
+        try (FileOutputStream out = new FileOutputStream("Tests/testUnreadable.ser")) {
+            out.write("not a catalog".getBytes());
+        }
+
+        database.loadDatabase();
+
+        assertEquals(Arrays.asList(movie1, movie2), database.getMovies());
+
+        database.close();
+        new File("Tests/testUnreadable.ser").delete();
+        new File("Tests/testUnreadable.ser.log").delete();
+    }
+
+    @Test
+    public void testMutationLogIsCompactedIntoSnapshot() {
+        MovieDatabase database = new MovieDatabase("Tests/testCompaction.ser");
+        for (int i = 0; i < MovieDatabase.COMPACTION_THRESHOLD; i++) {
+            database.addMovie(new Movie("Movie " + i, "Director", 2000, 100, null));
+        }
+        database.flush().join();
+
+        assertTrue(new File("Tests/testCompaction.ser").exists());
+        assertFalse(new File("Tests/testCompaction.ser.log").exists());
+
+        MovieDatabase reloaded = new MovieDatabase("Tests/testCompaction.ser");
+        reloaded.loadDatabase();
+        assertEquals(MovieDatabase.COMPACTION_THRESHOLD, reloaded.getMovies().size());
+
+        new File("Tests/testCompaction.ser").delete();
+        new File("Tests/testCompaction.ser.log").delete();
+    }
+
+    @Test
+    public void testAddMoviesReportsRejections() {
+        movieDatabase.addMovie(movie1);
+        Movie duplicate = new Movie("Movie 2", "Director 2", 2019, 90, "path/to/photo2.jpg");
+
+        ImportReport report = movieDatabase.addMovies(Arrays.asList(movie1, movie2, null, duplicate));
+
+        assertEquals(1, report.getImportedCount());
+        assertEquals(3, report.getRejections().size());
+        assertEquals(1, report.getRejections().get(0).getPosition());
+        assertEquals(3, report.getRejections().get(1).getPosition());
+        assertEquals(4, report.getRejections().get(2).getPosition());
+        assertEquals(2, movieDatabase.getMovies().size());
+    }
+
+    @Test
+    public void testAddMoviesPersistsImportedMovies() {
+        MovieDatabase database = new MovieDatabase("Tests/testBulkImport.ser");
+        database.addMovies(Arrays.asList(movie1, movie2));
+        database.close();
+
+        MovieDatabase reloaded = new MovieDatabase("Tests/testBulkImport.ser");
+        reloaded.loadDatabase();
+
+        assertTrue(reloaded.getMovies().contains(movie1));
+        assertTrue(reloaded.getMovies().contains(movie2));
+
+        new File("Tests/testBulkImport.ser").delete();
+        new File("Tests/testBulkImport.ser.log").delete();
+    }
+
+    @Test
+    public void testBatchedImportIsCompactedOnceWhenCommitted() {
+        MovieDatabase database = new MovieDatabase("Tests/testBatchedImport.ser");
+        MovieImportSession session = database.beginImport();
+        for (int batch = 0; batch < 3; batch++) {
+            for (int i = 0; i < MovieDatabase.COMPACTION_THRESHOLD / 2; i++) {
+                session.add(new Movie("Movie " + batch + "/" + i, "Director", 2000, 100, null));
+            }
+            session.commitStaged();
+            database.flush().join();
+            assertFalse(new File("Tests/testBatchedImport.ser").exists());
+        }
+
+        session.commit();
+        database.flush().join();
+        assertTrue(new File("Tests/testBatchedImport.ser").exists());
+        assertFalse(new File("Tests/testBatchedImport.ser.log").exists());
+        database.close();
+
+        MovieDatabase reloaded = new MovieDatabase("Tests/testBatchedImport.ser");
+        reloaded.loadDatabase();
+        assertEquals(3 * (MovieDatabase.COMPACTION_THRESHOLD / 2), reloaded.getMovies().size());
+
+        reloaded.close();
+        new File("Tests/testBatchedImport.ser").delete();
+        new File("Tests/testBatchedImport.ser.log").delete();
+    }
+
+    @Test
+    public void testImportRejectsMoviesAddedAfterStaging() {
+        MovieImportSession session = movieDatabase.beginImport();
+        assertTrue(session.add(movie1));
+        assertTrue(session.add(movie2));
+        movieDatabase.addMovie(new Movie("Movie 1", "Director 1", 2020, 120, null));
+
+        ImportReport report = session.commit();
+
+        assertEquals(1, report.getImportedCount());
+        assertEquals(1, report.getRejections().size());
+        assertEquals(1, report.getRejections().get(0).getPosition());
+        assertEquals(Arrays.asList(movie1, movie2), movieDatabase.getMovies());
+    }
+
+    @Test
+    public void testLoadDatabaseMapped() {
+        MovieDatabase database = new MovieDatabase("Tests/testMapped.ser");
+        database.addMovie(movie1);
+        database.saveDatabase();
+        database.addMovie(movie2);
+        database.close();
+
+        MovieDatabase mapped = new MovieDatabase("Tests/testMapped.ser");
+        mapped.loadDatabaseMapped();
+
+        assertEquals(movie1, mapped.getMovie("Movie 1"));
+        assertEquals(movie2, mapped.getMovie("Movie 2"));
+        mapped.removeMovie(movie1);
+        assertFalse(mapped.getMovies().contains(movie1));
+
+        new File("Tests/testMapped.ser").delete();
+        new File("Tests/testMapped.ser.log").delete();
+    }
+
+    @Test
+    public void testMappedCatalogIsIndexedFromItsColumns() {
+        MovieDatabase database = new MovieDatabase("Tests/testMapped.ser");
+        database.addMovie(movie1);
+        database.addMovie(movie2);
+        database.saveDatabase();
+        database.close();
+
+        MovieDatabase mapped = new MovieDatabase("Tests/testMapped.ser");
+        mapped.loadDatabaseMapped();
+
+        assertEquals(movie2, mapped.findMovie(new Movie("Movie 2", "Director 2", 2019, 90, null)));
+        assertEquals(movie1, mapped.getMovieById(movie1.getId()));
+        assertEquals(movie2, mapped.getMovie("Movie 2"));
+        assertEquals(Arrays.asList(movie1), mapped.getMoviesGroupedByDirector().get("Director 1"));
+        assertNull(mapped.findMovie(new Movie("Movie 2", "Director 2", 2020, 90, null)));
+
+        new File("Tests/testMapped.ser").delete();
+        new File("Tests/testMapped.ser.log").delete();
+    }
+
+    @Test
+    public void testLoadDatabaseColumnar() {
+        Movie movie3 = new Movie("Movie 3", "Director 1", 2018, 100, null);
+        MovieDatabase database = new MovieDatabase("Tests/testColumnar.ser");
+        database.addMovies(Arrays.asList(movie1, movie2));
+        database.saveDatabase();
+        database.addMovie(movie3);
+        database.close();
+
+        MovieDatabase columnar = new MovieDatabase("Tests/testColumnar.ser");
+        columnar.loadDatabaseColumnar();
+
+        assertEquals(Arrays.asList(movie1, movie2, movie3), columnar.getMovies());
+        assertEquals(movie3.getId(), columnar.getMovie("Movie 3").getId());
+        columnar.removeMovie(movie1);
+        columnar.removeMovie(movie3);
+        assertEquals(Arrays.asList(movie2), columnar.getMovies());
+        columnar.close();
+
+        MovieDatabase reloaded = new MovieDatabase("Tests/testColumnar.ser");
+        reloaded.loadDatabaseColumnar();
+        assertEquals(Arrays.asList(movie2), reloaded.getMovies());
+        reloaded.close();
+
+        new File("Tests/testColumnar.ser").delete();
+        new File("Tests/testColumnar.ser.log").delete();
+    }
+
+    @Test
+    public void testColumnarSnapshotsAreNotAffectedByLaterChanges() {
+        Movie movie3 = new Movie("Movie 3", "Director 1", 2018, 100, null);
+        MovieDatabase database = new MovieDatabase("Tests/testColumnarSnapshots.ser");
+        database.loadDatabaseColumnar();
+        database.addMovies(Arrays.asList(movie1, movie2));
+        List<Movie> before = database.getMovies();
+
+        database.addMovie(movie3);
+        database.removeMovie(movie1);
+        List<Movie> after = database.getMovies();
+
+        assertEquals(Arrays.asList(movie1, movie2), before);
+        assertEquals(Arrays.asList(movie2, movie3), after);
+        assertEquals(190, database.calculateTotalWatchTimeInWatchlist(after));
+        assertEquals(210, database.calculateTotalWatchTimeInWatchlist(before));
+        database.close();
+        new File("Tests/testColumnarSnapshots.ser").delete();
+        new File("Tests/testColumnarSnapshots.ser.log").delete();
+    }
+
+    @Test
+    public void testMoviesGroupedByDirector() {
+        Movie movie3 = new Movie("Movie 3", new String("Director 1"), 2018, 100, null);
+        Movie movie4 = new Movie("Movie 4", null, 2017, 100, null);
+        movieDatabase.addMovies(Arrays.asList(movie2, movie1, movie3, movie4));
+
+        Map<String, List<Movie>> groups = movieDatabase.getMoviesGroupedByDirector();
+
+        assertEquals(Arrays.asList(null, "Director 1", "Director 2"), new ArrayList<>(groups.keySet()));
+        assertEquals(Arrays.asList(movie1, movie3), groups.get("Director 1"));
+        assertEquals(Arrays.asList(movie4), groups.get(null));
+        assertSame(movie1.getDirector(), movie3.getDirector());
+    }
+
+    @Test
+    public void testColumnarMoviesGroupedByDirector() {
+        Movie movie3 = new Movie("Movie 3", "Director 1", 2018, 100, null);
+        MovieDatabase database = new MovieDatabase("Tests/testColumnarGroups.ser");
+        database.loadDatabaseColumnar();
+        database.addMovies(Arrays.asList(movie2, movie1, movie3));
+        database.removeMovie(movie2);
+
+        Map<String, List<Movie>> groups = database.getMoviesGroupedByDirector();
+
+        assertEquals(Arrays.asList("Director 1"), new ArrayList<>(groups.keySet()));
+        assertEquals(Arrays.asList(movie1, movie3), groups.get("Director 1"));
+        database.close();
+        new File("Tests/testColumnarGroups.ser").delete();
+        new File("Tests/testColumnarGroups.ser.log").delete();
+    }
+
+    @Test
+    public void testTopK() {
+        Movie movie3 = new Movie("Movie 3", "Director 1", 2018, 150, null);
+        Movie movie4 = new Movie("Movie 4", "Director 1", 2010, 100, null);
+        movieDatabase.addMovies(Arrays.asList(movie1, movie2, movie3, movie4));
+        Comparator<Movie> longestFirst = Comparator.comparingInt(Movie::getRunningTime).reversed();
+        Comparator<Movie> mostRecentFirst = Comparator.comparingInt(Movie::getYear).reversed();
+
+        assertEquals(Arrays.asList(movie3, movie1), movieDatabase.topK(longestFirst, 2, movie -> true));
+        assertEquals(Arrays.asList(movie1, movie3),
+                movieDatabase.topK(mostRecentFirst, 2, movie -> "Director 1".equals(movie.getDirector())));
+        assertEquals(Arrays.asList(movie3, movie1, movie4, movie2),
+                movieDatabase.parallelTopK(longestFirst, 10, movie -> true));
+        assertEquals(Arrays.asList(movie1, movie3, movie4),
+                movieDatabase.parallelTopK(mostRecentFirst, 3, movie -> "Director 1".equals(movie.getDirector())));
+    }
+
+    @Test
+    public void testMovieIdsAreStableAndNeverReused() {
+        MovieDatabase database = new MovieDatabase("Tests/testMovieIds.ser");
+        database.addMovie(movie1);
+        database.addMovie(movie2);
+        database.removeMovie(movie2);
+        database.close();
+
+        MovieDatabase reloaded = new MovieDatabase("Tests/testMovieIds.ser");
+        reloaded.loadDatabase();
+        Movie movie3 = new Movie("Movie 3", "Director 3", 2018, 100, null);
+        reloaded.addMovie(movie3);
+
+        assertEquals(movie1, reloaded.getMovieById(movie1.getId()));
+        assertNull(reloaded.getMovieById(movie2.getId()));
+        assertEquals(movie2.getId() + 1, movie3.getId());
+
+        reloaded.close();
+        new File("Tests/testMovieIds.ser").delete();
+        new File("Tests/testMovieIds.ser.log").delete();
+    }
+
+    @Test
+    public void testLookupsAfterRemovingFromTheMiddle() {
+        Movie movie3 = new Movie("Movie 1", "Director 3", 2018, 100, null);
+        movieDatabase.addMovies(Arrays.asList(movie1, movie2, movie3));
+
+        movieDatabase.removeMovie(new Movie("Movie 1", "Director 1", 2020, 0, null));
+
+        assertEquals(2, movieDatabase.getMovies().size());
+        assertSame(movie3, movieDatabase.getMovie("Movie 1"));
+        assertSame(movie3, movieDatabase.findMovie(new Movie("Movie 1", "Director 3", 2018, 0, null)));
+        assertSame(movie2, movieDatabase.getMovieById(movie2.getId()));
+        assertNull(movieDatabase.getMovieById(movie1.getId()));
+        assertNull(movieDatabase.findMovie(movie1));
+        movieDatabase.removeMovie(movie3);
+        assertNull(movieDatabase.getMovie("Movie 1"));
+        assertEquals(Arrays.asList(movie2), movieDatabase.getMovies());
+    }
+
+    @Test
+    public void testRemoveMovieKeepsOrder() {
+        Movie movie3 = new Movie("Movie 3", "Director 3", 2018, 100, null);
+        Movie movie4 = new Movie("Movie 4", "Director 4", 2017, 110, null);
+        Movie movie5 = new Movie("Movie 5", "Director 5", 2016, 130, null);
+        movieDatabase.addMovies(Arrays.asList(movie1, movie2, movie3, movie4, movie5));
+
+        movieDatabase.removeMovie(movie2);
+        assertEquals(Arrays.asList(movie1, movie3, movie4, movie5), movieDatabase.getMovies());
+        movieDatabase.removeMovie(movie4);
+        assertEquals(Arrays.asList(movie1, movie3, movie5), movieDatabase.getMovies());
+        assertEquals(Arrays.asList(movie1, movie3, movie5), new ArrayList<>(movieDatabase.getMoviesSortedBy(MovieOrder.TITLE)));
+
+        // the removed rows now outnumber the movies, so the rows are rewritten
+        movieDatabase.removeMovie(movie1);
+        movieDatabase.removeMovie(movie5);
+        assertEquals(Arrays.asList(movie3), movieDatabase.getMovies());
+        assertSame(movie3, movieDatabase.findMovie(movie3));
+        movieDatabase.addMovie(movie2);
+        assertEquals(Arrays.asList(movie3, movie2), movieDatabase.getMovies());
+        movieDatabase.removeMovie(movie3);
+        assertEquals(Arrays.asList(movie2), movieDatabase.getMovies());
+        assertSame(movie2, movieDatabase.getMovie("Movie 2"));
+    }
+
+    @Test
+    public void testSortedIndexesFollowMutations() {
+        Movie movie3 = new Movie("Movie 0", "Director 3", 2021, 100, null);
+        movieDatabase.addMovies(Arrays.asList(movie1, movie2));
+
+        Collection<Movie> byTitle = movieDatabase.getMoviesSortedBy(MovieOrder.TITLE);
+        Collection<Movie> byRunningTime = movieDatabase.getMoviesSortedBy(MovieOrder.RUNNING_TIME);
+        movieDatabase.addMovie(movie3);
+        movieDatabase.removeMovie(movie1);
+
+        assertEquals(Arrays.asList(movie3, movie2), new ArrayList<>(byTitle));
+        assertEquals(Arrays.asList(movie2, movie3), new ArrayList<>(byRunningTime));
+        assertEquals(Arrays.asList(movie2, movie3),
+                new ArrayList<>(movieDatabase.getMoviesSortedBy(MovieOrder.YEAR)));
+        assertEquals(Movie.sortMoviesByDirector(movieDatabase.getMovies()),
+                new ArrayList<>(movieDatabase.getMoviesSortedBy(MovieOrder.DIRECTOR)));
+    }
+
+    @Test
+    public void testDirectorIndexRanksDirectorsAddedLater() {
+        movieDatabase.addMovies(Arrays.asList(movie1, movie2));
+        Collection<Movie> byDirector = movieDatabase.getMoviesSortedBy(MovieOrder.DIRECTOR);
+        Movie first = new Movie("Movie 7", "A Director", 2001, 100, null);
+        Movie last = new Movie("Movie 8", "Z Director", 2002, 100, null);
+        Movie between = new Movie("Movie 9", "Director 15", 2003, 100, null);
+        movieDatabase.addMovies(Arrays.asList(last, first, between));
+
+        List<Movie> expected = Movie.sortMoviesByDirector(movieDatabase.getMovies());
+        assertEquals(expected, new ArrayList<>(byDirector));
+        assertEquals(expected, new ArrayList<>(movieDatabase.getMoviesSortedBy(MovieOrder.DIRECTOR)));
+        assertEquals(Arrays.asList("A Director", "Director 1", "Director 15", "Director 2", "Z Director"),
+                new ArrayList<>(movieDatabase.getMoviesGroupedByDirector().keySet()));
+    }
+
+    @Test
+    public void testSearchByPrefix() {
+        Movie movie3 = new Movie("Another Movie", "Director 1", 2021, 100, null);
+        movieDatabase.addMovies(Arrays.asList(movie2, movie1));
+
+        assertEquals(Arrays.asList(movie1, movie2), movieDatabase.searchByPrefix("movie", 10));
+        movieDatabase.addMovie(movie3);
+        assertEquals(Arrays.asList(movie1, movie3), movieDatabase.searchByPrefix("director 1", 10));
+        movieDatabase.removeMovie(movie1);
+        assertEquals(Arrays.asList(movie3), movieDatabase.searchByPrefix("an", 10));
+        assertEquals(Arrays.asList(movie3), movieDatabase.searchByPrefix("DIRECTOR", 1));
+    }
+
+    @Test
+    public void testSearchRanksWordMatches() {
+        Movie movie3 = new Movie("Another Movie", "Director 1", 2021, 100, null);
+        movieDatabase.addMovies(Arrays.asList(movie1, movie2));
+
+        assertEquals(Arrays.asList(movie1, movie2), movieDatabase.search("movie", 10));
+        movieDatabase.addMovie(movie3);
+        assertEquals(Arrays.asList(movie3), movieDatabase.search("anothr", 10));
+        movieDatabase.removeMovie(movie3);
+        assertTrue(movieDatabase.search("another", 10).isEmpty());
+    }
+
+    @Test
+    public void testFindInRanges() {
+        Movie movie3 = new Movie("Movie 3", "Director 3", 1995, 160, null);
+        Movie movie4 = new Movie("Movie 4", "Director 4", 1999, 100, null);
+        movieDatabase.addMovies(Arrays.asList(movie1, movie2, movie3));
+
+        assertEquals(Arrays.asList(movie3), movieDatabase.findInRanges(1990, 1999, Integer.MIN_VALUE, Integer.MAX_VALUE));
+        movieDatabase.addMovie(movie4);
+        assertEquals(Arrays.asList(movie4), movieDatabase.findInRanges(1990, 1999, 0, 149));
+        movieDatabase.removeMovie(movie4);
+        assertTrue(movieDatabase.findInRanges(1990, 1999, 0, 149).isEmpty());
+        assertEquals(Arrays.asList(movie1, movie2), movieDatabase.findInRanges(2000, 2020, 90, 120));
+    }
+
+    @Test
+    public void testFlushCompletesOnceMutationsAreDurable() {
+        MovieDatabase database = new MovieDatabase("Tests/testFlush.ser");
+        database.addMovie(movie1);
+        database.flush().join();
+
+        assertTrue(new File("Tests/testFlush.ser.log").length() > 0);
+        assertTrue(database.flush().isDone());
+
+        database.close();
+        new File("Tests/testFlush.ser").delete();
+        new File("Tests/testFlush.ser.log").delete();
+    }
+
+    @Test
+    public void testSnapshotsAreNotAffectedByLaterChanges() throws InterruptedException {
+        MovieDatabase database = new MovieDatabase("Tests/testSnapshots.ser");
+        database.addMovies(Arrays.asList(movie1, movie2));
+        List<Movie> before = database.getMovies();
+
+        database.removeMovie(movie1);
+        assertEquals(Arrays.asList(movie1, movie2), before);
+        assertEquals(Arrays.asList(movie2), database.getMovies());
+
+        List<Throwable> failures = new ArrayList<>();
+        Thread reader = new Thread(() -> {
+            try {
+                for (int i = 0; i < 2000; i++) {
+                    List<Movie> snapshot = database.getMovies();
+                    for (Movie movie : snapshot) {
+                        assertNotNull(movie);
+                    }
+                    assertTrue(snapshot.contains(movie2));
+                }
+            } catch (Throwable e) {
+                failures.add(e);
+            }
+        });
+        reader.start();
+        for (int i = 0; i < 200; i++) {
+            Movie movie = new Movie("Concurrent " + i, "Director 3", 2000, 100, null);
+            database.addMovie(movie);
+            if (i % 2 == 0) {
+                database.removeMovie(movie);
+            }
+        }
+        reader.join();
+
+        assertTrue(failures.toString(), failures.isEmpty());
+        assertEquals(101, database.getMovies().size());
+        database.close();
+        new File("Tests/testSnapshots.ser").delete();
+        new File("Tests/testSnapshots.ser.log").delete();
+    }
 }
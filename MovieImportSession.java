@@ -0,0 +1,141 @@
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The `MovieImportSession` class stages a bulk import into a `MovieDatabase`.
+ * Each staged movie is checked for duplicates in constant time against the hash index of the database
+ * and the hash set of the movies staged before it. Rejected items are
+ * recorded in an `ImportReport`, and the accepted movies are added and persisted together on {@link #commit()},
+ * which rejects the staged movies that have been added to the database by someone else in the meantime.
+ * A long import can commit what it has staged so far with {@link #commitStaged()} to keep the session small;
+ * the movies staged after that are checked against the committed ones through the database.
+ */
+public class MovieImportSession {
+
+    // Fields
+
+    private MovieDatabase database;
+    private Set<Movie> stagedMovies;
+    private List<Movie> staged;
+    private List<Long> stagedPositions;
+    private ImportReport report;
+    private int importedCount;
+    private long position;
+    private boolean committed;
+
+    // Constructors
+
+    /**
+     * Constructs a `MovieImportSession` for the specified database.
+     *
+     * @param database The database the movies will be imported into.
+     */
+    MovieImportSession(MovieDatabase database) {
+        this.database = database;
+        this.stagedMovies = new HashSet<>();
+        this.staged = new ArrayList<>();
+        this.stagedPositions = new ArrayList<>();
+        this.report = new ImportReport();
+    }
+
+    // Methods
+
+    /**
+     * Stages a movie for import.
+     *
+     * @param movie The movie to import.
+     * @return True if the movie was staged, false if it was rejected.
+     * @throws IllegalStateException If the session has already been committed.
+     */
+    public boolean add(Movie movie) {
+        return add(++position, movie);
+    }
+
+    /**
+     * Stages a movie for import, recording rejections against the given input position.
+     *
+     * @param position The 1-based position of the movie in the input, such as a line number.
+     * @param movie    The movie to import.
+     * @return True if the movie was staged, false if it was rejected.
+     * @throws IllegalStateException If the session has already been committed.
+     */
+    public boolean add(long position, Movie movie) {
+        if (committed) {
+            throw new IllegalStateException("Import session has already been committed.");
+        }
+        if (movie == null) {
+            report.reject(position, null, "Movie cannot be null.");
+            return false;
+        }
+        if (database.findMovie(movie) != null || !stagedMovies.add(movie)) {
+            report.reject(position, movie, "Movie already exists in the database.");
+            return false;
+        }
+        staged.add(movie);
+        stagedPositions.add(position);
+        return true;
+    }
+
+    /**
+     * Records an input item that could not be turned into a movie.
+     *
+     * @param position The 1-based position of the item in the input.
+     * @param reason   The reason the item was rejected.
+     */
+    public void reject(long position, String reason) {
+        report.reject(position, null, reason);
+    }
+
+    /**
+     * Gets the number of movies staged since the session was started or last committed.
+     *
+     * @return The number of staged movies.
+     */
+    public int getStagedCount() {
+        return staged.size();
+    }
+
+    /**
+     * Adds the movies staged so far to the database and persists them with a single write, and keeps the session
+     * open for more movies. The committed movies are no longer held by the session.
+     *
+     * @throws IllegalStateException If the session has already been committed.
+     */
+    public void commitStaged() {
+        commitStaged(false);
+    }
+
+    /**
+     * Adds every staged movie to the database and persists them with a single write.
+     *
+     * @return The report of the import.
+     * @throws IllegalStateException If the session has already been committed.
+     */
+    public ImportReport commit() {
+        commitStaged(true);
+        committed = true;
+        report.setImportedCount(importedCount);
+        return report;
+    }
+
+    /**
+     * Applies the staged movies to the database. The last batch lets the database fold the movies logged by the
+     * whole import into a snapshot.
+     */
+    private void commitStaged(boolean lastBatch) {
+        if (committed) {
+            throw new IllegalStateException("Import session has already been committed.");
+        }
+        BitSet duplicates = database.applyImport(staged, lastBatch);
+        for (int i = duplicates.nextSetBit(0); i >= 0; i = duplicates.nextSetBit(i + 1)) {
+            report.reject(stagedPositions.get(i), staged.get(i), "Movie already exists in the database.");
+        }
+        importedCount += staged.size() - duplicates.cardinality();
+        staged.clear();
+        stagedPositions.clear();
+        stagedMovies.clear();
+    }
+}
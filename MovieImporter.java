@@ -0,0 +1,334 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The `MovieImporter` class streams large delimited movie dumps, such as the IMDb title.basics TSV, into a
+ * `MovieDatabase`. The file is read line by line and split into chunks that are parsed and validated in parallel,
+ * using the year and running time rules of the `Movie` constructor. Parsed chunks are fed, in file order, into a
+ * single `MovieImportSession`, and at most a fixed number of chunks are in flight at any time. The session is
+ * committed through the bulk path every {@link #DEFAULT_BATCH_SIZE} staged movies, so apart from the catalog
+ * itself and the report, the import holds a bounded number of movies regardless of the size of the file, and
+ * reading waits while a batch is committed. Duplicates are checked against the database, which holds the earlier
+ * batches. If the file cannot be read to the end, the batches committed before the error stay in the database.
+ * Invalid lines are reported by line number in the `ImportReport`.
+ *
+ * The first line of the file is a header naming the columns. Recognized column names are
+ * `primaryTitle` or `title`, `director` or `directors`, `startYear` or `year`, `runtimeMinutes` or `runningTime`,
+ * `photoDirectory` and `titleType`. Files ending in `.csv` are comma separated with optional double quotes;
+ * any other file is tab separated. The value `\N` stands for a missing field.
+ */
+public class MovieImporter {
+
+    // Constants
+
+    static final int DEFAULT_CHUNK_SIZE = 10000;
+    static final int DEFAULT_BATCH_SIZE = 100000;
+    private static final String MISSING = "\\N";
+
+    // Fields
+
+    private MovieDatabase database;
+    private int threads;
+    private int chunkSize;
+    private int batchSize;
+    private String titleType;
+
+    // Constructors
+
+    /**
+     * Constructs a `MovieImporter` that parses on every available processor.
+     *
+     * @param database The database to import the movies into.
+     */
+    public MovieImporter(MovieDatabase database) {
+        this(database, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a `MovieImporter` that parses with the specified number of threads.
+     *
+     * @param database The database to import the movies into.
+     * @param threads  The number of parsing threads.
+     * @throws IllegalArgumentException If the number of threads is not positive.
+     */
+    public MovieImporter(MovieDatabase database, int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Number of threads must be positive");
+        }
+        this.database = database;
+        this.threads = threads;
+        this.chunkSize = DEFAULT_CHUNK_SIZE;
+        this.batchSize = DEFAULT_BATCH_SIZE;
+        this.titleType = "movie";
+    }
+
+    // Getters and Setters
+
+    /**
+     * Sets the title type to import when the file has a `titleType` column. Rows of other types are skipped.
+     *
+     * @param titleType The title type to import, or null to import every row.
+     */
+    public void setTitleType(String titleType) {
+        this.titleType = titleType;
+    }
+
+    /**
+     * Sets the number of lines parsed together by one task.
+     *
+     * @param chunkSize The number of lines per chunk.
+     * @throws IllegalArgumentException If the chunk size is not positive.
+     */
+    void setChunkSize(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Sets the number of staged movies after which the import session is committed.
+     *
+     * @param batchSize The number of movies per batch.
+     * @throws IllegalArgumentException If the batch size is not positive.
+     */
+    void setBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.batchSize = batchSize;
+    }
+
+    // Methods
+
+    /**
+     * Imports every valid movie of a delimited file into the database, committing it in batches.
+     *
+     * @param fileName The name of the file to import.
+     * @return The report of the import, listing rejected lines by line number.
+     * @throws IOException If the file cannot be read or has no header line.
+     */
+    public ImportReport importFile(String fileName) throws IOException {
+        char delimiter = fileName.toLowerCase().endsWith(".csv") ? ',' : '\t';
+        MovieImportSession session = database.beginImport();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Deque<Future<List<ParsedLine>>> inFlight = new ArrayDeque<>();
+        int maxInFlight = threads * 2;
+
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(fileName), StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            if (header == null) {
+                throw new IOException("Import file has no header line: " + fileName);
+            }
+            Map<String, Integer> columns = parseHeader(split(header, delimiter));
+
+            long lineNumber = 1;
+            List<String> lines = new ArrayList<>(chunkSize);
+            long firstLine = lineNumber + 1;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                lines.add(line);
+                if (lines.size() == chunkSize) {
+                    submit(executor, inFlight, lines, firstLine, columns, delimiter);
+                    lines = new ArrayList<>(chunkSize);
+                    firstLine = lineNumber + 1;
+                    if (inFlight.size() >= maxInFlight) {
+                        consume(inFlight.removeFirst(), session);
+                    }
+                }
+            }
+            if (!lines.isEmpty()) {
+                submit(executor, inFlight, lines, firstLine, columns, delimiter);
+            }
+            while (!inFlight.isEmpty()) {
+                consume(inFlight.removeFirst(), session);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return session.commit();
+    }
+
+    private void submit(ExecutorService executor, Deque<Future<List<ParsedLine>>> inFlight, List<String> lines,
+                        long firstLine, Map<String, Integer> columns, char delimiter) {
+        inFlight.addLast(executor.submit(() -> parseChunk(lines, firstLine, columns, delimiter)));
+    }
+
+    private void consume(Future<List<ParsedLine>> chunk, MovieImportSession session) throws IOException {
+        List<ParsedLine> parsed;
+        try {
+            parsed = chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import was interrupted");
+        } catch (ExecutionException e) {
+            throw new IOException("Error parsing the import file: " + e.getCause().getMessage());
+        }
+        for (ParsedLine line : parsed) {
+            if (line.movie != null) {
+                session.add(line.lineNumber, line.movie);
+            } else {
+                session.reject(line.lineNumber, line.error);
+            }
+        }
+        if (session.getStagedCount() >= batchSize) {
+            session.commitStaged();
+        }
+    }
+
+    /**
+     * Parses and validates one chunk of lines. Runs on a parsing thread.
+     *
+     * @param lines      The lines of the chunk.
+     * @param firstLine  The line number of the first line of the chunk.
+     * @param columns    The position of each recognized column.
+     * @param delimiter  The field delimiter.
+     * @return The movie or the error of every line that was not skipped, in file order.
+     */
+    private List<ParsedLine> parseChunk(List<String> lines, long firstLine, Map<String, Integer> columns,
+                                        char delimiter) {
+        List<ParsedLine> parsed = new ArrayList<>(lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            long lineNumber = firstLine + i;
+            String line = lines.get(i);
+            if (line.isBlank()) {
+                continue;
+            }
+            List<String> fields = split(line, delimiter);
+            String type = field(fields, columns, "titleType");
+            if (titleType != null && columns.containsKey("titleType") && !titleType.equals(type)) {
+                continue;
+            }
+            try {
+                String title = field(fields, columns, "title");
+                if (title == null) {
+                    throw new IllegalArgumentException("Title is missing");
+                }
+                int year = parseNumber(field(fields, columns, "year"), "Year");
+                int runningTime = parseNumber(field(fields, columns, "runningTime"), "Running time");
+                Movie movie = new Movie(title, field(fields, columns, "director"), year, runningTime,
+                        field(fields, columns, "photoDirectory"));
+                parsed.add(new ParsedLine(lineNumber, movie, null));
+            } catch (IllegalArgumentException e) {
+                parsed.add(new ParsedLine(lineNumber, null, e.getMessage()));
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * Maps the recognized column names of the header to their positions.
+     *
+     * @param header The fields of the header line.
+     * @return The position of each recognized column, keyed by its canonical name.
+     * @throws IOException If the header has no title, year or running time column.
+     */
+    private static Map<String, Integer> parseHeader(List<String> header) throws IOException {
+        Map<String, String> aliases = new HashMap<>();
+        aliases.put("primaryTitle", "title");
+        aliases.put("title", "title");
+        aliases.put("director", "director");
+        aliases.put("directors", "director");
+        aliases.put("startYear", "year");
+        aliases.put("year", "year");
+        aliases.put("runtimeMinutes", "runningTime");
+        aliases.put("runningTime", "runningTime");
+        aliases.put("photoDirectory", "photoDirectory");
+        aliases.put("titleType", "titleType");
+
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            String name = aliases.get(header.get(i).trim());
+            if (name != null) {
+                columns.putIfAbsent(name, i);
+            }
+        }
+        for (String required : new String[]{"title", "year", "runningTime"}) {
+            if (!columns.containsKey(required)) {
+                throw new IOException("Import file has no " + required + " column");
+            }
+        }
+        return columns;
+    }
+
+    private static String field(List<String> fields, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index);
+        return value.isEmpty() || value.equals(MISSING) ? null : value;
+    }
+
+    private static int parseNumber(String value, String name) {
+        if (value == null) {
+            throw new IllegalArgumentException(name + " is missing");
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " is not a number: " + value);
+        }
+    }
+
+    /**
+     * Splits a line into fields. Double quotes are only interpreted in comma separated files.
+     *
+     * @param line      The line to split.
+     * @param delimiter The field delimiter.
+     * @return The fields of the line.
+     */
+    static List<String> split(String line, char delimiter) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (delimiter == ',' && c == '"') {
+                if (quoted && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = !quoted;
+                }
+            } else if (c == delimiter && !quoted) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * The result of parsing a single line: either a movie or an error message.
+     */
+    private static class ParsedLine {
+
+        private final long lineNumber;
+        private final Movie movie;
+        private final String error;
+
+        ParsedLine(long lineNumber, Movie movie, String error) {
+            this.lineNumber = lineNumber;
+            this.movie = movie;
+            this.error = error;
+        }
+    }
+}
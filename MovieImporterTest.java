@@ -0,0 +1,114 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MovieImporterTest {
+
+    private static final String DATABASE_FILE = "Tests/testImporter.ser";
+    private static final String TSV_FILE = "Tests/testImport.tsv";
+    private static final String CSV_FILE = "Tests/testImport.csv";
+
+    private MovieDatabase movieDatabase;
+
+    @Before
+    public void setUp() {
+        movieDatabase = new MovieDatabase(DATABASE_FILE);
+    }
+
+    @After
+    public void tearDown() {
+        movieDatabase.close();
+        new File(DATABASE_FILE).delete();
+        new File(DATABASE_FILE + ".log").delete();
+        new File(TSV_FILE).delete();
+        new File(CSV_FILE).delete();
+    }
+
+    @Test
+    public void testImportTsv() throws IOException {
+        Files.write(Paths.get(TSV_FILE), List.of(
+                "tconst\ttitleType\tprimaryTitle\toriginalTitle\tisAdult\tstartYear\tendYear\truntimeMinutes\tgenres",
+                "tt0111161\tmovie\tThe Shawshank Redemption\tThe Shawshank Redemption\t0\t1994\t\\N\t142\tDrama",
+                "tt0068646\tmovie\tThe Godfather\tThe Godfather\t0\t1972\t\\N\t175\tCrime,Drama",
+                "tt0903747\ttvSeries\tBreaking Bad\tBreaking Bad\t0\t2008\t2013\t49\tCrime",
+                "tt0000001\tmovie\tToo Early\tToo Early\t0\t1800\t\\N\t1\tShort",
+                "tt0000002\tmovie\tNo Runtime\tNo Runtime\t0\t1999\t\\N\t\\N\tDrama",
+                "tt0068646\tmovie\tThe Godfather\tThe Godfather\t0\t1972\t\\N\t175\tCrime,Drama"),
+                StandardCharsets.UTF_8);
+
+        MovieImporter importer = new MovieImporter(movieDatabase, 2);
+        importer.setChunkSize(2);
+        ImportReport report = importer.importFile(TSV_FILE);
+
+        assertEquals(2, report.getImportedCount());
+        assertEquals(3, report.getRejections().size());
+        assertEquals(5, report.getRejections().get(0).getPosition());
+        assertEquals("Year should be between 1895 and 2023", report.getRejections().get(0).getReason());
+        assertEquals(6, report.getRejections().get(1).getPosition());
+        assertEquals(7, report.getRejections().get(2).getPosition());
+        assertEquals(142, movieDatabase.getMovie("The Shawshank Redemption").getRunningTime());
+        assertNull(movieDatabase.getMovie("Breaking Bad"));
+    }
+
+    @Test
+    public void testImportCsv() throws IOException {
+        Files.write(Paths.get(CSV_FILE), List.of(
+                "title,director,year,runningTime,photoDirectory",
+                "\"The Lord of the Rings: The Fellowship of the Ring\",Peter Jackson,2001,178,Database/LOTRFellowship.jpg",
+                "\"Crouching Tiger, Hidden Dragon\",Ang Lee,2000,120,",
+                "Inception,Christopher Nolan,2010,-148,"),
+                StandardCharsets.UTF_8);
+
+        ImportReport report = new MovieImporter(movieDatabase).importFile(CSV_FILE);
+
+        assertEquals(2, report.getImportedCount());
+        assertEquals(1, report.getRejections().size());
+        assertEquals(4, report.getRejections().get(0).getPosition());
+        assertEquals("Ang Lee", movieDatabase.getMovie("Crouching Tiger, Hidden Dragon").getDirector());
+        assertNull(movieDatabase.getMovie("Crouching Tiger, Hidden Dragon").getPhotoDirectory());
+    }
+
+    @Test
+    public void testImportCommitsInBatches() throws IOException {
+        Files.write(Paths.get(CSV_FILE), List.of(
+                "title,director,year,runningTime",
+                "Alien,Ridley Scott,1979,117",
+                "Heat,Michael Mann,1995,170",
+                "Alien,Ridley Scott,1979,117",
+                "Fargo,Joel Coen,1996,98",
+                "Heat,Michael Mann,1995,170"),
+                StandardCharsets.UTF_8);
+
+        MovieImporter importer = new MovieImporter(movieDatabase, 1);
+        importer.setChunkSize(1);
+        importer.setBatchSize(2);
+        ImportReport report = importer.importFile(CSV_FILE);
+
+        assertEquals(3, report.getImportedCount());
+        assertEquals(2, report.getRejections().size());
+        assertEquals(4, report.getRejections().get(0).getPosition());
+        assertEquals(6, report.getRejections().get(1).getPosition());
+        assertEquals(3, movieDatabase.getMovies().size());
+    }
+
+    @Test(expected = IOException.class)
+    public void testImportFileWithoutRequiredColumns() throws IOException {
+        Files.write(Paths.get(TSV_FILE), List.of("title\tdirector", "Inception\tChristopher Nolan"),
+                StandardCharsets.UTF_8);
+        new MovieImporter(movieDatabase).importFile(TSV_FILE);
+    }
+
+    @Test
+    public void testSplitQuotedCsvFields() {
+        assertEquals(List.of("a, b", "say \"hi\"", ""), MovieImporter.split("\"a, b\",\"say \"\"hi\"\"\",", ','));
+        assertEquals(List.of("\"a", "b\""), MovieImporter.split("\"a\tb\"", '\t'));
+    }
+}
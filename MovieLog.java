@@ -0,0 +1,385 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The `MovieLog` class is an append-only log of the add and remove operations applied to a `MovieDatabase`.
+ * Each mutation is written as a single small record at the end of the log file, so its cost does not depend
+ * on the size of the catalog. The log is replayed on top of the last snapshot when the database is loaded,
+ * and cleared whenever a new snapshot has been written.
+ *
+ * The log starts with a magic number and a version. Additions record the ID and the fields of the movie,
+ * removals only its ID. Logs written by earlier versions have no header and identify movies by their
+ * fields; they are still replayed, and the movies they add are left without an ID.
+ *
+ * A record that cannot be read in full or does not describe a valid movie is taken as the torn tail of an
+ * interrupted write: replaying stops before it and the log is truncated to its last complete record, so records
+ * appended afterwards are not written after the garbage.
+ */
+public class MovieLog {
+
+    // Constants
+
+    static final byte ADD = 1;
+    static final byte REMOVE = 2;
+    static final int MAGIC = 0x53534D4C;
+    static final int VERSION = 1;
+
+    // Fields
+
+    private String logFileName;
+    private FileChannel channel;
+    private int recordCount;
+    private int highestId;
+    private boolean legacyFormat;
+
+    // Constructors
+
+    /**
+     * Constructs a `MovieLog` backed by the specified file.
+     *
+     * @param logFileName The name of the file the records are appended to.
+     */
+    public MovieLog(String logFileName) {
+        this.logFileName = logFileName;
+    }
+
+    // Methods
+
+    /**
+     * Encodes a single record. Records are encoded by the caller and appended to the log in batches.
+     *
+     * @param out       The stream to write the record to.
+     * @param operation The operation to record, either {@link #ADD} or {@link #REMOVE}.
+     * @param movie     The movie the operation was applied to.
+     * @throws IOException If the record cannot be written to the stream.
+     */
+    static void writeRecord(DataOutputStream out, byte operation, Movie movie) throws IOException {
+        out.writeByte(operation);
+        out.writeInt(movie.getId());
+        if (operation == REMOVE) {
+            return;
+        }
+        writeNullableString(out, movie.getTitle());
+        writeNullableString(out, movie.getDirector());
+        out.writeInt(movie.getYear());
+        out.writeInt(movie.getRunningTime());
+        writeNullableString(out, movie.getPhotoDirectory());
+    }
+
+    /**
+     * Appends a batch of encoded records to the end of the log with a single write, and forces it to disk.
+     * The header is written together with the first batch of a new log. If the write fails, the log is cut back to
+     * its previous length, so the batch can be appended again.
+     *
+     * @param records The encoded records.
+     * @param count   The number of records in the batch.
+     * @throws IOException If the records cannot be written.
+     */
+    public void append(byte[] records, int count) throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(Paths.get(logFileName), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        long length = channel.size();
+        ByteBuffer buffer;
+        if (length == 0) {
+            buffer = ByteBuffer.allocate(2 * Integer.BYTES + records.length);
+            buffer.putInt(MAGIC).putInt(VERSION).put(records).flip();
+        } else {
+            buffer = ByteBuffer.wrap(records);
+        }
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            close();
+            truncate(length);
+            throw e;
+        }
+        recordCount += count;
+    }
+
+    /**
+     * Replays every record of the log on top of the given list of movies.
+     * Records are applied idempotently, so replaying a log over a snapshot that already contains
+     * some of its operations yields the same result. A torn record at the end of the log, left behind by an
+     * interrupted write, is cut off together with everything after it.
+     *
+     * @param movies The list of movies to apply the records to.
+     * @return The number of records read from the log.
+     */
+    public int replay(List<Movie> movies) {
+        recordCount = 0;
+        highestId = 0;
+        legacyFormat = false;
+        File file = new File(logFileName);
+        if (!file.exists()) {
+            return 0;
+        }
+        long completeLength = 0;
+        try (CountingInputStream counter = new CountingInputStream(new FileInputStream(file));
+             DataInputStream in = new DataInputStream(counter)) {
+            in.mark(2 * Integer.BYTES);
+            try {
+                legacyFormat = in.readInt() != MAGIC;
+            } catch (EOFException e) {
+                truncate(0);
+                return 0;
+            }
+            if (legacyFormat) {
+                in.reset();
+                completeLength = replayLegacy(in, counter, movies);
+                truncate(completeLength);
+                return recordCount;
+            }
+            try {
+                if (in.readInt() != VERSION) {
+                    throw new IOException("Unsupported database log version: " + logFileName);
+                }
+            } catch (EOFException e) {
+                truncate(0);
+                return 0;
+            }
+            completeLength = counter.getCount();
+            Map<Integer, Movie> moviesById = new HashMap<>();
+            for (Movie movie : movies) {
+                moviesById.put(movie.getId(), movie);
+            }
+            while (true) {
+                byte operation;
+                int id;
+                Movie movie = null;
+                try {
+                    operation = in.readByte();
+                    id = in.readInt();
+                    if (operation == ADD) {
+                        movie = readMovie(in);
+                        movie.setId(id);
+                    } else if (operation != REMOVE) {
+                        break;
+                    }
+                } catch (EOFException | UTFDataFormatException | RuntimeException e) {
+                    break;
+                }
+                completeLength = counter.getCount();
+                if (operation == ADD && !moviesById.containsKey(id)) {
+                    movies.add(movie);
+                    moviesById.put(id, movie);
+                } else if (operation == REMOVE && moviesById.containsKey(id)) {
+                    movies.remove(moviesById.remove(id));
+                }
+                highestId = Math.max(highestId, id);
+                recordCount++;
+            }
+        } catch (IOException e) {
+            System.err.println("Error replaying the database log: " + e.getMessage());
+            return recordCount;
+        }
+        truncate(completeLength);
+        return recordCount;
+    }
+
+    /**
+     * Cuts the log file off after its last complete record, so the next append does not follow a torn one.
+     *
+     * @param length The length of the log up to the end of its last complete record.
+     */
+    private void truncate(long length) {
+        close();
+        if (new File(logFileName).length() <= length) {
+            return;
+        }
+        try (FileChannel file = FileChannel.open(Paths.get(logFileName), StandardOpenOption.WRITE)) {
+            file.truncate(length);
+            file.force(false);
+        } catch (IOException e) {
+            System.err.println("Error truncating the database log: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Replays the records of a log written by an earlier version, which identifies movies by their fields.
+     *
+     * @param in      The stream positioned at the first record.
+     * @param counter The stream counting the bytes read by `in`.
+     * @param movies  The list of movies to apply the records to.
+     * @return The length of the log up to the end of its last complete record.
+     * @throws IOException If the log cannot be read.
+     */
+    private long replayLegacy(DataInputStream in, CountingInputStream counter, List<Movie> movies)
+            throws IOException {
+        long completeLength = 0;
+        while (true) {
+            byte operation;
+            Movie movie;
+            try {
+                operation = in.readByte();
+                movie = readMovie(in);
+            } catch (EOFException | UTFDataFormatException | RuntimeException e) {
+                break;
+            }
+            completeLength = counter.getCount();
+            if (operation == ADD && !movies.contains(movie)) {
+                movies.add(movie);
+            } else if (operation == REMOVE) {
+                movies.remove(movie);
+            }
+            recordCount++;
+        }
+        return completeLength;
+    }
+
+    /**
+     * Removes every record from the log. Called once the records have been folded into a snapshot.
+     */
+    public void clear() {
+        close();
+        File file = new File(logFileName);
+        if (file.exists() && !file.delete()) {
+            System.err.println("Error clearing the database log: " + logFileName);
+        }
+        recordCount = 0;
+        highestId = 0;
+        legacyFormat = false;
+    }
+
+    /**
+     * Checks whether the log file holds any records.
+     *
+     * @return True if the log file is missing or empty, false otherwise.
+     */
+    public boolean isEmpty() {
+        return new File(logFileName).length() == 0;
+    }
+
+    /**
+     * Gets the number of records currently in the log.
+     *
+     * @return The number of records appended or replayed since the log was last cleared.
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Gets the highest movie ID found in the records of the last replayed log.
+     * IDs of removed movies are included, so that the database never assigns them again.
+     *
+     * @return The highest replayed movie ID, or 0 if there was none.
+     */
+    public int getHighestId() {
+        return highestId;
+    }
+
+    /**
+     * Checks whether the last replayed log was written by an earlier version, without movie IDs.
+     *
+     * @return True if the log has to be folded into a snapshot to give its movies IDs, false otherwise.
+     */
+    public boolean isLegacyFormat() {
+        return legacyFormat;
+    }
+
+    /**
+     * Closes the log file. The next append reopens it.
+     */
+    public void close() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Error closing the database log: " + e.getMessage());
+            }
+            channel = null;
+        }
+    }
+
+    /**
+     * Reads the movie fields of a single record.
+     *
+     * @param in The stream positioned after the operation byte of the record.
+     * @return The movie described by the record.
+     * @throws IOException If the record cannot be read.
+     */
+    private static Movie readMovie(DataInputStream in) throws IOException {
+        String title = readNullableString(in);
+        String director = readNullableString(in);
+        int year = in.readInt();
+        int runningTime = in.readInt();
+        String photoDirectory = readNullableString(in);
+        return new Movie(title, director, year, runningTime, photoDirectory);
+    }
+
+    private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * Buffers a file and counts the bytes consumed from it, so replaying knows where each record ends.
+     */
+    private static class CountingInputStream extends BufferedInputStream {
+
+        private long count;
+        private long markedCount;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public synchronized int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public synchronized long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        @Override
+        public synchronized void mark(int readLimit) {
+            super.mark(readLimit);
+            markedCount = count;
+        }
+
+        @Override
+        public synchronized void reset() throws IOException {
+            super.reset();
+            count = markedCount;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+}
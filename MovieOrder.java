@@ -0,0 +1,53 @@
+import java.util.Comparator;
+
+/**
+ * The `MovieOrder` enum lists the orders in which a `MovieDatabase` keeps sorted indexes of its movies.
+ * Each order breaks ties by movie ID, so no two movies of a database compare as equal and each one has
+ * exactly one place in the index. Missing directors and titles sort first.
+ */
+public enum MovieOrder {
+
+    /**
+     * Alphabetical order of titles.
+     */
+    TITLE(Comparator.comparing(Movie::getTitle, Comparator.nullsFirst(Comparator.naturalOrder()))),
+
+    /**
+     * Alphabetical order of directors. Directors interned by a `MovieDatabase` are the same instance for every
+     * movie of a director, so movies of the same director compare without reading the names. The sorted director
+     * index of a `MovieDatabase` compares directors on their ranks in its `StringDictionary` instead.
+     */
+    DIRECTOR(Comparator.comparing(Movie::getDirector,
+            Comparator.nullsFirst((a, b) -> a == b ? 0 : a.compareTo(b)))),
+
+    /**
+     * Ascending order of release years.
+     */
+    YEAR(Comparator.comparingInt(Movie::getYear)),
+
+    /**
+     * Ascending order of running times.
+     */
+    RUNNING_TIME(Comparator.comparingInt(Movie::getRunningTime));
+
+    // Fields
+
+    private final Comparator<Movie> comparator;
+
+    // Constructors
+
+    MovieOrder(Comparator<Movie> key) {
+        this.comparator = key.thenComparingInt(Movie::getId);
+    }
+
+    // Methods
+
+    /**
+     * Gets the comparator of the order, which breaks ties by movie ID.
+     *
+     * @return The comparator sorting movies in this order.
+     */
+    public Comparator<Movie> comparator() {
+        return comparator;
+    }
+}
@@ -0,0 +1,306 @@
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * The `MovieQuery` class is a fluent query over the movies of a `MovieDatabase`, created with
+ * {@link MovieDatabase#query()}:
+ * <pre>
+ * List&lt;Movie&gt; page = database.query()
+ *         .whereYearBetween(1990, 1999)
+ *         .whereRunningTimeBetween(0, 149)
+ *         .orderBy(MovieOrder.TITLE)
+ *         .page(2, 20);
+ * </pre>
+ * Nothing is evaluated until the results are requested. The query then reads the cheapest source for its
+ * conditions and order, and applies the remaining conditions to the movies read from it:
+ * <ul>
+ * <li>Ordered by year or running time, it walks the sorted column of that field, restricted to its range. Without
+ * other conditions, a page is copied straight from its position in the column; otherwise the column is copied a
+ * batch at a time until the page is full.</li>
+ * <li>Ordered by title or director, it walks the sorted index of that order and stops as soon as the page is
+ * full, unless the ranges are selective enough that fetching their few matches and selecting the first ones
+ * with a bounded heap is cheaper.</li>
+ * <li>Without an order, it reads the movies of the ranges in order of ID, or the catalog as is.</li>
+ * </ul>
+ * Results are streamed, so only the movies up to the end of the requested page are read. The IDs in a range are
+ * copied under the read lock of the database before they are read, and movies removed in the meantime are
+ * skipped, so a query can be evaluated while the database is being modified; its results may then reflect part
+ * of the changes made during the evaluation.
+ */
+public class MovieQuery {
+
+    // Constants
+
+    private static final int BATCH_SIZE = 1024;
+
+    // Fields
+
+    private MovieDatabase database;
+    private int fromYear = Integer.MIN_VALUE;
+    private int toYear = Integer.MAX_VALUE;
+    private int fromRunningTime = Integer.MIN_VALUE;
+    private int toRunningTime = Integer.MAX_VALUE;
+    private Predicate<Movie> condition;
+    private MovieOrder order;
+    private long offset;
+    private long limit = Long.MAX_VALUE;
+
+    // Constructors
+
+    /**
+     * Constructs a `MovieQuery` matching every movie of a database.
+     *
+     * @param database The database to query.
+     */
+    MovieQuery(MovieDatabase database) {
+        this.database = database;
+    }
+
+    // Methods
+
+    /**
+     * Keeps the movies released in a range of years. Several ranges on the year are intersected.
+     *
+     * @param from The earliest release year, inclusive.
+     * @param to   The latest release year, inclusive.
+     * @return This query.
+     */
+    public MovieQuery whereYearBetween(int from, int to) {
+        fromYear = Math.max(fromYear, from);
+        toYear = Math.min(toYear, to);
+        return this;
+    }
+
+    /**
+     * Keeps the movies whose running time lies in a range. Several ranges on the running time are intersected.
+     *
+     * @param from The shortest running time in minutes, inclusive.
+     * @param to   The longest running time in minutes, inclusive.
+     * @return This query.
+     */
+    public MovieQuery whereRunningTimeBetween(int from, int to) {
+        fromRunningTime = Math.max(fromRunningTime, from);
+        toRunningTime = Math.min(toRunningTime, to);
+        return this;
+    }
+
+    /**
+     * Keeps the movies matching a condition, such as `movie -> "Christopher Nolan".equals(movie.getDirector())`.
+     * Conditions are not backed by an index; they are tested on the movies read for the other conditions.
+     *
+     * @param newCondition The condition movies must match.
+     * @return This query.
+     */
+    public MovieQuery where(Predicate<Movie> newCondition) {
+        condition = condition == null ? newCondition : condition.and(newCondition);
+        return this;
+    }
+
+    /**
+     * Sorts the results. Without an order, results come in an unspecified but stable order.
+     *
+     * @param newOrder The order of the results.
+     * @return This query.
+     */
+    public MovieQuery orderBy(MovieOrder newOrder) {
+        order = newOrder;
+        return this;
+    }
+
+    /**
+     * Skips the first results.
+     *
+     * @param newOffset The number of results to skip.
+     * @return This query.
+     * @throws IllegalArgumentException If the offset is negative.
+     */
+    public MovieQuery offset(long newOffset) {
+        if (newOffset < 0) {
+            throw new IllegalArgumentException("Offset cannot be a negative number");
+        }
+        offset = newOffset;
+        return this;
+    }
+
+    /**
+     * Caps the number of results.
+     *
+     * @param newLimit The maximum number of results.
+     * @return This query.
+     * @throws IllegalArgumentException If the limit is negative.
+     */
+    public MovieQuery limit(long newLimit) {
+        if (newLimit < 0) {
+            throw new IllegalArgumentException("Limit cannot be a negative number");
+        }
+        limit = newLimit;
+        return this;
+    }
+
+    /**
+     * Evaluates the query lazily. Movies are read from the chosen source as the stream is consumed.
+     *
+     * @return The results of the query.
+     */
+    public Stream<Movie> stream() {
+        return evaluate(offset, limit);
+    }
+
+    /**
+     * Evaluates the query.
+     *
+     * @return The results of the query.
+     */
+    public List<Movie> list() {
+        return stream().collect(Collectors.toList());
+    }
+
+    /**
+     * Evaluates one page of the results of the query, reading only the movies up to the end of the page.
+     * Pages are counted from the offset of the query and end at its limit.
+     *
+     * @param pageNumber The number of the page, starting at 0.
+     * @param pageSize   The number of results per page.
+     * @return The results of the page, which is empty past the last page.
+     * @throws IllegalArgumentException If the page number is negative or the page size is not positive.
+     */
+    public List<Movie> page(int pageNumber, int pageSize) {
+        if (pageNumber < 0 || pageSize <= 0) {
+            throw new IllegalArgumentException("Invalid page " + pageNumber + " of size " + pageSize);
+        }
+        long start = (long) pageNumber * pageSize;
+        long size = Math.max(0, Math.min(pageSize, limit - start));
+        return evaluate(offset + start, size).collect(Collectors.toList());
+    }
+
+    /**
+     * Picks the source of the query and reads the requested slice of its results from it.
+     */
+    private Stream<Movie> evaluate(long skip, long take) {
+        if (take == 0 || fromYear > toYear || fromRunningTime > toRunningTime) {
+            return Stream.empty();
+        }
+        boolean hasRanges = hasYearRange() || hasRunningTimeRange();
+        Stream<Movie> source;
+        if (order == MovieOrder.YEAR || order == MovieOrder.RUNNING_TIME) {
+            return walkColumn(skip, take);
+        } else if (order != null) {
+            long wanted = take == Long.MAX_VALUE ? Long.MAX_VALUE : skip + take;
+            if (hasRanges && prefersRangeMatches(wanted)) {
+                return selectFirst(rangeMatches(), wanted).skip(skip).limit(take);
+            }
+            source = database.getMoviesSortedBy(order).stream().filter(this::matchesRanges);
+        } else if (hasRanges) {
+            source = rangeMatches();
+        } else {
+            source = database.getMovies().stream();
+        }
+        if (condition != null) {
+            source = source.filter(condition);
+        }
+        return source.skip(skip).limit(take);
+    }
+
+    /**
+     * Decides whether fetching the movies in the ranges and selecting the first ones is cheaper than walking the
+     * sorted index of the order until enough of the movies read are in the ranges.
+     */
+    private boolean prefersRangeMatches(long wanted) {
+        long total = database.countInYears(Integer.MIN_VALUE, Integer.MAX_VALUE);
+        long estimate = Math.min(database.countInYears(fromYear, toYear),
+                database.countInRunningTimes(fromRunningTime, toRunningTime));
+        if (estimate == 0 || wanted == Long.MAX_VALUE) {
+            return true;
+        }
+        double walkCost = (double) wanted * total / estimate;
+        return estimate <= walkCost;
+    }
+
+    /**
+     * Reads the movies in the ranges, in order of ID, filtered by the condition.
+     */
+    private Stream<Movie> rangeMatches() {
+        BitSet ids = database.findIdsInRanges(fromYear, toYear, fromRunningTime, toRunningTime);
+        Stream<Movie> matches = ids.stream().mapToObj(database::getMovieById).filter(Objects::nonNull);
+        return condition == null ? matches : matches.filter(condition);
+    }
+
+    /**
+     * Selects the first movies of a stream in the order of the query, keeping at most `wanted` of them in a
+     * bounded heap, or sorting all of them when every result is wanted.
+     */
+    private Stream<Movie> selectFirst(Stream<Movie> candidates, long wanted) {
+        Comparator<Movie> comparator = order.comparator();
+        if (wanted >= Integer.MAX_VALUE) {
+            return candidates.sorted(comparator);
+        }
+        TopK first = new TopK(comparator, (int) wanted);
+        candidates.forEach(first::add);
+        return first.toList().stream();
+    }
+
+    /**
+     * Reads the requested slice of the movies of the sorted column of the order. When no other range or condition
+     * applies, the slice starts at its own position in the column, so only the IDs of the slice are copied.
+     * Otherwise the offset counts matches that are only known once read, so the column is copied a batch at a
+     * time as the stream is consumed, up to the end of the slice.
+     */
+    private Stream<Movie> walkColumn(long skip, long take) {
+        boolean byYear = order == MovieOrder.YEAR;
+        if (condition == null && !(byYear ? hasRunningTimeRange() : hasYearRange())) {
+            return walk(columnIds(skip, (int) Math.min(take, Integer.MAX_VALUE)));
+        }
+        Stream<Movie> matches = LongStream.iterate(0, start -> start + BATCH_SIZE)
+                .mapToObj(start -> columnIds(start, BATCH_SIZE))
+                .takeWhile(ids -> ids.length > 0)
+                .flatMap(this::walk)
+                .filter(byYear ? this::matchesRunningTime : this::matchesYear);
+        if (condition != null) {
+            matches = matches.filter(condition);
+        }
+        return matches.skip(skip).limit(take);
+    }
+
+    /**
+     * Copies a slice of the IDs in the range of the sorted column of the order.
+     */
+    private int[] columnIds(long skip, int count) {
+        return order == MovieOrder.YEAR
+                ? database.findIdsByYear(fromYear, toYear, skip, count)
+                : database.findIdsByRunningTime(fromRunningTime, toRunningTime, skip, count);
+    }
+
+    /**
+     * Reads the movies of a range of IDs copied from a sorted column, skipping the ones removed since.
+     */
+    private Stream<Movie> walk(int[] ids) {
+        return Arrays.stream(ids).mapToObj(database::getMovieById).filter(Objects::nonNull);
+    }
+
+    private boolean hasYearRange() {
+        return fromYear != Integer.MIN_VALUE || toYear != Integer.MAX_VALUE;
+    }
+
+    private boolean hasRunningTimeRange() {
+        return fromRunningTime != Integer.MIN_VALUE || toRunningTime != Integer.MAX_VALUE;
+    }
+
+    private boolean matchesYear(Movie movie) {
+        return movie.getYear() >= fromYear && movie.getYear() <= toYear;
+    }
+
+    private boolean matchesRunningTime(Movie movie) {
+        return movie.getRunningTime() >= fromRunningTime && movie.getRunningTime() <= toRunningTime;
+    }
+
+    private boolean matchesRanges(Movie movie) {
+        return matchesYear(movie) && matchesRunningTime(movie);
+    }
+}
@@ -0,0 +1,150 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class MovieQueryTest {
+
+    private MovieDatabase database;
+    private List<Movie> movies;
+
+    @Before
+    public void setUp() {
+        database = new MovieDatabase("Tests/testQuery.ser");
+        movies = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            movies.add(new Movie("Movie " + (char) ('A' + i % 26) + i, "Director " + i % 7,
+                    1950 + i % 70, 60 + i % 100, null));
+        }
+        database.addMovies(movies);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+        new File("Tests/testQuery.ser").delete();
+        new File("Tests/testQuery.ser.log").delete();
+    }
+
+    @Test
+    public void testRangesAndConditionsWithEveryOrder() {
+        for (MovieOrder order : MovieOrder.values()) {
+            List<Movie> expected = movies.stream()
+                    .filter(movie -> movie.getYear() >= 1990 && movie.getYear() <= 1999)
+                    .filter(movie -> movie.getRunningTime() < 150)
+                    .filter(movie -> !"Director 3".equals(movie.getDirector()))
+                    .sorted(order.comparator())
+                    .collect(Collectors.toList());
+
+            List<Movie> actual = database.query()
+                    .whereYearBetween(1990, 1999)
+                    .whereRunningTimeBetween(0, 149)
+                    .where(movie -> !"Director 3".equals(movie.getDirector()))
+                    .orderBy(order)
+                    .list();
+
+            assertEquals(order.name(), expected, actual);
+        }
+    }
+
+    @Test
+    public void testOffsetLimitAndPages() {
+        List<Movie> sorted = movies.stream().sorted(MovieOrder.TITLE.comparator()).collect(Collectors.toList());
+        MovieQuery query = database.query().orderBy(MovieOrder.TITLE).offset(10).limit(25);
+
+        assertEquals(sorted.subList(10, 35), query.list());
+        assertEquals(sorted.subList(20, 30), query.page(1, 10));
+        assertEquals(sorted.subList(30, 35), query.page(2, 10));
+        assertTrue(query.page(3, 10).isEmpty());
+    }
+
+    @Test
+    public void testPagesOfSortedColumns() {
+        for (MovieOrder order : Arrays.asList(MovieOrder.YEAR, MovieOrder.RUNNING_TIME)) {
+            List<Movie> sorted = movies.stream().sorted(order.comparator()).collect(Collectors.toList());
+            List<Movie> filtered = sorted.stream()
+                    .filter(movie -> movie.getYear() >= 1960 && movie.getRunningTime() >= 80)
+                    .collect(Collectors.toList());
+            MovieQuery query = database.query().orderBy(order).offset(150);
+            MovieQuery filteredQuery = database.query()
+                    .whereYearBetween(1960, Integer.MAX_VALUE)
+                    .whereRunningTimeBetween(80, Integer.MAX_VALUE)
+                    .orderBy(order);
+
+            assertEquals(order.name(), sorted.subList(170, 180), query.page(2, 10));
+            assertEquals(order.name(), sorted.subList(190, 200), query.page(4, 10));
+            assertTrue(order.name(), query.page(5, 10).isEmpty());
+            assertEquals(order.name(), filtered.subList(100, 120), filteredQuery.page(5, 20));
+        }
+    }
+
+    @Test
+    public void testSelectiveRangeWithLimit() {
+        List<Movie> expected = movies.stream()
+                .filter(movie -> movie.getYear() == 2000)
+                .sorted(MovieOrder.DIRECTOR.comparator())
+                .limit(2)
+                .collect(Collectors.toList());
+
+        List<Movie> actual = database.query().whereYearBetween(2000, 2000).orderBy(MovieOrder.DIRECTOR).page(0, 2);
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testBroadRangeWithLimit() {
+        List<Movie> expected = movies.stream()
+                .filter(movie -> movie.getYear() >= 1951)
+                .sorted(MovieOrder.TITLE.comparator())
+                .limit(5)
+                .collect(Collectors.toList());
+
+        List<Movie> actual = database.query().whereYearBetween(1951, 2019).orderBy(MovieOrder.TITLE).limit(5).list();
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testUnorderedQueries() {
+        assertEquals(200, database.query().stream().count());
+        assertEquals(movies.stream().filter(movie -> movie.getRunningTime() >= 150).count(),
+                database.query().whereRunningTimeBetween(150, Integer.MAX_VALUE).stream().count());
+        assertTrue(database.query().whereYearBetween(2000, 1990).list().isEmpty());
+    }
+
+    @Test
+    public void testQueryFollowsMutations() {
+        Movie added = new Movie("Added", "Director", 1949, 90, null);
+        database.addMovie(added);
+        database.removeMovie(movies.get(0));
+
+        assertEquals(3, database.query().whereYearBetween(1949, 1950).list().size());
+        assertEquals(added, database.query().orderBy(MovieOrder.YEAR).limit(1).list().get(0));
+    }
+
+    @Test
+    public void testMoviesRemovedDuringEvaluationAreSkipped() {
+        Stream<Movie> byYear = database.query().whereYearBetween(1950, 1951).orderBy(MovieOrder.YEAR).stream();
+        Stream<Movie> inRanges = database.query().whereYearBetween(1950, 1951).stream();
+        database.removeMovie(movies.get(0));
+        database.addMovie(new Movie("Added", "Director", 1950, 90, null));
+
+        List<Movie> expected = Arrays.asList(movies.get(70), movies.get(140), movies.get(1), movies.get(71),
+                movies.get(141));
+        assertEquals(expected, byYear.collect(Collectors.toList()));
+        assertEquals(5, inRanges.count());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeLimit() {
+        database.query().limit(-1);
+    }
+}
@@ -0,0 +1,463 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The `MovieServer` class serves a `MovieDatabase` and the accounts and watchlists of a `UserRepository` over
+ * HTTP with JSON responses, so that the catalog can be used by many people at once without the `UserGUI`.
+ * It runs on the `HttpServer` of the JDK. Each request is handled on its own virtual thread when the runtime
+ * provides them, so any number of requests can wait on locks or disk at once on a few platform threads; on
+ * older runtimes requests are handled by a fixed pool of platform threads. The server only listens on the
+ * loopback interface unless another address is given explicitly, as passwords and tokens are sent in the clear.
+ *
+ * Endpoints (request bodies are form-encoded, like query strings):
+ * <pre>
+ * GET    /movies?order=title&amp;offset=0&amp;limit=50   page of the catalog, optionally sorted by a MovieOrder
+ * GET    /movies/search?q=nolan&amp;limit=20          ranked word search
+ * GET    /movies/{id}                                 one movie
+ * POST   /users        username, password             register
+ * POST   /login        username, password             open a session, returns its token
+ * POST   /logout                                      close the session of the request
+ * GET    /watchlist                                   watchlist of the authenticated user
+ * POST   /watchlist/{id}                              add a movie to it
+ * DELETE /watchlist/{id}                              remove a movie from it
+ * </pre>
+ * Watchlist and logout requests authenticate with the token returned by the login, sent as
+ * `Authorization: Bearer <token>`; tokens are checked by a `SessionManager` without reading the user store.
+ * Errors are returned as `{"error": "..."}` with status 400 for invalid input, 401 for missing or expired
+ * sessions, 404 for unknown resources, 409 for a username that is taken and 413 for a request body larger than
+ * {@link #MAX_BODY_SIZE} bytes, which is rejected before it is read into memory.
+ */
+public class MovieServer {
+
+    // Constants
+
+    static final int DEFAULT_PORT = 8080;
+    static final int DEFAULT_PAGE_SIZE = 50;
+    static final int MAX_PAGE_SIZE = 1000;
+    static final int MAX_BODY_SIZE = 8192;
+    private static final int BACKLOG = 4096;
+    private static final String JSON = "application/json; charset=utf-8";
+
+    // Fields
+
+    private MovieDatabase database;
+    private UserRepository users;
+    private SessionManager sessions;
+    private WatchlistManager watchlists;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    // Constructors
+
+    /**
+     * Constructs a `MovieServer`. The server does not accept connections until it is started.
+     *
+     * @param database        The movie database to serve.
+     * @param users           The repository of the user accounts.
+     * @param watchlistFolder The folder holding the watchlist files, such as "UserWatchlists/".
+     */
+    public MovieServer(MovieDatabase database, UserRepository users, String watchlistFolder) {
+        this.database = database;
+        this.users = users;
+        this.sessions = new SessionManager(users);
+        this.watchlists = new WatchlistManager(database, watchlistFolder);
+    }
+
+    // Methods
+
+    /**
+     * Starts the server in headless mode on the movie and user databases of the application.
+     *
+     * @param args The port to listen on, {@link #DEFAULT_PORT} if none is given, followed by the host name or
+     *             address of the interface to listen on, the loopback interface if none is given.
+     * @throws IOException If a database cannot be opened or the port cannot be bound.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        InetAddress address = args.length > 1 ? InetAddress.getByName(args[1]) : InetAddress.getLoopbackAddress();
+        MovieDatabase database = new MovieDatabase("Database/movies.ser");
+        database.loadDatabase();
+        MovieServer server = new MovieServer(database, UserRepository.getDefault(), "UserWatchlists/");
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            database.close();
+        }));
+        server.start(address, port);
+        System.out.println("Movie server listening on " + address.getHostAddress() + " port " + server.getPort());
+    }
+
+    /**
+     * Starts accepting connections on the loopback interface only, so the server cannot be reached from other
+     * machines.
+     *
+     * @param port The port to listen on, or 0 for any free port.
+     * @throws IOException If the port cannot be bound.
+     */
+    public void start(int port) throws IOException {
+        start(InetAddress.getLoopbackAddress(), port);
+    }
+
+    /**
+     * Starts accepting connections on the interface of an address. Listening on an address other than the loopback
+     * address exposes the accounts of the server to the network, so it must be configured explicitly.
+     *
+     * @param address The address of the interface to listen on, such as the wildcard address for all interfaces.
+     * @param port    The port to listen on, or 0 for any free port.
+     * @throws IOException If the port cannot be bound.
+     */
+    public void start(InetAddress address, int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(address, port), BACKLOG);
+        executor = newExecutor();
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    /**
+     * Gets the port the server listens on.
+     *
+     * @return The bound port.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Gets the address of the interface the server listens on.
+     *
+     * @return The address of the interface.
+     */
+    public InetAddress getAddress() {
+        return server.getAddress().getAddress();
+    }
+
+    /**
+     * Stops accepting connections, lets running requests finish, writes the pending watchlist changes and
+     * releases the request threads.
+     */
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdown();
+            server = null;
+            try {
+                watchlists.close();
+            } catch (CompletionException e) {
+                System.err.println("Error saving the watchlists: " + e.getCause().getMessage());
+            }
+        }
+    }
+
+    /**
+     * Creates a virtual-thread-per-task executor through reflection, so the server still runs on runtimes without
+     * virtual threads, where it falls back to a fixed pool of platform threads.
+     *
+     * @return The executor the requests are handled on.
+     */
+    static ExecutorService newExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return Executors.newFixedThreadPool(Math.max(8, 4 * Runtime.getRuntime().availableProcessors()));
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        Response response;
+        try {
+            response = route(exchange);
+        } catch (BodyTooLargeException e) {
+            response = Response.error(413, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            response = Response.error(400, e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error handling " + exchange.getRequestURI() + ": " + e.getMessage());
+            response = Response.error(500, "Internal server error");
+        }
+        byte[] body = response.body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        if (response.status == 401) {
+            exchange.getResponseHeaders().set("WWW-Authenticate", "Bearer");
+        }
+        exchange.sendResponseHeaders(response.status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private Response route(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String[] path = exchange.getRequestURI().getPath().replaceAll("^/+|/+$", "").split("/+");
+        Map<String, String> query = parseForm(exchange.getRequestURI().getRawQuery());
+        switch (path[0]) {
+            case "movies":
+                if (!method.equals("GET")) {
+                    return Response.error(405, "Method not allowed");
+                }
+                if (path.length == 1) {
+                    return listMovies(query);
+                }
+                if (path.length == 2 && path[1].equals("search")) {
+                    return Response.ok(toJson(database.search(required(query, "q"), pageSize(query))));
+                }
+                if (path.length == 2) {
+                    Movie movie = database.getMovieById(parseId(path[1]));
+                    return movie == null ? Response.error(404, "Movie not found") : Response.ok(toJson(movie));
+                }
+                break;
+            case "users":
+                if (path.length == 1 && method.equals("POST")) {
+                    return register(parseForm(readBody(exchange)));
+                }
+                break;
+            case "login":
+                if (path.length == 1 && method.equals("POST")) {
+                    Map<String, String> form = parseForm(readBody(exchange));
+                    String token = sessions.login(required(form, "username"), required(form, "password"));
+                    return token == null
+                            ? Response.error(401, "Invalid username or password")
+                            : Response.ok("{\"username\":" + quote(form.get("username"))
+                            + ",\"token\":" + quote(token) + "}");
+                }
+                break;
+            case "logout":
+                if (path.length == 1 && method.equals("POST")) {
+                    return sessions.logout(token(exchange))
+                            ? Response.ok("{}")
+                            : Response.error(401, "Authentication required");
+                }
+                break;
+            case "watchlist":
+                return watchlist(exchange, method, path);
+            default:
+                break;
+        }
+        return Response.error(404, "Not found");
+    }
+
+    private Response listMovies(Map<String, String> query) {
+        MovieQuery movies = database.query();
+        String order = query.get("order");
+        if (order != null) {
+            try {
+                movies.orderBy(MovieOrder.valueOf(order.toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown order: " + order);
+            }
+        }
+        long offset = query.containsKey("offset") ? parseNumber(query.get("offset"), "offset") : 0;
+        return Response.ok(toJson(movies.offset(offset).limit(pageSize(query)).list()));
+    }
+
+    private Response register(Map<String, String> form) throws IOException {
+        User user = new User(required(form, "username"), required(form, "password"));
+        if (!users.register(user)) {
+            return Response.error(409, "Username already exists");
+        }
+        return new Response(201, "{\"username\":" + quote(user.getUsername()) + "}");
+    }
+
+    private Response watchlist(HttpExchange exchange, String method, String[] path) throws IOException {
+        User user = sessions.authenticate(token(exchange));
+        if (user == null) {
+            return Response.error(401, "Authentication required");
+        }
+        if (path.length == 1 && method.equals("GET")) {
+            return Response.ok(toJson(watchlists.getWatchlist(user)));
+        }
+        if (path.length != 2 || !(method.equals("POST") || method.equals("DELETE"))) {
+            return Response.error(path.length <= 2 ? 405 : 404, path.length <= 2 ? "Method not allowed" : "Not found");
+        }
+        Movie movie = database.getMovieById(parseId(path[1]));
+        if (movie == null) {
+            return Response.error(404, "Movie not found");
+        }
+        if (method.equals("POST")) {
+            watchlists.add(user, movie);
+        } else {
+            watchlists.remove(user, movie);
+        }
+        return Response.ok(toJson(watchlists.getWatchlist(user)));
+    }
+
+    /**
+     * Gets the session token of the bearer authorization of a request.
+     *
+     * @return The token, or null if the request has none.
+     */
+    private static String token(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.regionMatches(true, 0, "Bearer ", 0, 7)) {
+            return null;
+        }
+        return header.substring(7).trim();
+    }
+
+    private static int pageSize(Map<String, String> query) {
+        if (!query.containsKey("limit")) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        long limit = parseNumber(query.get("limit"), "limit");
+        if (limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit cannot be greater than " + MAX_PAGE_SIZE);
+        }
+        return (int) limit;
+    }
+
+    private static long parseNumber(String value, String name) {
+        try {
+            long number = Long.parseLong(value);
+            if (number < 0) {
+                throw new IllegalArgumentException(name + " cannot be a negative number");
+            }
+            return number;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + value);
+        }
+    }
+
+    private static int parseId(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid movie ID: " + value);
+        }
+    }
+
+    private static String required(Map<String, String> parameters, String name) {
+        String value = parameters.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing parameter: " + name);
+        }
+        return value;
+    }
+
+    /**
+     * Reads a request body of at most {@link #MAX_BODY_SIZE} bytes. A larger declared length is rejected without
+     * reading the body, and a body without a declared length is read only up to one byte past the limit.
+     */
+    private static String readBody(HttpExchange exchange) throws IOException {
+        String contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (contentLength != null) {
+            try {
+                if (Long.parseLong(contentLength.trim()) > MAX_BODY_SIZE) {
+                    throw new BodyTooLargeException();
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid Content-Length: " + contentLength);
+            }
+        }
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes(MAX_BODY_SIZE + 1);
+            if (body.length > MAX_BODY_SIZE) {
+                throw new BodyTooLargeException();
+            }
+            return new String(body, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Parses a query string or form-encoded body. Later values of a repeated name win.
+     */
+    static Map<String, String> parseForm(String encoded) {
+        Map<String, String> parameters = new HashMap<>();
+        if (encoded == null || encoded.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : encoded.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    static String toJson(Collection<Movie> movies) {
+        StringBuilder json = new StringBuilder("[");
+        for (Movie movie : movies) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append(toJson(movie));
+        }
+        return json.append(']').toString();
+    }
+
+    static String toJson(Movie movie) {
+        return "{\"id\":" + movie.getId()
+                + ",\"title\":" + quote(movie.getTitle())
+                + ",\"director\":" + quote(movie.getDirector())
+                + ",\"year\":" + movie.getYear()
+                + ",\"runningTime\":" + movie.getRunningTime() + "}";
+    }
+
+    /**
+     * Encodes a string as a JSON string literal, or `null`.
+     */
+    static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    /**
+     * Thrown when a request body is larger than {@link #MAX_BODY_SIZE} bytes.
+     */
+    private static class BodyTooLargeException extends IllegalArgumentException {
+
+        BodyTooLargeException() {
+            super("Request body cannot be larger than " + MAX_BODY_SIZE + " bytes");
+        }
+    }
+
+    /**
+     * The status and JSON body of a response.
+     */
+    private static class Response {
+
+        private final int status;
+        private final String body;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        static Response ok(String body) {
+            return new Response(200, body);
+        }
+
+        static Response error(int status, String message) {
+            return new Response(status, "{\"error\":" + quote(message) + "}");
+        }
+    }
+}
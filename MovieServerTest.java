@@ -0,0 +1,153 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class MovieServerTest {
+
+    private static final String DATABASE_FILE = "Tests/testServerMovies.ser";
+    private static final String USER_FILE = "Tests/testServerUsers.dat";
+    private static final String WATCHLIST_FOLDER = "Tests/serverWatchlists/";
+
+    private MovieDatabase database;
+    private UserRepository users;
+    private MovieServer server;
+    private Movie inception;
+    private Movie titanic;
+
+    @Before
+    public void setUp() throws IOException {
+        database = new MovieDatabase(DATABASE_FILE);
+        inception = new Movie("Inception", "Christopher Nolan", 2010, 148, null);
+        titanic = new Movie("Titanic", "James Cameron", 1997, 195, null);
+        database.addMovies(Arrays.asList(inception, titanic));
+        users = new UserRepository(USER_FILE);
+        server = new MovieServer(database, users, WATCHLIST_FOLDER);
+        server.start(0);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.stop();
+        users.close();
+        database.close();
+        for (String fileName : new String[]{DATABASE_FILE, DATABASE_FILE + ".log", USER_FILE, USER_FILE + ".idx"}) {
+            new File(fileName).delete();
+        }
+        File[] watchlists = new File(WATCHLIST_FOLDER).listFiles();
+        if (watchlists != null) {
+            for (File watchlist : watchlists) {
+                watchlist.delete();
+            }
+        }
+        new File(WATCHLIST_FOLDER).delete();
+    }
+
+    @Test
+    public void testListensOnLoopbackByDefault() {
+        assertTrue(server.getAddress().isLoopbackAddress());
+    }
+
+    @Test
+    public void testListAndSearchMovies() throws IOException {
+        String expected = "[" + MovieServer.toJson(titanic) + "," + MovieServer.toJson(inception) + "]";
+        assertEquals(expected, request("GET", "/movies?order=year", null, null).body);
+        assertEquals("[" + MovieServer.toJson(titanic) + "]",
+                request("GET", "/movies?order=title&offset=1&limit=1", null, null).body);
+        assertEquals("[" + MovieServer.toJson(inception) + "]", request("GET", "/movies/search?q=nolan", null, null).body);
+        assertEquals(MovieServer.toJson(titanic), request("GET", "/movies/" + titanic.getId(), null, null).body);
+    }
+
+    @Test
+    public void testInvalidRequests() throws IOException {
+        assertEquals(400, request("GET", "/movies?order=rating", null, null).status);
+        assertEquals(400, request("GET", "/movies?limit=-1", null, null).status);
+        assertEquals(404, request("GET", "/movies/999", null, null).status);
+        assertEquals(404, request("GET", "/nothing", null, null).status);
+        assertEquals(405, request("DELETE", "/movies", null, null).status);
+        assertEquals(401, request("GET", "/watchlist", null, null).status);
+    }
+
+    @Test
+    public void testRegisterLoginAndWatchlist() throws IOException {
+        assertEquals(201, request("POST", "/users", "username=alice&password=password123", null).status);
+        assertEquals(409, request("POST", "/users", "username=alice&password=password456", null).status);
+        assertEquals(400, request("POST", "/users", "username=bob&password=short", null).status);
+        assertEquals(401, request("POST", "/login", "username=alice&password=wrongpassword", null).status);
+        Response login = request("POST", "/login", "username=alice&password=password123", null);
+        assertEquals(200, login.status);
+
+        String alice = login.body.replaceAll(".*\"token\":\"([^\"]+)\".*", "$1");
+        assertEquals(401, request("GET", "/watchlist", null, "not-a-token").status);
+        assertEquals("[]", request("GET", "/watchlist", null, alice).body);
+        request("POST", "/watchlist/" + inception.getId(), null, alice);
+        request("POST", "/watchlist/" + titanic.getId(), null, alice);
+        request("POST", "/watchlist/" + titanic.getId(), null, alice);
+        Response removed = request("DELETE", "/watchlist/" + inception.getId(), null, alice);
+
+        assertEquals("[" + MovieServer.toJson(titanic) + "]", removed.body);
+        assertEquals(200, request("POST", "/logout", null, alice).status);
+        assertEquals(401, request("GET", "/watchlist", null, alice).status);
+        server.stop();
+        assertEquals(Arrays.asList(titanic), WatchlistFile.read(WATCHLIST_FOLDER + "alice_watchlist.dat", database));
+    }
+
+    @Test
+    public void testQuoteEscapesJson() {
+        assertEquals("\"say \\\"hi\\\"\\\\\\u000a\"", MovieServer.quote("say \"hi\"\\\n"));
+        assertEquals("null", MovieServer.quote(null));
+    }
+
+    @Test
+    public void testOversizedBodyIsRejected() throws IOException {
+        StringBuilder username = new StringBuilder();
+        for (int i = 0; i < MovieServer.MAX_BODY_SIZE; i++) {
+            username.append('a');
+        }
+        Response response = request("POST", "/users", "username=" + username + "&password=password123", null);
+
+        assertEquals(413, response.status);
+        assertEquals(0, users.size());
+    }
+
+    private Response request(String method, String path, String form, String token) throws IOException {
+        HttpURLConnection connection =
+                (HttpURLConnection) new URL("http://localhost:" + server.getPort() + path).openConnection();
+        connection.setRequestMethod(method);
+        if (token != null) {
+            connection.setRequestProperty("Authorization", "Bearer " + token);
+        }
+        if (form != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(form.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        int status = connection.getResponseCode();
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            return new Response(status, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static class Response {
+
+        private final int status;
+        private final String body;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,412 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The `MovieSnapshot` class is an immutable list of movies that is cheap to derive a modified copy from.
+ * Every movie has a row, numbered in the order the movies were appended, and the rows are grouped in chunks of
+ * {@link #CHUNK_SIZE} referenced from a chunk table. A chunk holds the movies of its rows that have not been
+ * removed, in row order, so removing a movie keeps the order of the others and leaves every row number in place;
+ * a `MovieDatabase` removes a movie by the row it recorded for it. Appending, replacing or removing a movie copies
+ * the chunk it touches and the tables, and shares every other chunk with the previous snapshot, so a change costs
+ * O(n / {@link #CHUNK_SIZE} + {@link #CHUNK_SIZE}) instead of a copy of the whole catalog.
+ * A chunk is never written after the snapshot holding it has been created, so a snapshot can be read from any
+ * number of threads without locking while newer snapshots are derived from it.
+ *
+ * A snapshot can also be a {@link #view(List, BitSet)} of an immutable list of rows, such as a view of a
+ * `ColumnarMovieCatalog` or a `MappedMovieCatalog`: its chunks are then left empty and their movies are read from
+ * the rows when accessed, so publishing the snapshot does not build a `Movie` per row. Only a chunk that is
+ * replaced into or appended to is built, and {@link #extend(List)} appends rows to a view without building any.
+ */
+public final class MovieSnapshot extends AbstractList<Movie> implements RandomAccess {
+
+    // Constants
+
+    static final int CHUNK_BITS = 10;
+    static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final MovieSnapshot EMPTY = new MovieSnapshot(new Movie[0][], new short[0][], new int[1], 0, null);
+
+    // Fields
+
+    private final Movie[][] chunks;
+    private final short[][] offsets;
+    private final int[] starts;
+    private final int rowCount;
+    private final List<Movie> source;
+
+    // Constructors
+
+    /**
+     * Constructs a `MovieSnapshot` from its tables.
+     *
+     * @param chunks   The movies of each chunk, in row order, or null for a chunk read from the source.
+     * @param offsets  The offsets of the rows of those movies within each chunk, or null for a chunk from which
+     *                 no movie has been removed.
+     * @param starts   The index of the first movie of each chunk, followed by the number of movies.
+     * @param rowCount The number of rows, including the rows of removed movies.
+     * @param source   The rows the chunks left null are read from, or null if every chunk is held.
+     */
+    private MovieSnapshot(Movie[][] chunks, short[][] offsets, int[] starts, int rowCount, List<Movie> source) {
+        this.chunks = chunks;
+        this.offsets = offsets;
+        this.starts = starts;
+        this.rowCount = rowCount;
+        this.source = source;
+    }
+
+    // Methods
+
+    /**
+     * Gets the empty snapshot.
+     *
+     * @return A snapshot without movies.
+     */
+    public static MovieSnapshot empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Creates a snapshot of the movies of a list, in the order of the list.
+     *
+     * @param movies The movies to hold.
+     * @return A new snapshot of the movies.
+     */
+    public static MovieSnapshot of(List<Movie> movies) {
+        return EMPTY.appendAll(movies);
+    }
+
+    /**
+     * Creates a snapshot of a list of rows, leaving out the removed ones. The rows keep their numbers, so the
+     * snapshot can later be derived without one of them with {@link #withoutRow(int)}.
+     *
+     * @param rows        The movies of the rows, in row order.
+     * @param removedRows The numbers of the rows that have been removed.
+     * @return A new snapshot of the rows that have not been removed.
+     */
+    static MovieSnapshot of(List<Movie> rows, BitSet removedRows) {
+        return build(rows, removedRows, false);
+    }
+
+    /**
+     * Creates a snapshot reading its movies from a list of rows when they are accessed, leaving out the removed
+     * rows. The list must not change afterwards, and its `get` should be cheap, as it is called on every access.
+     *
+     * @param rows        The movies of the rows, in row order.
+     * @param removedRows The numbers of the rows that have been removed.
+     * @return A new snapshot of the rows that have not been removed.
+     */
+    static MovieSnapshot view(List<Movie> rows, BitSet removedRows) {
+        return build(rows, removedRows, true);
+    }
+
+    private static MovieSnapshot build(List<Movie> rows, BitSet removedRows, boolean lazy) {
+        int chunkCount = (rows.size() + CHUNK_SIZE - 1) >>> CHUNK_BITS;
+        Movie[][] chunks = new Movie[chunkCount][];
+        short[][] offsets = new short[chunkCount][];
+        int[] starts = new int[chunkCount + 1];
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            int first = chunk << CHUNK_BITS;
+            int end = Math.min(rows.size(), first + CHUNK_SIZE);
+            int firstRemoved = removedRows.nextSetBit(first);
+            boolean complete = firstRemoved < 0 || firstRemoved >= end;
+            int live = complete ? end - first : end - first - removedRows.get(first, end).cardinality();
+            chunks[chunk] = lazy ? null : new Movie[live];
+            offsets[chunk] = complete ? null : new short[live];
+            int position = 0;
+            for (int row = first; row < end && (!lazy || !complete); row++) {
+                if (complete || !removedRows.get(row)) {
+                    if (!lazy) {
+                        chunks[chunk][position] = rows.get(row);
+                    }
+                    if (!complete) {
+                        offsets[chunk][position] = (short) (row - first);
+                    }
+                    position++;
+                }
+            }
+            starts[chunk + 1] = starts[chunk] + live;
+        }
+        return new MovieSnapshot(chunks, offsets, starts, rows.size(), lazy ? rows : null);
+    }
+
+    /**
+     * Gets the movie at the specified position.
+     *
+     * @param index The position of the movie.
+     * @return The movie at the position.
+     * @throws IndexOutOfBoundsException If the index is out of range.
+     */
+    @Override
+    public Movie get(int index) {
+        int chunk = chunkOf(index);
+        int position = index - starts[chunk];
+        return chunks[chunk] != null ? chunks[chunk][position] : source.get(rowAt(chunk, position));
+    }
+
+    /**
+     * Gets the number of movies in the snapshot.
+     *
+     * @return The number of movies.
+     */
+    @Override
+    public int size() {
+        return starts[chunks.length];
+    }
+
+    /**
+     * Gets the number of rows of the snapshot, including the rows of the movies that have been removed. The next
+     * movie appended gets this number as its row.
+     *
+     * @return The number of rows.
+     */
+    int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Sums the running times of the movies of the snapshot. The movies of a view of a `ColumnarMovieCatalog` are
+     * summed from its running time column without being built.
+     *
+     * @return The total running time, in minutes.
+     */
+    public long totalRunningTime() {
+        ColumnarMovieCatalog columnar = source instanceof ColumnarMovieCatalog ? (ColumnarMovieCatalog) source : null;
+        long total = 0;
+        for (int chunk = 0; chunk < chunks.length; chunk++) {
+            int count = starts[chunk + 1] - starts[chunk];
+            for (int position = 0; position < count; position++) {
+                if (chunks[chunk] != null) {
+                    total += chunks[chunk][position].getRunningTime();
+                } else if (columnar != null) {
+                    total += columnar.getRunningTime(rowAt(chunk, position));
+                } else {
+                    total += source.get(rowAt(chunk, position)).getRunningTime();
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Derives a snapshot with a movie appended.
+     *
+     * @param movie The movie to append.
+     * @return A new snapshot; this snapshot is not modified.
+     */
+    public MovieSnapshot append(Movie movie) {
+        return appendAll(List.of(movie));
+    }
+
+    /**
+     * Derives a snapshot with the movies of a list appended, each in a new row, copying the last chunk at most once.
+     *
+     * @param movies The movies to append.
+     * @return A new snapshot; this snapshot is not modified.
+     */
+    public MovieSnapshot appendAll(List<Movie> movies) {
+        if (movies.isEmpty()) {
+            return this;
+        }
+        int newRowCount = rowCount + movies.size();
+        int chunkCount = (newRowCount + CHUNK_SIZE - 1) >>> CHUNK_BITS;
+        Movie[][] newChunks = Arrays.copyOf(chunks, chunkCount);
+        short[][] newOffsets = Arrays.copyOf(offsets, chunkCount);
+        int[] newStarts = Arrays.copyOf(starts, chunkCount + 1);
+        int firstChunk = rowCount >>> CHUNK_BITS;
+        int row = rowCount;
+        int appended = 0;
+        while (appended < movies.size()) {
+            int chunk = row >>> CHUNK_BITS;
+            int count = Math.min(movies.size() - appended, CHUNK_SIZE - (row & (CHUNK_SIZE - 1)));
+            Movie[] previous = chunk < chunks.length ? chunkMovies(chunk) : new Movie[0];
+            Movie[] copy = Arrays.copyOf(previous, previous.length + count);
+            for (int i = 0; i < count; i++) {
+                copy[previous.length + i] = movies.get(appended + i);
+            }
+            newChunks[chunk] = copy;
+            if (chunk < offsets.length && offsets[chunk] != null) {
+                short[] offsetsCopy = Arrays.copyOf(offsets[chunk], copy.length);
+                for (int i = 0; i < count; i++) {
+                    offsetsCopy[previous.length + i] = (short) ((row + i) & (CHUNK_SIZE - 1));
+                }
+                newOffsets[chunk] = offsetsCopy;
+            }
+            row += count;
+            appended += count;
+        }
+        for (int chunk = firstChunk; chunk < chunkCount; chunk++) {
+            newStarts[chunk + 1] = newStarts[chunk] + newChunks[chunk].length;
+        }
+        return new MovieSnapshot(newChunks, newOffsets, newStarts, newRowCount, source);
+    }
+
+    /**
+     * Derives a view over a list of rows that extends the rows of this snapshot with appended ones, such as a
+     * newer view of the same `ColumnarMovieCatalog`. The appended rows are read from the list when accessed, like
+     * the rows this snapshot reads, so no movie is built.
+     *
+     * @param rows The rows of this snapshot, unchanged, followed by the appended rows.
+     * @return A new snapshot; this snapshot is not modified.
+     * @throws IllegalArgumentException If the list has fewer rows than this snapshot.
+     */
+    MovieSnapshot extend(List<Movie> rows) {
+        int newRowCount = rows.size();
+        if (newRowCount < rowCount) {
+            throw new IllegalArgumentException("Rows cannot be removed by extending a snapshot");
+        }
+        int chunkCount = (newRowCount + CHUNK_SIZE - 1) >>> CHUNK_BITS;
+        Movie[][] newChunks = Arrays.copyOf(chunks, chunkCount);
+        short[][] newOffsets = Arrays.copyOf(offsets, chunkCount);
+        int[] newStarts = Arrays.copyOf(starts, chunkCount + 1);
+        for (int chunk = rowCount >>> CHUNK_BITS; chunk < chunkCount; chunk++) {
+            int first = Math.max(rowCount, chunk << CHUNK_BITS);
+            int end = Math.min(newRowCount, (chunk + 1) << CHUNK_BITS);
+            int previous = chunk < chunks.length ? starts[chunk + 1] - starts[chunk] : 0;
+            int length = previous + end - first;
+            if (chunk < chunks.length && chunks[chunk] != null) {
+                newChunks[chunk] = Arrays.copyOf(chunks[chunk], length);
+                for (int row = first; row < end; row++) {
+                    newChunks[chunk][previous + row - first] = rows.get(row);
+                }
+            }
+            if (chunk < offsets.length && offsets[chunk] != null) {
+                newOffsets[chunk] = Arrays.copyOf(offsets[chunk], length);
+                for (int row = first; row < end; row++) {
+                    newOffsets[chunk][previous + row - first] = (short) (row & (CHUNK_SIZE - 1));
+                }
+            }
+            newStarts[chunk + 1] = newStarts[chunk] + length;
+        }
+        return new MovieSnapshot(newChunks, newOffsets, newStarts, newRowCount, rows);
+    }
+
+    /**
+     * Derives a snapshot with the movie at a position replaced. The new movie takes the row of the old one.
+     *
+     * @param index The position of the movie to replace.
+     * @param movie The movie to store.
+     * @return A new snapshot; this snapshot is not modified.
+     * @throws IndexOutOfBoundsException If the index is out of range.
+     */
+    public MovieSnapshot with(int index, Movie movie) {
+        int chunk = chunkOf(index);
+        Movie[][] newChunks = chunks.clone();
+        newChunks[chunk] = chunkMovies(chunk).clone();
+        newChunks[chunk][index - starts[chunk]] = movie;
+        return new MovieSnapshot(newChunks, offsets, starts, rowCount, source);
+    }
+
+    /**
+     * Derives a snapshot without the movie at a position, keeping the order of the other movies.
+     *
+     * @param index The position of the movie to remove.
+     * @return A new snapshot; this snapshot is not modified.
+     * @throws IndexOutOfBoundsException If the index is out of range.
+     */
+    public MovieSnapshot without(int index) {
+        int chunk = chunkOf(index);
+        return without(chunk, index - starts[chunk]);
+    }
+
+    /**
+     * Derives a snapshot without its last movie.
+     *
+     * @return A new snapshot; this snapshot is not modified.
+     * @throws IndexOutOfBoundsException If the snapshot is empty.
+     */
+    public MovieSnapshot withoutLast() {
+        return without(size() - 1);
+    }
+
+    /**
+     * Derives a snapshot without the movie of a row, keeping the order of the other movies.
+     *
+     * @param row The row of the movie to remove.
+     * @return A new snapshot; this snapshot is not modified.
+     * @throws IndexOutOfBoundsException If the row is out of range.
+     * @throws IllegalArgumentException  If the movie of the row has already been removed.
+     */
+    MovieSnapshot withoutRow(int row) {
+        if (row < 0 || row >= rowCount) {
+            throw new IndexOutOfBoundsException("Row: " + row + ", Rows: " + rowCount);
+        }
+        int chunk = row >>> CHUNK_BITS;
+        int offset = row & (CHUNK_SIZE - 1);
+        int position = offsets[chunk] == null ? offset : Arrays.binarySearch(offsets[chunk], (short) offset);
+        if (position < 0) {
+            throw new IllegalArgumentException("Row " + row + " has already been removed");
+        }
+        return without(chunk, position);
+    }
+
+    private MovieSnapshot without(int chunk, int position) {
+        int count = starts[chunk + 1] - starts[chunk] - 1;
+        Movie[] movies = chunks[chunk];
+        Movie[] chunkCopy = null;
+        if (movies != null) {
+            chunkCopy = new Movie[count];
+            System.arraycopy(movies, 0, chunkCopy, 0, position);
+            System.arraycopy(movies, position + 1, chunkCopy, position, count - position);
+        }
+        short[] chunkOffsets = offsets[chunk];
+        short[] offsetsCopy = new short[count];
+        for (int i = 0; i < offsetsCopy.length; i++) {
+            int from = i < position ? i : i + 1;
+            offsetsCopy[i] = chunkOffsets == null ? (short) from : chunkOffsets[from];
+        }
+        Movie[][] newChunks = chunks.clone();
+        newChunks[chunk] = chunkCopy;
+        short[][] newOffsets = offsets.clone();
+        newOffsets[chunk] = offsetsCopy;
+        int[] newStarts = starts.clone();
+        for (int i = chunk + 1; i < newStarts.length; i++) {
+            newStarts[i]--;
+        }
+        return new MovieSnapshot(newChunks, newOffsets, newStarts, rowCount, source);
+    }
+
+    /**
+     * Gets the movies of a chunk, building them from the source if the chunk is read from it.
+     */
+    private Movie[] chunkMovies(int chunk) {
+        if (chunks[chunk] != null) {
+            return chunks[chunk];
+        }
+        Movie[] movies = new Movie[starts[chunk + 1] - starts[chunk]];
+        for (int position = 0; position < movies.length; position++) {
+            movies[position] = source.get(rowAt(chunk, position));
+        }
+        return movies;
+    }
+
+    private int rowAt(int chunk, int position) {
+        return (chunk << CHUNK_BITS) + (offsets[chunk] == null ? position : offsets[chunk][position]);
+    }
+
+    /**
+     * Finds the chunk holding the movie at a position. Until a movie has been removed every chunk but the last is
+     * full, so the chunk is found by a shift; afterwards it is found by binary search on the starts of the chunks.
+     */
+    private int chunkOf(int index) {
+        int size = size();
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        if (size == rowCount) {
+            return index >>> CHUNK_BITS;
+        }
+        int low = 0;
+        int high = chunks.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (starts[middle] <= index) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low - 1;
+    }
+}
@@ -0,0 +1,134 @@
+import org.junit.Test;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MovieSnapshotTest {
+
+    private static List<Movie> movies(int count) {
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            movies.add(new Movie("Movie " + i, "Director", 2000, 100, null));
+        }
+        return movies;
+    }
+
+    @Test
+    public void testAppendAcrossChunks() {
+        List<Movie> movies = movies(MovieSnapshot.CHUNK_SIZE * 2 + 5);
+        MovieSnapshot snapshot = MovieSnapshot.empty();
+        for (Movie movie : movies) {
+            snapshot = snapshot.append(movie);
+        }
+
+        assertEquals(movies, snapshot);
+        assertEquals(movies, MovieSnapshot.of(movies));
+        assertEquals(movies, MovieSnapshot.of(movies.subList(0, 7)).appendAll(movies.subList(7, movies.size())));
+    }
+
+    @Test
+    public void testChangesDoNotAffectEarlierSnapshots() {
+        List<Movie> movies = movies(MovieSnapshot.CHUNK_SIZE + 1);
+        Movie other = new Movie("Other", "Director", 2001, 90, null);
+        MovieSnapshot original = MovieSnapshot.of(movies);
+
+        MovieSnapshot replaced = original.with(3, other);
+        MovieSnapshot shorter = original.withoutLast().withoutLast();
+        MovieSnapshot appended = shorter.append(other);
+
+        assertEquals(movies, original);
+        assertSame(other, replaced.get(3));
+        assertEquals(movies.subList(0, movies.size() - 2), shorter);
+        assertSame(other, appended.get(appended.size() - 1));
+        assertSame(movies.get(movies.size() - 2), original.get(movies.size() - 2));
+    }
+
+    @Test
+    public void testRemovingKeepsOrderAndRows() {
+        List<Movie> movies = movies(MovieSnapshot.CHUNK_SIZE * 2 + 5);
+        BitSet removedRows = new BitSet();
+        removedRows.set(1);
+        removedRows.set(MovieSnapshot.CHUNK_SIZE + 2);
+        MovieSnapshot snapshot = MovieSnapshot.of(movies, removedRows);
+
+        List<Movie> expected = new ArrayList<>(movies);
+        expected.remove(MovieSnapshot.CHUNK_SIZE + 2);
+        expected.remove(1);
+        assertEquals(expected, snapshot);
+        snapshot = snapshot.withoutRow(3).without(0);
+        expected.remove(movies.get(3));
+        expected.remove(0);
+        assertEquals(expected, snapshot);
+        Movie other = new Movie("Other", "Director", 2001, 90, null);
+        snapshot = snapshot.append(other).withoutRow(MovieSnapshot.CHUNK_SIZE * 2);
+        expected.remove(movies.get(MovieSnapshot.CHUNK_SIZE * 2));
+        expected.add(other);
+        assertEquals(expected, snapshot);
+        assertEquals(movies.size() + 1, snapshot.getRowCount());
+        try {
+            snapshot.withoutRow(1);
+            fail("The movie of the row has already been removed");
+        } catch (IllegalArgumentException e) {
+            assertEquals(expected, snapshot);
+        }
+    }
+
+    @Test
+    public void testViewReadsRowsWhenAccessed() {
+        List<Movie> movies = movies(MovieSnapshot.CHUNK_SIZE + 5);
+        int[] reads = new int[1];
+        List<Movie> rows = new AbstractList<Movie>() {
+            @Override
+            public Movie get(int index) {
+                reads[0]++;
+                return movies.get(index);
+            }
+
+            @Override
+            public int size() {
+                return movies.size();
+            }
+        };
+        BitSet removedRows = new BitSet();
+        removedRows.set(2);
+
+        MovieSnapshot view = MovieSnapshot.view(rows.subList(0, MovieSnapshot.CHUNK_SIZE), removedRows)
+                .withoutRow(4).extend(rows);
+        assertEquals(0, reads[0]);
+        assertSame(movies.get(3), view.get(2));
+        assertSame(movies.get(MovieSnapshot.CHUNK_SIZE + 4), view.get(view.size() - 1));
+        assertEquals(movies.size() - 2, view.size());
+        assertEquals(100L * view.size(), view.totalRunningTime());
+
+        List<Movie> expected = new ArrayList<>(movies);
+        expected.remove(4);
+        expected.remove(2);
+        assertEquals(expected, view);
+        Movie other = new Movie("Other", "Director", 2001, 90, null);
+        assertEquals(other, view.with(0, other).get(0));
+        assertEquals(expected, view);
+    }
+
+    @Test
+    public void testSnapshotIsImmutable() {
+        MovieSnapshot snapshot = MovieSnapshot.of(movies(2));
+        try {
+            snapshot.add(new Movie("Other", "Director", 2001, 90, null));
+            fail("Snapshots cannot be modified");
+        } catch (UnsupportedOperationException e) {
+            assertEquals(2, snapshot.size());
+        }
+        try {
+            MovieSnapshot.empty().withoutLast();
+            fail("The empty snapshot has no last movie");
+        } catch (IndexOutOfBoundsException e) {
+            assertTrue(MovieSnapshot.empty().isEmpty());
+        }
+        assertEquals(Arrays.asList(), MovieSnapshot.of(new ArrayList<>()));
+    }
+}
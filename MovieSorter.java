@@ -0,0 +1,271 @@
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * The `MovieSorter` class sorts large lists of movies by several keys, each ascending or descending:
+ * <pre>
+ * List&lt;Movie&gt; sorted = MovieSorter.by(MovieOrder.DIRECTOR).thenByDescending(MovieOrder.YEAR).sort(movies);
+ * </pre>
+ * Instead of calling getters and comparing strings in a comparator, the sorter reads every key of every movie
+ * once and turns it into an `int` rank: years and running times are offset to start at zero, and titles and
+ * directors are encoded in a `StringDictionary` and ranked by sorting the distinct values once, with a
+ * `CollationKey` computed once per distinct value when a locale is given. The movies
+ * are then ordered by `Arrays.parallelSort` on `long`s packing the ranks of as many keys as fit, with the current
+ * position of each movie in the low bits; when the keys do not fit in one `long`, further passes sort by the
+ * earlier keys, and the positions in the low bits keep the order of the previous passes.
+ * Key extraction and every sort run on the common fork-join pool. The sort is stable and missing titles and
+ * directors sort first, before descending order is applied.
+ */
+public class MovieSorter {
+
+    // Fields
+
+    private List<MovieOrder> keys;
+    private List<Boolean> descending;
+    private Collator collator;
+
+    // Constructors
+
+    private MovieSorter() {
+        this.keys = new ArrayList<>();
+        this.descending = new ArrayList<>();
+    }
+
+    // Methods
+
+    /**
+     * Creates a sorter by one key in ascending order.
+     *
+     * @param order The key to sort by.
+     * @return A new sorter.
+     */
+    public static MovieSorter by(MovieOrder order) {
+        return new MovieSorter().thenBy(order);
+    }
+
+    /**
+     * Creates a sorter by one key in descending order.
+     *
+     * @param order The key to sort by.
+     * @return A new sorter.
+     */
+    public static MovieSorter byDescending(MovieOrder order) {
+        return new MovieSorter().thenByDescending(order);
+    }
+
+    /**
+     * Adds a key in ascending order, used to order the movies that the previous keys leave tied.
+     *
+     * @param order The key to sort by.
+     * @return This sorter.
+     */
+    public MovieSorter thenBy(MovieOrder order) {
+        keys.add(order);
+        descending.add(false);
+        return this;
+    }
+
+    /**
+     * Adds a key in descending order, used to order the movies that the previous keys leave tied.
+     *
+     * @param order The key to sort by.
+     * @return This sorter.
+     */
+    public MovieSorter thenByDescending(MovieOrder order) {
+        keys.add(order);
+        descending.add(true);
+        return this;
+    }
+
+    /**
+     * Compares titles and directors with the collation rules of a locale instead of by character code,
+     * so that, for example, accented letters sort next to their base letters.
+     *
+     * @param locale The locale whose collation rules to use.
+     * @return This sorter.
+     */
+    public MovieSorter collatedFor(Locale locale) {
+        collator = Collator.getInstance(locale);
+        return this;
+    }
+
+    /**
+     * Sorts a list of movies. The list is not modified.
+     *
+     * @param movies The movies to sort.
+     * @return A new list holding the movies in sorted order.
+     */
+    public List<Movie> sort(List<Movie> movies) {
+        Movie[] array = movies.toArray(new Movie[0]);
+        int[] order = sortedPositions(array);
+        List<Movie> sorted = new ArrayList<>(array.length);
+        for (int position : order) {
+            sorted.add(array[position]);
+        }
+        return sorted;
+    }
+
+    /**
+     * Computes the sorted order of an array of movies.
+     *
+     * @param movies The movies to sort.
+     * @return The positions of the movies in the array, in sorted order.
+     */
+    int[] sortedPositions(Movie[] movies) {
+        int keyCount = keys.size();
+        int[][] ranks = new int[keyCount][];
+        int[] bits = new int[keyCount];
+        for (int k = 0; k < keyCount; k++) {
+            ranks[k] = ranks(movies, keys.get(k), descending.get(k));
+            bits[k] = 32 - Integer.numberOfLeadingZeros(Arrays.stream(ranks[k]).parallel().max().orElse(0));
+        }
+        int positionBits = 32 - Integer.numberOfLeadingZeros(Math.max(1, movies.length - 1));
+        long positionMask = (1L << positionBits) - 1;
+        int[] order = IntStream.range(0, movies.length).toArray();
+        long[] packed = new long[movies.length];
+        int end = keyCount;
+        while (end > 0) {
+            int start = end - 1;
+            int usedBits = bits[start] + positionBits;
+            while (start > 0 && usedBits + bits[start - 1] <= 63) {
+                usedBits += bits[--start];
+            }
+            int first = start;
+            int last = end;
+            int[] previous = order;
+            Arrays.parallelSetAll(packed, position -> {
+                int movie = previous[position];
+                long key = 0;
+                for (int k = first; k < last; k++) {
+                    key = key << bits[k] | ranks[k][movie];
+                }
+                return key << positionBits | position;
+            });
+            Arrays.parallelSort(packed);
+            int[] next = new int[movies.length];
+            Arrays.parallelSetAll(next, position -> previous[(int) (packed[position] & positionMask)]);
+            order = next;
+            end = start;
+        }
+        return order;
+    }
+
+    /**
+     * Computes the non-negative rank of the key of every movie: movies with equal keys get equal ranks, and a
+     * movie that sorts before another gets a smaller rank.
+     */
+    private int[] ranks(Movie[] movies, MovieOrder key, boolean descending) {
+        switch (key) {
+            case YEAR:
+                return intRanks(movies, Movie::getYear, descending);
+            case RUNNING_TIME:
+                return intRanks(movies, Movie::getRunningTime, descending);
+            case TITLE:
+                return stringRanks(movies, Movie::getTitle, descending);
+            case DIRECTOR:
+                return stringRanks(movies, Movie::getDirector, descending);
+            default:
+                throw new IllegalArgumentException("Unsupported sort key: " + key);
+        }
+    }
+
+    private static int[] intRanks(Movie[] movies, ToIntFunction<Movie> field, boolean descending) {
+        int[] values = new int[movies.length];
+        Arrays.parallelSetAll(values, i -> field.applyAsInt(movies[i]));
+        if (values.length == 0) {
+            return values;
+        }
+        int min = Arrays.stream(values).parallel().min().getAsInt();
+        int max = Arrays.stream(values).parallel().max().getAsInt();
+        Arrays.parallelSetAll(values, i -> descending ? max - values[i] : values[i] - min);
+        return values;
+    }
+
+    private int[] stringRanks(Movie[] movies, Function<Movie, String> field, boolean descending) {
+        StringDictionary dictionary = new StringDictionary();
+        int[] codes = new int[movies.length];
+        for (int i = 0; i < movies.length; i++) {
+            codes[i] = dictionary.encode(field.apply(movies[i]));
+        }
+        ThreadLocal<Collator> collators = collator == null
+                ? null
+                : ThreadLocal.withInitial(() -> (Collator) collator.clone());
+        SortKey[] sortKeys = new SortKey[dictionary.size()];
+        Arrays.parallelSetAll(sortKeys,
+                code -> new SortKey(dictionary.decode(code), collators == null ? null : collators.get(), code));
+        Arrays.parallelSort(sortKeys);
+        int[] rankOfCode = new int[sortKeys.length];
+        int rank = 0;
+        for (int i = 0; i < sortKeys.length; i++) {
+            if (i > 0 && sortKeys[i].compareTo(sortKeys[i - 1]) != 0) {
+                rank++;
+            }
+            rankOfCode[sortKeys[i].code] = rank + 1;
+        }
+        int last = rank + 1;
+        int[] ranks = new int[movies.length];
+        Arrays.parallelSetAll(ranks, i -> {
+            int ascending = codes[i] == StringDictionary.NULL_CODE ? 0 : rankOfCode[codes[i]];
+            return descending ? last - ascending : ascending;
+        });
+        return ranks;
+    }
+
+    /**
+     * A precomputed string or `CollationKey` of a distinct value, with the dictionary code of the value.
+     * The first characters of the key, or the first bytes of a collation key, are packed into a `long` whose
+     * unsigned order matches the order of the keys, so most comparisons do not read the keys themselves.
+     */
+    private static class SortKey implements Comparable<SortKey> {
+
+        private final Object key;
+        private final long prefix;
+        private final int code;
+
+        SortKey(String value, Collator collator, int code) {
+            this.code = code;
+            if (collator == null) {
+                this.key = value;
+                this.prefix = prefix(value);
+            } else {
+                byte[] bytes = collator.getCollationKey(value).toByteArray();
+                this.key = bytes;
+                this.prefix = prefix(bytes);
+            }
+        }
+
+        @Override
+        public int compareTo(SortKey other) {
+            int byPrefix = Long.compareUnsigned(prefix, other.prefix);
+            if (byPrefix != 0) {
+                return byPrefix;
+            }
+            if (key instanceof String) {
+                return ((String) key).compareTo((String) other.key);
+            }
+            return Arrays.compareUnsigned((byte[]) key, (byte[]) other.key);
+        }
+
+        private static long prefix(String value) {
+            long packed = 0;
+            for (int i = 0; i < 4; i++) {
+                packed = packed << 16 | (i < value.length() ? value.charAt(i) : 0);
+            }
+            return packed;
+        }
+
+        private static long prefix(byte[] bytes) {
+            long packed = 0;
+            for (int i = 0; i < 8; i++) {
+                packed = packed << 8 | (i < bytes.length ? bytes[i] & 0xFF : 0);
+            }
+            return packed;
+        }
+    }
+}
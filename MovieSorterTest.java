@@ -0,0 +1,114 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MovieSorterTest {
+
+    private Movie interstellar;
+    private Movie darkKnight;
+    private Movie titanic;
+    private Movie avatar;
+    private List<Movie> movies;
+
+    @Before
+    public void setUp() {
+        interstellar = new Movie("Interstellar", "Christopher Nolan", 2014, 169, null);
+        darkKnight = new Movie("The Dark Knight", "Christopher Nolan", 2008, 152, null);
+        titanic = new Movie("Titanic", "James Cameron", 1997, 195, null);
+        avatar = new Movie("Avatar", "James Cameron", 2009, 162, null);
+        movies = Arrays.asList(titanic, darkKnight, avatar, interstellar);
+    }
+
+    @Test
+    public void testMultiKeySort() {
+        List<Movie> sorted = MovieSorter.by(MovieOrder.DIRECTOR).thenByDescending(MovieOrder.YEAR).sort(movies);
+
+        assertEquals(Arrays.asList(interstellar, darkKnight, avatar, titanic), sorted);
+        assertEquals(Arrays.asList(titanic, darkKnight, avatar, interstellar), movies);
+    }
+
+    @Test
+    public void testDescendingStringsAndStability() {
+        List<Movie> sorted = MovieSorter.byDescending(MovieOrder.DIRECTOR).sort(movies);
+
+        assertEquals(Arrays.asList(titanic, avatar, darkKnight, interstellar), sorted);
+    }
+
+    @Test
+    public void testNullsSortFirst() {
+        Movie unknown = new Movie("Unknown", null, 2000, 100, null);
+        List<Movie> withNull = new ArrayList<>(movies);
+        withNull.add(unknown);
+
+        assertEquals(unknown, MovieSorter.by(MovieOrder.DIRECTOR).sort(withNull).get(0));
+        assertEquals(unknown, MovieSorter.byDescending(MovieOrder.DIRECTOR).sort(withNull).get(4));
+    }
+
+    @Test
+    public void testCollatedSort() {
+        Movie eclair = new Movie("\u00c9clair", "Director", 2000, 100, null);
+        Movie fargo = new Movie("Fargo", "Director", 1996, 98, null);
+        Movie elephant = new Movie("elephant", "Director", 2003, 81, null);
+        List<Movie> titles = Arrays.asList(fargo, eclair, elephant);
+
+        assertEquals(Arrays.asList(fargo, elephant, eclair), MovieSorter.by(MovieOrder.TITLE).sort(titles));
+        assertEquals(Arrays.asList(eclair, elephant, fargo),
+                MovieSorter.by(MovieOrder.TITLE).collatedFor(Locale.FRENCH).sort(titles));
+    }
+
+    @Test
+    public void testKeysThatDoNotFitInOneLong() {
+        Random random = new Random(7);
+        List<Movie> randomMovies = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            randomMovies.add(new Movie("Title " + random.nextInt(5000), "Director " + random.nextInt(5000),
+                    1900 + random.nextInt(3), random.nextInt(1 << 20), null));
+        }
+        List<Movie> expected = new ArrayList<>(randomMovies);
+        Collections.sort(expected, Comparator.comparingInt(Movie::getYear)
+                .thenComparing(Movie::getTitle)
+                .thenComparing(Movie::getDirector)
+                .thenComparing(Comparator.comparingInt(Movie::getRunningTime).reversed()));
+
+        List<Movie> sorted = MovieSorter.by(MovieOrder.YEAR)
+                .thenBy(MovieOrder.TITLE)
+                .thenBy(MovieOrder.DIRECTOR)
+                .thenByDescending(MovieOrder.RUNNING_TIME)
+                .sort(randomMovies);
+
+        assertEquals(expected, sorted);
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame(expected.get(i), sorted.get(i));
+        }
+    }
+
+    @Test
+    public void testMatchesComparatorOnRandomMovies() {
+        Random random = new Random(42);
+        List<Movie> randomMovies = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            randomMovies.add(new Movie("Title " + random.nextInt(500), "Director " + random.nextInt(50),
+                    1900 + random.nextInt(120), random.nextInt(300), null));
+        }
+        List<Movie> expected = new ArrayList<>(randomMovies);
+        Collections.sort(expected, Comparator.comparing(Movie::getDirector)
+                .thenComparing(Comparator.comparingInt(Movie::getRunningTime).reversed())
+                .thenComparing(Movie::getTitle));
+
+        List<Movie> sorted = MovieSorter.by(MovieOrder.DIRECTOR)
+                .thenByDescending(MovieOrder.RUNNING_TIME)
+                .thenBy(MovieOrder.TITLE)
+                .sort(randomMovies);
+
+        assertEquals(expected, sorted);
+    }
+}
@@ -79,6 +79,19 @@ public class MovieTest {
         assertFalse(movie1.equals(movie3));
     }
 
+    @Test
+    public void testHashCodeIsConsistentWithEquals() {
+        Movie movie1 = new Movie("Inception", "Christopher Nolan", 2010, 148, "/path/to/photo");
+        Movie movie2 = new Movie("Inception", "Christopher Nolan", 2010, 90, null);
+        Movie movie3 = new Movie("Untitled", null, 2010, 90, null);
+        Movie movie4 = new Movie("Untitled", null, 2010, 100, null);
+
+        assertEquals(movie1.hashCode(), movie2.hashCode());
+        assertEquals(movie3, movie4);
+        assertEquals(movie3.hashCode(), movie4.hashCode());
+        assertNotEquals(movie1, movie3);
+    }
+
     @Test
     public void testSortMoviesByTitle() {
         List<Movie> movies = new ArrayList<>();
@@ -0,0 +1,155 @@
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * The `PrefixIndex` class finds movies whose title or director starts with a given prefix, for search as you type.
+ * Keys are normalized (case, accents and whitespace are ignored) and kept in a skip list, so a query seeks to the
+ * first key with the prefix in logarithmic time and then reads the matches in key order, stopping after the
+ * requested number of movies. The cost of a query depends on the number of results, not the size of the catalog,
+ * and the index is updated in logarithmic time when movies are added or removed.
+ */
+public class PrefixIndex {
+
+    // Constants
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    // Fields
+
+    private Function<Movie, String> key;
+    private ConcurrentSkipListMap<String, List<Movie>> movies;
+
+    // Constructors
+
+    /**
+     * Constructs an empty `PrefixIndex` over the specified movie field.
+     *
+     * @param key The function extracting the indexed field of a movie, such as `Movie::getTitle`.
+     */
+    public PrefixIndex(Function<Movie, String> key) {
+        this.key = key;
+        this.movies = new ConcurrentSkipListMap<>();
+    }
+
+    // Methods
+
+    /**
+     * Adds a movie to the index. Movies whose indexed field is null are not indexed.
+     *
+     * @param movie The movie to add.
+     */
+    public void add(Movie movie) {
+        String value = key.apply(movie);
+        if (value != null) {
+            movies.computeIfAbsent(normalize(value), normalized -> new ArrayList<>(1)).add(movie);
+        }
+    }
+
+    /**
+     * Adds every movie of a collection to the index.
+     *
+     * @param newMovies The movies to add.
+     */
+    public void addAll(Collection<Movie> newMovies) {
+        for (Movie movie : newMovies) {
+            add(movie);
+        }
+    }
+
+    /**
+     * Removes a movie from the index.
+     *
+     * @param movie The movie to remove.
+     */
+    public void remove(Movie movie) {
+        String value = key.apply(movie);
+        if (value == null) {
+            return;
+        }
+        String normalized = normalize(value);
+        List<Movie> sameKey = movies.get(normalized);
+        if (sameKey != null) {
+            sameKey.remove(movie);
+            if (sameKey.isEmpty()) {
+                movies.remove(normalized);
+            }
+        }
+    }
+
+    /**
+     * Finds the movies whose indexed field starts with a prefix, in alphabetical order of the field.
+     *
+     * @param prefix The prefix to search for; case, accents and extra whitespace are ignored.
+     * @param limit  The maximum number of movies to return.
+     * @return Up to `limit` matching movies.
+     */
+    public List<Movie> find(String prefix, int limit) {
+        List<Movie> matches = new ArrayList<>(Math.min(limit, 16));
+        collect(prefix, limit, matches);
+        return matches;
+    }
+
+    /**
+     * Adds the movies whose indexed field starts with a prefix to a list, in alphabetical order of the field,
+     * until the list holds `limit` movies. Movies already in the list are not added again.
+     *
+     * @param prefix  The prefix to search for; case, accents and extra whitespace are ignored.
+     * @param limit   The size the list may grow to.
+     * @param matches The list the matches are added to.
+     */
+    public void collect(String prefix, int limit, List<Movie> matches) {
+        if (prefix == null) {
+            return;
+        }
+        String normalized = normalize(prefix);
+        if (normalized.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<String, List<Movie>> entry : movies.tailMap(normalized).entrySet()) {
+            if (!entry.getKey().startsWith(normalized)) {
+                return;
+            }
+            for (Movie movie : entry.getValue()) {
+                if (matches.size() >= limit) {
+                    return;
+                }
+                if (!matches.contains(movie)) {
+                    matches.add(movie);
+                }
+            }
+        }
+    }
+
+    /**
+     * Normalizes a string for prefix matching: accents are removed, the string is lower-cased and runs of
+     * whitespace are collapsed into single spaces.
+     *
+     * @param value The string to normalize.
+     * @return The normalized string.
+     */
+    static String normalize(String value) {
+        String unaccented = value;
+        if (!isAscii(value)) {
+            String decomposed = Normalizer.normalize(value, Normalizer.Form.NFD);
+            unaccented = MARKS.matcher(decomposed).replaceAll("");
+        }
+        return WHITESPACE.matcher(unaccented.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    private static boolean isAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
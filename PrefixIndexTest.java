@@ -0,0 +1,51 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PrefixIndexTest {
+
+    private PrefixIndex index;
+    private Movie darkKnight;
+    private Movie darkKnightRises;
+    private Movie amelie;
+
+    @Before
+    public void setUp() {
+        index = new PrefixIndex(Movie::getTitle);
+        darkKnight = new Movie("The Dark Knight", "Christopher Nolan", 2008, 152, null);
+        darkKnightRises = new Movie("The Dark  Knight Rises", "Christopher Nolan", 2012, 164, null);
+        amelie = new Movie("Am\u00e9lie", "Jean-Pierre Jeunet", 2001, 122, null);
+        index.addAll(Arrays.asList(darkKnightRises, amelie, darkKnight));
+    }
+
+    @Test
+    public void testFindIgnoresCaseAccentsAndWhitespace() {
+        assertEquals(Arrays.asList(darkKnight, darkKnightRises), index.find("the DARK   kn", 10));
+        assertEquals(Arrays.asList(amelie), index.find("ame", 10));
+        assertTrue(index.find("dark", 10).isEmpty());
+        assertTrue(index.find("  ", 10).isEmpty());
+    }
+
+    @Test
+    public void testFindStopsAtLimit() {
+        List<Movie> matches = index.find("the", 1);
+
+        assertEquals(Arrays.asList(darkKnight), matches);
+    }
+
+    @Test
+    public void testRemove() {
+        index.remove(darkKnight);
+
+        assertEquals(Arrays.asList(darkKnightRises), index.find("the dark", 10));
+    }
+
+    @Test
+    public void testNormalize() {
+        assertEquals("amelie poulain", PrefixIndex.normalize("  Am\u00e9lie\tPoulain "));
+    }
+}
@@ -0,0 +1,170 @@
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * The `RowHashIndex` class is a hash index from a key of movies, such as the title, to the rows of a catalog
+ * holding them, without keeping any `Movie` or boxed `Integer`. Rows are stored in an open-addressing table of
+ * primitive arrays with linear probing, next to the hash of their key, so a lookup compares cached hashes and only
+ * reads the catalog for the rows whose hash matches. The keys themselves are not stored: the caller passes a
+ * predicate telling whether the key at a row is the one looked up.
+ *
+ * A key may be held by several rows. Removed rows are deleted by shifting the following entries of their probe
+ * sequence back, so the table never fills up with deleted entries. The table is doubled when half full.
+ */
+public class RowHashIndex {
+
+    // Constants
+
+    private static final int EMPTY = -1;
+
+    // Fields
+
+    private int[] rows;
+    private int[] hashes;
+    private int size;
+
+    // Constructors
+
+    /**
+     * Constructs an empty `RowHashIndex`.
+     */
+    public RowHashIndex() {
+        this.rows = new int[16];
+        this.hashes = new int[16];
+        Arrays.fill(rows, EMPTY);
+    }
+
+    // Methods
+
+    /**
+     * Adds a row to the index.
+     *
+     * @param hash The hash of the key at the row.
+     * @param row  The row, which must not be negative.
+     * @throws IllegalArgumentException If the row is negative.
+     */
+    public void add(int hash, int row) {
+        if (row < 0) {
+            throw new IllegalArgumentException("Row cannot be a negative number");
+        }
+        if ((size + 1) * 2 > rows.length) {
+            resize(rows.length * 2);
+        }
+        insert(hash, row);
+        size++;
+    }
+
+    /**
+     * Removes a row from the index.
+     *
+     * @param hash The hash of the key at the row, as it was added.
+     * @param row  The row to remove.
+     * @return True if the row was found and removed, false otherwise.
+     */
+    public boolean remove(int hash, int row) {
+        int mask = rows.length - 1;
+        for (int slot = spread(hash) & mask; rows[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (rows[slot] == row && hashes[slot] == hash) {
+                delete(slot);
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds a row holding a key.
+     *
+     * @param hash    The hash of the key.
+     * @param matches Tells whether the key at a row with the same hash is the key looked up.
+     * @return A matching row, or -1 if no row holds the key.
+     */
+    public int find(int hash, IntPredicate matches) {
+        int mask = rows.length - 1;
+        for (int slot = spread(hash) & mask; rows[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && matches.test(rows[slot])) {
+                return rows[slot];
+            }
+        }
+        return EMPTY;
+    }
+
+    /**
+     * Finds the first row holding a key, for keys held by several rows.
+     *
+     * @param hash    The hash of the key.
+     * @param matches Tells whether the key at a row with the same hash is the key looked up.
+     * @return The lowest matching row, or -1 if no row holds the key.
+     */
+    public int findFirst(int hash, IntPredicate matches) {
+        int mask = rows.length - 1;
+        int first = EMPTY;
+        for (int slot = spread(hash) & mask; rows[slot] != EMPTY; slot = (slot + 1) & mask) {
+            int row = rows[slot];
+            if (hashes[slot] == hash && (first == EMPTY || row < first) && matches.test(row)) {
+                first = row;
+            }
+        }
+        return first;
+    }
+
+    /**
+     * Gets the number of rows in the index.
+     *
+     * @return The number of rows.
+     */
+    public int size() {
+        return size;
+    }
+
+    private void insert(int hash, int row) {
+        int mask = rows.length - 1;
+        int slot = spread(hash) & mask;
+        while (rows[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        rows[slot] = row;
+        hashes[slot] = hash;
+    }
+
+    /**
+     * Empties a slot, moving back every following entry of the cluster that would otherwise no longer be reached
+     * from its home slot.
+     */
+    private void delete(int slot) {
+        int mask = rows.length - 1;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            if (rows[next] == EMPTY) {
+                break;
+            }
+            int home = spread(hashes[next]) & mask;
+            boolean reachable = slot <= next ? slot < home && home <= next : slot < home || home <= next;
+            if (!reachable) {
+                rows[slot] = rows[next];
+                hashes[slot] = hashes[next];
+                slot = next;
+            }
+        }
+        rows[slot] = EMPTY;
+    }
+
+    private void resize(int capacity) {
+        int[] oldRows = rows;
+        int[] oldHashes = hashes;
+        rows = new int[capacity];
+        hashes = new int[capacity];
+        Arrays.fill(rows, EMPTY);
+        for (int slot = 0; slot < oldRows.length; slot++) {
+            if (oldRows[slot] != EMPTY) {
+                insert(oldHashes[slot], oldRows[slot]);
+            }
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
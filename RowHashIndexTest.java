@@ -0,0 +1,59 @@
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RowHashIndexTest {
+
+    @Test
+    public void testFindAfterGrowing() {
+        List<String> keys = new ArrayList<>();
+        RowHashIndex index = new RowHashIndex();
+        for (int row = 0; row < 1000; row++) {
+            keys.add("Title " + row);
+            index.add(keys.get(row).hashCode(), row);
+        }
+
+        assertEquals(1000, index.size());
+        assertEquals(737, index.find("Title 737".hashCode(), row -> keys.get(row).equals("Title 737")));
+        assertEquals(-1, index.find("Title 1000".hashCode(), row -> keys.get(row).equals("Title 1000")));
+    }
+
+    @Test
+    public void testFindFirstOfSeveralRows() {
+        RowHashIndex index = new RowHashIndex();
+        index.add(7, 5);
+        index.add(7, 2);
+        index.add(7, 9);
+
+        assertEquals(2, index.findFirst(7, row -> true));
+        assertEquals(5, index.findFirst(7, row -> row != 2));
+        assertEquals(-1, index.findFirst(8, row -> true));
+    }
+
+    @Test
+    public void testRemoveKeepsCollidingRowsReachable() {
+        RowHashIndex index = new RowHashIndex();
+        // hashes 1, 17 and 33 share the first slot of the table, and 2 is pushed past them
+        index.add(1, 0);
+        index.add(17, 1);
+        index.add(2, 2);
+        index.add(33, 3);
+
+        assertTrue(index.remove(17, 1));
+        assertFalse(index.remove(17, 1));
+        assertTrue(index.remove(1, 0));
+
+        assertEquals(-1, index.find(17, row -> true));
+        assertEquals(2, index.find(2, row -> true));
+        assertEquals(3, index.find(33, row -> true));
+        assertEquals(2, index.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeRow() {
+        new RowHashIndex().add(1, -1);
+    }
+}
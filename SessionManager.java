@@ -0,0 +1,168 @@
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * The `SessionManager` class issues session tokens to users who log in, so their later requests are authenticated
+ * by the token alone. Credentials are checked once against the `UserRepository` at login; the token is 256
+ * random bits from a `SecureRandom`, encoded in URL-safe Base64, and is mapped to its user in a
+ * `ConcurrentHashMap`, so authenticating a request is a single hash lookup that never reads the user store.
+ *
+ * A session expires once it has not been used for the idle timeout. Expired sessions are rejected when they are
+ * used, and swept from the map by the login that follows each idle timeout, so abandoned sessions do not pile up
+ * without a background thread.
+ */
+public class SessionManager {
+
+    // Constants
+
+    static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(30);
+    private static final int TOKEN_BYTES = 32;
+
+    // Fields
+
+    private UserRepository users;
+    private long idleTimeoutNanos;
+    private LongSupplier clock;
+    private SecureRandom random;
+    private Map<String, Session> sessions;
+    private volatile long lastSweep;
+
+    // Constructors
+
+    /**
+     * Constructs a `SessionManager` whose sessions expire after {@link #DEFAULT_IDLE_TIMEOUT} without use.
+     *
+     * @param users The repository the credentials are checked against.
+     */
+    public SessionManager(UserRepository users) {
+        this(users, DEFAULT_IDLE_TIMEOUT);
+    }
+
+    /**
+     * Constructs a `SessionManager`.
+     *
+     * @param users       The repository the credentials are checked against.
+     * @param idleTimeout The time after which an unused session expires.
+     * @throws IllegalArgumentException If the idle timeout is not positive.
+     */
+    public SessionManager(UserRepository users, Duration idleTimeout) {
+        this(users, idleTimeout, System::nanoTime);
+    }
+
+    SessionManager(UserRepository users, Duration idleTimeout, LongSupplier clock) {
+        if (idleTimeout.isNegative() || idleTimeout.isZero()) {
+            throw new IllegalArgumentException("Idle timeout must be positive");
+        }
+        this.users = users;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.clock = clock;
+        this.random = new SecureRandom();
+        this.sessions = new ConcurrentHashMap<>();
+        this.lastSweep = clock.getAsLong();
+    }
+
+    // Methods
+
+    /**
+     * Checks the credentials of a user and opens a session for them.
+     *
+     * @param username The username.
+     * @param password The password.
+     * @return The token of the new session, or null if the credentials do not match a registered user.
+     * @throws IOException If the user store cannot be read.
+     */
+    public String login(String username, String password) throws IOException {
+        long now = clock.getAsLong();
+        if (now - lastSweep >= idleTimeoutNanos) {
+            lastSweep = now;
+            removeExpired();
+        }
+        if (!users.checkCredentials(username, password)) {
+            return null;
+        }
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        sessions.put(token, new Session(users.findByUsername(username), now));
+        return token;
+    }
+
+    /**
+     * Finds the user of a session and marks the session as used.
+     *
+     * @param token The token of the session.
+     * @return The user of the session, or null if the token is unknown or the session has expired.
+     */
+    public User authenticate(String token) {
+        if (token == null) {
+            return null;
+        }
+        Session session = sessions.get(token);
+        if (session == null) {
+            return null;
+        }
+        long now = clock.getAsLong();
+        if (now - session.lastUsed >= idleTimeoutNanos) {
+            sessions.remove(token, session);
+            return null;
+        }
+        session.lastUsed = now;
+        return session.user;
+    }
+
+    /**
+     * Closes a session. Closing an unknown session has no effect.
+     *
+     * @param token The token of the session.
+     * @return True if the session was open.
+     */
+    public boolean logout(String token) {
+        return token != null && sessions.remove(token) != null;
+    }
+
+    /**
+     * Removes every session that has expired.
+     *
+     * @return The number of sessions removed.
+     */
+    public int removeExpired() {
+        long now = clock.getAsLong();
+        int removed = 0;
+        for (Iterator<Session> iterator = sessions.values().iterator(); iterator.hasNext(); ) {
+            if (now - iterator.next().lastUsed >= idleTimeoutNanos) {
+                iterator.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Gets the number of sessions in the map, including expired sessions that have not been removed yet.
+     *
+     * @return The number of sessions.
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * An open session: its user and the time it was last used, by the clock of the manager.
+     */
+    private static class Session {
+
+        private final User user;
+        private volatile long lastUsed;
+
+        Session(User user, long lastUsed) {
+            this.user = user;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
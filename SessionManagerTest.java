@@ -0,0 +1,73 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.junit.Assert.*;
+
+public class SessionManagerTest {
+
+    private static final String USER_FILE = "Tests/testSessionUsers.dat";
+
+    private UserRepository users;
+    private long now;
+    private SessionManager sessions;
+
+    @Before
+    public void setUp() throws IOException {
+        users = new UserRepository(USER_FILE);
+        users.register(new User("alice", "password123"));
+        sessions = new SessionManager(users, Duration.ofMinutes(30), () -> now);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        users.close();
+        new File(USER_FILE).delete();
+        new File(USER_FILE + ".idx").delete();
+    }
+
+    @Test
+    public void testLoginIssuesDistinctTokens() throws IOException {
+        String first = sessions.login("alice", "password123");
+        String second = sessions.login("alice", "password123");
+
+        assertNotNull(first);
+        assertNotEquals(first, second);
+        assertSame(users.findByUsername("alice"), sessions.authenticate(first));
+        assertNull(sessions.login("alice", "wrongpassword"));
+        assertNull(sessions.login("bob", "password123"));
+        assertNull(sessions.authenticate("unknown"));
+        assertNull(sessions.authenticate(null));
+    }
+
+    @Test
+    public void testSessionsExpireWhenIdle() throws IOException {
+        String token = sessions.login("alice", "password123");
+
+        now += Duration.ofMinutes(20).toNanos();
+        assertNotNull(sessions.authenticate(token));
+        now += Duration.ofMinutes(20).toNanos();
+        assertNotNull(sessions.authenticate(token));
+        now += Duration.ofMinutes(30).toNanos();
+        assertNull(sessions.authenticate(token));
+        assertEquals(0, sessions.size());
+    }
+
+    @Test
+    public void testExpiredSessionsAreSwept() throws IOException {
+        sessions.login("alice", "password123");
+        sessions.login("alice", "password123");
+
+        now += Duration.ofMinutes(31).toNanos();
+        String token = sessions.login("alice", "password123");
+
+        assertEquals(1, sessions.size());
+        assertTrue(sessions.logout(token));
+        assertFalse(sessions.logout(token));
+        assertNull(sessions.authenticate(token));
+    }
+}
@@ -0,0 +1,221 @@
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.function.ToIntFunction;
+
+/**
+ * The `SortedIntColumn` class answers range queries over an integer field of movies, such as the year or the
+ * running time, without touching `Movie` objects. The field values are copied into a primitive array sorted in
+ * ascending order, with a parallel permutation array holding the ID of the movie each value belongs to; equal
+ * values are ordered by movie ID. A range query finds both ends of the range by binary search and returns the IDs
+ * in between as a bit set, so several ranges can be intersected with `BitSet.and`.
+ *
+ * Adding or removing a movie shifts the tail of the arrays, which is a single memory move per mutation.
+ */
+public class SortedIntColumn {
+
+    // Fields
+
+    private ToIntFunction<Movie> key;
+    private int[] values;
+    private int[] ids;
+    private int size;
+
+    // Constructors
+
+    /**
+     * Constructs an empty `SortedIntColumn` over the specified movie field.
+     *
+     * @param key The function extracting the indexed field of a movie, such as `Movie::getYear`.
+     */
+    public SortedIntColumn(ToIntFunction<Movie> key) {
+        this.key = key;
+        this.values = new int[16];
+        this.ids = new int[16];
+    }
+
+    // Methods
+
+    /**
+     * Adds every movie of a collection to the column, sorting the column once.
+     *
+     * @param newMovies The movies to add.
+     */
+    public void addAll(Collection<Movie> newMovies) {
+        long[] entries = new long[size + newMovies.size()];
+        for (int i = 0; i < size; i++) {
+            entries[i] = entry(values[i], ids[i]);
+        }
+        int count = size;
+        for (Movie movie : newMovies) {
+            entries[count++] = entry(key.applyAsInt(movie), movie.getId());
+        }
+        Arrays.sort(entries);
+        values = new int[Math.max(16, entries.length)];
+        ids = new int[values.length];
+        for (int i = 0; i < entries.length; i++) {
+            values[i] = (int) (entries[i] >> 32);
+            ids[i] = (int) entries[i];
+        }
+        size = entries.length;
+    }
+
+    /**
+     * Adds a movie to the column. The movie must have been given an ID by a `MovieDatabase`.
+     *
+     * @param movie The movie to add.
+     */
+    public void add(Movie movie) {
+        int value = key.applyAsInt(movie);
+        int position = search(value, movie.getId());
+        if (position >= 0) {
+            return;
+        }
+        position = -position - 1;
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        System.arraycopy(values, position, values, position + 1, size - position);
+        System.arraycopy(ids, position, ids, position + 1, size - position);
+        values[position] = value;
+        ids[position] = movie.getId();
+        size++;
+    }
+
+    /**
+     * Removes a movie from the column.
+     *
+     * @param movie The movie to remove.
+     */
+    public void remove(Movie movie) {
+        int position = search(key.applyAsInt(movie), movie.getId());
+        if (position < 0) {
+            return;
+        }
+        System.arraycopy(values, position + 1, values, position, size - position - 1);
+        System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+        size--;
+    }
+
+    /**
+     * Finds the movies whose field lies in a range.
+     *
+     * @param from The smallest value of the range, inclusive.
+     * @param to   The largest value of the range, inclusive.
+     * @return The set of the IDs of the matching movies.
+     */
+    public BitSet range(int from, int to) {
+        BitSet matches = new BitSet();
+        int end = upperBound(to);
+        for (int i = lowerBound(from); i < end; i++) {
+            matches.set(ids[i]);
+        }
+        return matches;
+    }
+
+    /**
+     * Copies a slice of the IDs of the movies whose field lies in a range, in ascending order of the field and then
+     * of ID. The slice is located by position, so only its own IDs are copied, however far into the range it lies.
+     *
+     * @param from  The smallest value of the range, inclusive.
+     * @param to    The largest value of the range, inclusive.
+     * @param skip  The number of matching movies to skip.
+     * @param count The largest number of IDs to copy.
+     * @return The IDs of the matching movies in the slice, in order.
+     */
+    public int[] idsInRange(int from, int to, long skip, int count) {
+        int start = lowerBound(from);
+        int end = upperBound(to);
+        if (skip >= end - start) {
+            return new int[0];
+        }
+        start += (int) skip;
+        return Arrays.copyOfRange(ids, start, (int) Math.min(end, (long) start + count));
+    }
+
+    /**
+     * Counts the movies whose field lies in a range, in logarithmic time.
+     *
+     * @param from The smallest value of the range, inclusive.
+     * @param to   The largest value of the range, inclusive.
+     * @return The number of matching movies.
+     */
+    public int count(int from, int to) {
+        return Math.max(0, upperBound(to) - lowerBound(from));
+    }
+
+    /**
+     * Gets the number of movies in the column.
+     *
+     * @return The number of movies.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds the first position whose value is at least the given value.
+     */
+    private int lowerBound(int value) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds the first position whose value is greater than the given value.
+     */
+    private int upperBound(int value) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] <= value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Binary searches the position of a value and movie ID pair.
+     *
+     * @return The position of the pair, or `-(insertion point) - 1` if it is not in the column.
+     */
+    private int search(int value, int id) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = values[middle] != value
+                    ? Integer.compare(values[middle], value)
+                    : Integer.compare(ids[middle], id);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Packs a value and a movie ID into a long that sorts by value, then by ID.
+     */
+    private static long entry(int value, int id) {
+        return ((long) value << 32) | (id & 0xFFFFFFFFL);
+    }
+}
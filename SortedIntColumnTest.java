@@ -0,0 +1,84 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import static org.junit.Assert.*;
+
+public class SortedIntColumnTest {
+
+    private SortedIntColumn column;
+    private Movie movie1;
+    private Movie movie2;
+    private Movie movie3;
+
+    @Before
+    public void setUp() {
+        column = new SortedIntColumn(Movie::getYear);
+        movie1 = new Movie("Movie 1", "Director 1", 1995, 120, null);
+        movie2 = new Movie("Movie 2", "Director 2", 1989, 90, null);
+        movie3 = new Movie("Movie 3", "Director 3", 1995, 150, null);
+        movie1.setId(1);
+        movie2.setId(2);
+        movie3.setId(3);
+        column.addAll(Arrays.asList(movie3, movie1));
+    }
+
+    @Test
+    public void testRangeIsInclusive() {
+        column.add(movie2);
+
+        assertEquals(bits(1, 3), column.range(1990, 1995));
+        assertEquals(bits(1, 2, 3), column.range(1989, 1995));
+        assertEquals(bits(), column.range(1996, 2000));
+        assertEquals(bits(), column.range(1995, 1990));
+    }
+
+    @Test
+    public void testCount() {
+        column.add(movie2);
+
+        assertEquals(2, column.count(1995, 1995));
+        assertEquals(3, column.count(Integer.MIN_VALUE, Integer.MAX_VALUE));
+        assertEquals(0, column.count(2000, 1990));
+        assertEquals(3, column.size());
+    }
+
+    @Test
+    public void testRemove() {
+        column.remove(movie1);
+        column.remove(movie2);
+
+        assertEquals(bits(3), column.range(1995, 1995));
+        assertEquals(1, column.size());
+    }
+
+    @Test
+    public void testIdsInRangeSlice() {
+        column.add(movie2);
+
+        assertArrayEquals(new int[]{2, 1, 3}, column.idsInRange(1980, 2000, 0, 10));
+        assertArrayEquals(new int[]{1}, column.idsInRange(1980, 2000, 1, 1));
+        assertArrayEquals(new int[]{3}, column.idsInRange(1995, 1995, 1, 10));
+        assertArrayEquals(new int[0], column.idsInRange(1995, 1995, 2, 10));
+        assertArrayEquals(new int[0], column.idsInRange(2000, 1990, 0, 10));
+    }
+
+    @Test
+    public void testNegativeValues() {
+        SortedIntColumn negative = new SortedIntColumn(movie -> -movie.getYear());
+        negative.addAll(Arrays.asList(movie1, movie2, movie3));
+
+        assertEquals(bits(2), negative.range(-1989, -1989));
+        assertEquals(bits(1, 3), negative.range(Integer.MIN_VALUE, -1990));
+    }
+
+    private static BitSet bits(int... ids) {
+        BitSet bits = new BitSet();
+        for (int id : ids) {
+            bits.set(id);
+        }
+        return bits;
+    }
+}
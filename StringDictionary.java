@@ -0,0 +1,206 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The `StringDictionary` class maps each distinct string of a column, such as the directors or the photo
+ * directories of a catalog, to a dense `int` code and keeps a single instance of each string.
+ * Codes are given in order of first appearance and never change, so they can be stored in place of the strings.
+ * The dictionary also ranks its strings in alphabetical order: comparing the ranks of two codes gives the same
+ * result as comparing their strings, so movies can be sorted and grouped on `int`s instead of strings.
+ * Ranks are computed again after new strings have been added, the next time one is requested. The ranks of the
+ * strings already ranked keep their relative order when strings are added, so {@link #compare} keeps comparing
+ * them on their ranks in the meantime and only compares the new strings by their characters.
+ * Strings are only ever appended to the array holding them, and a full array is replaced by a larger copy, so
+ * a read-only {@link #view()} of the dictionary can be read while the dictionary keeps growing.
+ */
+public class StringDictionary {
+
+    // Constants
+
+    /**
+     * The code of the null string, which ranks before every other string.
+     */
+    public static final int NULL_CODE = -1;
+
+    // Fields
+
+    private String[] strings;
+    private int size;
+    private Map<String, Integer> codes;
+    private int[] ranks;
+
+    // Constructors
+
+    /**
+     * Constructs an empty `StringDictionary`.
+     */
+    public StringDictionary() {
+        this.strings = new String[16];
+        this.codes = new HashMap<>();
+    }
+
+    // Methods
+
+    /**
+     * Gets the code of a string, adding the string to the dictionary if it is not in it yet.
+     *
+     * @param string The string to encode, may be null.
+     * @return The code of the string, or {@link #NULL_CODE} for null.
+     * @throws UnsupportedOperationException If the dictionary is a view.
+     */
+    public int encode(String string) {
+        if (string == null) {
+            return NULL_CODE;
+        }
+        if (codes == null) {
+            throw new UnsupportedOperationException("A view of a dictionary cannot encode strings");
+        }
+        Integer code = codes.get(string);
+        if (code == null) {
+            code = size;
+            if (size == strings.length) {
+                strings = Arrays.copyOf(strings, size * 2);
+            }
+            strings[size++] = string;
+            codes.put(string, code);
+        }
+        return code;
+    }
+
+    /**
+     * Gets the string of a code.
+     *
+     * @param code The code of the string.
+     * @return The string, or null for {@link #NULL_CODE}.
+     * @throws IndexOutOfBoundsException If the code is not in the dictionary.
+     */
+    public String decode(int code) {
+        if (code == NULL_CODE) {
+            return null;
+        }
+        if (code < 0 || code >= size) {
+            throw new IndexOutOfBoundsException("Code: " + code + ", Size: " + size);
+        }
+        return strings[code];
+    }
+
+    /**
+     * Gets the single instance the dictionary keeps of a string, adding the string if needed.
+     * Replacing equal strings with this instance lets them share memory and compare by reference.
+     *
+     * @param string The string to intern, may be null.
+     * @return The instance of the dictionary equal to the string, or null.
+     */
+    public String intern(String string) {
+        return decode(encode(string));
+    }
+
+    /**
+     * Gets the alphabetical rank of the string of a code: lower ranks belong to strings that sort first.
+     *
+     * @param code The code of the string.
+     * @return The rank of the string, from 0, or -1 for {@link #NULL_CODE}.
+     */
+    public int rank(int code) {
+        if (code == NULL_CODE) {
+            return -1;
+        }
+        rankAll();
+        return ranks[code];
+    }
+
+    /**
+     * Ranks every string of the dictionary, unless none has been added since the strings were last ranked.
+     */
+    public void rankAll() {
+        if (!isRanked()) {
+            Integer[] byName = new Integer[size];
+            for (int i = 0; i < byName.length; i++) {
+                byName[i] = i;
+            }
+            Arrays.sort(byName, (a, b) -> strings[a].compareTo(strings[b]));
+            int[] newRanks = new int[byName.length];
+            for (int rank = 0; rank < byName.length; rank++) {
+                newRanks[byName[rank]] = rank;
+            }
+            ranks = newRanks;
+        }
+    }
+
+    /**
+     * Checks whether every string of the dictionary has a rank, so ranking them would not change anything.
+     *
+     * @return True if no string has been added since the strings were last ranked.
+     */
+    public boolean isRanked() {
+        return ranks != null && ranks.length == size;
+    }
+
+    /**
+     * Compares two strings in alphabetical order, with null first. Strings of the dictionary that have been ranked
+     * are compared on their ranks, without reading their characters; other strings are compared by `compareTo`.
+     * Ranks are not recomputed, so the comparison does not modify the dictionary.
+     *
+     * @param a The first string, may be null.
+     * @param b The second string, may be null.
+     * @return A negative number, zero or a positive number as the first string sorts before, with or after the second.
+     */
+    public int compare(String a, String b) {
+        if (a == b) {
+            return 0;
+        }
+        if (a == null || b == null) {
+            return a == null ? -1 : 1;
+        }
+        int[] ranked = ranks;
+        if (ranked != null && codes != null) {
+            Integer codeA = codes.get(a);
+            Integer codeB = codes.get(b);
+            if (codeA != null && codeB != null && codeA < ranked.length && codeB < ranked.length) {
+                return Integer.compare(ranked[codeA], ranked[codeB]);
+            }
+        }
+        return a.compareTo(b);
+    }
+
+    /**
+     * Gets the number of distinct strings in the dictionary.
+     *
+     * @return The number of strings.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Copies the dictionary. The copy gives the same codes to the strings already in the dictionary.
+     *
+     * @return An independent copy of the dictionary.
+     */
+    public StringDictionary copy() {
+        StringDictionary copy = new StringDictionary();
+        copy.strings = Arrays.copyOf(strings, Math.max(16, size));
+        copy.size = size;
+        for (int code = 0; code < size; code++) {
+            copy.codes.put(strings[code], code);
+        }
+        copy.ranks = ranks;
+        return copy;
+    }
+
+    /**
+     * Creates a read-only view of the strings currently in the dictionary, sharing their array instead of copying
+     * it. Strings added to the dictionary afterwards are not part of the view.
+     *
+     * @return A view of the dictionary, which cannot encode new strings.
+     */
+    public StringDictionary view() {
+        StringDictionary view = new StringDictionary();
+        view.strings = strings;
+        view.size = size;
+        view.codes = null;
+        view.ranks = ranks;
+        return view;
+    }
+}
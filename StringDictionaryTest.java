@@ -0,0 +1,100 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StringDictionaryTest {
+
+    private StringDictionary dictionary;
+
+    @Before
+    public void setUp() {
+        dictionary = new StringDictionary();
+    }
+
+    @Test
+    public void testEncodeAndDecode() {
+        int nolan = dictionary.encode("Christopher Nolan");
+        int cameron = dictionary.encode("James Cameron");
+
+        assertEquals(0, nolan);
+        assertEquals(1, cameron);
+        assertEquals(nolan, dictionary.encode(new String("Christopher Nolan")));
+        assertEquals("James Cameron", dictionary.decode(cameron));
+        assertEquals(StringDictionary.NULL_CODE, dictionary.encode(null));
+        assertNull(dictionary.decode(StringDictionary.NULL_CODE));
+        assertEquals(2, dictionary.size());
+    }
+
+    @Test
+    public void testInternReturnsOneInstance() {
+        String first = dictionary.intern(new String("Frank Darabont"));
+
+        assertSame(first, dictionary.intern(new String("Frank Darabont")));
+        assertNull(dictionary.intern(null));
+    }
+
+    @Test
+    public void testRanksFollowAlphabeticalOrder() {
+        int nolan = dictionary.encode("Nolan");
+        int cameron = dictionary.encode("Cameron");
+        assertTrue(dictionary.rank(cameron) < dictionary.rank(nolan));
+
+        int darabont = dictionary.encode("Darabont");
+
+        assertEquals(0, dictionary.rank(cameron));
+        assertEquals(1, dictionary.rank(darabont));
+        assertEquals(2, dictionary.rank(nolan));
+        assertEquals(-1, dictionary.rank(StringDictionary.NULL_CODE));
+    }
+
+    @Test
+    public void testCompareUsesRanksAndNewStrings() {
+        dictionary.encode("Nolan");
+        dictionary.encode("Cameron");
+        dictionary.rankAll();
+        dictionary.encode("Darabont");
+
+        assertFalse(dictionary.isRanked());
+        assertTrue(dictionary.compare("Cameron", "Nolan") < 0);
+        assertTrue(dictionary.compare("Nolan", "Darabont") > 0);
+        assertTrue(dictionary.compare("Darabont", "Zemeckis") < 0);
+        assertTrue(dictionary.compare(null, "Cameron") < 0);
+        assertEquals(0, dictionary.compare("Nolan", new String("Nolan")));
+        assertFalse(dictionary.isRanked());
+
+        dictionary.rankAll();
+        assertTrue(dictionary.isRanked());
+        assertTrue(dictionary.compare("Cameron", "Darabont") < 0);
+    }
+
+    @Test
+    public void testCopyIsIndependent() {
+        dictionary.encode("Nolan");
+        StringDictionary copy = dictionary.copy();
+        copy.encode("Cameron");
+
+        assertEquals(1, dictionary.size());
+        assertEquals(0, copy.encode("Nolan"));
+        assertEquals(0, copy.rank(1));
+    }
+
+    @Test
+    public void testViewIsNotAffectedByLaterStrings() {
+        dictionary.encode("Nolan");
+        StringDictionary view = dictionary.view();
+        for (int i = 0; i < 40; i++) {
+            dictionary.encode("Director " + i);
+        }
+
+        assertEquals(1, view.size());
+        assertEquals("Nolan", view.decode(0));
+        assertEquals(41, dictionary.size());
+        try {
+            view.encode("Cameron");
+            fail("A view cannot encode strings");
+        } catch (UnsupportedOperationException e) {
+            assertEquals(1, view.size());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * The `TopK` class keeps the first `k` movies offered to it in the order of a comparator, without sorting the
+ * others. The movies are held in a bounded heap whose root is the worst movie kept, so a movie that does not
+ * make the cut is rejected with one comparison and a movie that does replaces the root in O(log k). Selecting
+ * from n movies takes O(n log k) time and O(k) memory.
+ *
+ * Partial selections can be merged, so a `TopK` can be used as the container of a parallel stream collection:
+ * each fork-join task selects from its part of the movies and the results are merged pairwise.
+ */
+public class TopK {
+
+    // Fields
+
+    private Comparator<Movie> comparator;
+    private int k;
+    private PriorityQueue<Movie> heap;
+
+    // Constructors
+
+    /**
+     * Constructs an empty `TopK`.
+     *
+     * @param comparator The order of the movies; the first movies in this order are kept.
+     * @param k          The number of movies to keep.
+     * @throws IllegalArgumentException If `k` is negative.
+     */
+    public TopK(Comparator<Movie> comparator, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("K cannot be a negative number");
+        }
+        this.comparator = comparator;
+        this.k = k;
+        this.heap = new PriorityQueue<>(Math.max(1, Math.min(k, 1024)), comparator.reversed());
+    }
+
+    // Methods
+
+    /**
+     * Offers a movie, which is kept if it is among the first `k` movies offered so far.
+     *
+     * @param movie The movie to offer.
+     */
+    public void add(Movie movie) {
+        if (heap.size() < k) {
+            heap.add(movie);
+        } else if (k > 0 && comparator.compare(movie, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(movie);
+        }
+    }
+
+    /**
+     * Offers every movie kept by another `TopK` with the same comparator and `k`.
+     *
+     * @param other The selection to merge into this one.
+     */
+    public void merge(TopK other) {
+        for (Movie movie : other.heap) {
+            add(movie);
+        }
+    }
+
+    /**
+     * Gets the movies kept.
+     *
+     * @return A new list of at most `k` movies, in the order of the comparator.
+     */
+    public List<Movie> toList() {
+        List<Movie> first = new ArrayList<>(heap);
+        Collections.sort(first, comparator);
+        return first;
+    }
+}
@@ -0,0 +1,59 @@
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TopKTest {
+
+    private static final Comparator<Movie> LONGEST_FIRST =
+            Comparator.comparingInt(Movie::getRunningTime).reversed().thenComparing(Movie::getTitle);
+
+    @Test
+    public void testKeepsFirstMoviesInOrder() {
+        Movie shortMovie = new Movie("Short", "Director", 2000, 80, null);
+        Movie mediumMovie = new Movie("Medium", "Director", 2000, 120, null);
+        Movie longMovie = new Movie("Long", "Director", 2000, 180, null);
+        TopK top = new TopK(LONGEST_FIRST, 2);
+        for (Movie movie : Arrays.asList(mediumMovie, shortMovie, longMovie)) {
+            top.add(movie);
+        }
+
+        assertEquals(Arrays.asList(longMovie, mediumMovie), top.toList());
+    }
+
+    @Test
+    public void testMergeMatchesSortingEverything() {
+        Random random = new Random(3);
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            movies.add(new Movie("Movie " + i, "Director", 2000, random.nextInt(300), null));
+        }
+        TopK left = new TopK(LONGEST_FIRST, 10);
+        TopK right = new TopK(LONGEST_FIRST, 10);
+        movies.subList(0, 500).forEach(left::add);
+        movies.subList(500, 1000).forEach(right::add);
+        left.merge(right);
+
+        List<Movie> sorted = new ArrayList<>(movies);
+        sorted.sort(LONGEST_FIRST);
+        assertEquals(sorted.subList(0, 10), left.toList());
+    }
+
+    @Test
+    public void testZeroK() {
+        TopK top = new TopK(LONGEST_FIRST, 0);
+        top.add(new Movie());
+
+        assertTrue(top.toList().isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeK() {
+        new TopK(LONGEST_FIRST, -1);
+    }
+}
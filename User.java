@@ -5,9 +5,14 @@ import java.util.List;
 /**
  * The `User` class represents a user in the movie application, with a username, password, and watchlist.
  * It provides methods for user registration, login validation, managing the watchlist, and interacting with the user database.
+ * Accounts are kept in the shared `UserRepository`, so login and registration do not depend on the number of users.
  */
 public class User implements Serializable {
 
+    // Constants
+
+    private static final long serialVersionUID = 4652281747055300070L;
+
     // Fields
 
     private String username;
@@ -116,17 +121,11 @@ public class User implements Serializable {
      * @throws Exception If there is an issue during user registration.
      */
     public static void register(String username, String password) throws Exception {
-        User user = new User();
-        user.setUsername(username);
-        user.setPassword(password);
-
-        List<User> existingUsers = loadFromDatabase();
+        User user = new User(username, password);
 
-        if (userExists(existingUsers, username)) {
+        if (!UserRepository.getDefault().register(user)) {
             throw new IllegalArgumentException("Username already exists. Please choose a different username.");
         }
-        existingUsers.add(new User(username, password));
-        saveToDatabase(existingUsers);
 
         //System.out.println("Registration successful.");
     }
@@ -139,15 +138,12 @@ public class User implements Serializable {
      * @return True if the user exists, false otherwise.
      */
     public boolean checkLogin(String username, String password) {
-        List<User> users = loadFromDatabase();
-
-        for (User user : users) {
-            if (user.getUsername().equals(username) && user.getPassword().equals(password)) {
-                return true; // Username and password match
-            }
+        try {
+            return UserRepository.getDefault().checkCredentials(username, password); // Username and password match
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
         }
-
-        return false; // No matching username and password found
     }
 
     /**
@@ -197,59 +193,4 @@ public class User implements Serializable {
         }
         return watchlist;
     }
-
-    /**
-     * Checks if a username already exists in the list of users.
-     *
-     * @param existingUsers List of existing users to search through.
-     * @param username      The username to check for existence.
-     * @return {@code true} if the username exists in the list, {@code false} otherwise.
-     */
-    private static boolean userExists(List<User> existingUsers, String username) {
-        for (User user : existingUsers) {
-            if (user.getUsername().equals(username)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-
-    
-    /**
-     * Saves a list of users to a database file using serialization.
-     *
-     * @param users The list of users to be saved in the database file.
-     */
-    private static void saveToDatabase(List<User> users) {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream("Database/UserDatabase.txt"))) {
-            for (User user : users) {
-                oos.writeObject(user);
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-    }
-
-    /**
-     * Loads a list of users from a database file using deserialization.
-     *
-     * @return The list of users loaded from the database file.
-     */
-    private static List<User> loadFromDatabase() {
-        List<User> users = new ArrayList<>();
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream("Database/UserDatabase.txt"))) {
-            while (true) {
-                try {
-                    User user = (User) ois.readObject();
-                    users.add(user);
-                } catch (EOFException e) {
-                    break;
-                }
-            }
-        } catch (IOException | ClassNotFoundException e) {
-            e.printStackTrace();
-        }
-        return users;
-    }
 }
@@ -1,21 +1,21 @@
 import javax.swing.*;
 import javax.swing.border.TitledBorder;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseWheelEvent;
 import java.awt.event.MouseWheelListener;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletionException;
 
 /**
  * The UserGUI class represents the graphical user interface for the SubwaySurfers application.
@@ -29,13 +29,20 @@ import java.util.List;
 public class UserGUI extends JFrame {
 
     // Fields and constructors...
+    private static final int SEARCH_RESULT_LIMIT = 50;
+    private static final String WATCHLIST_FOLDER = "UserWatchlists/";
     private JTextField usernameField;
     private JPasswordField passwordField;
     private User user;
     private MovieDatabase movieDatabase;
     private List<Movie> selectedMovies;
-    private static final String USERS_DATA_FILE = "Database/users.ser";
-    private List<User> users;
+    private Collection<Movie> sortedMovies;
+    private Collection<Movie> displayedMovies;
+    private String searchQuery = "";
+    private UserRepository userRepository;
+    private SessionManager sessionManager;
+    private String sessionToken;
+    private WatchlistManager watchlistManager;
     private JFrame movieInfoFrame;
     private JLabel filterStatusLabel;
 
@@ -64,9 +71,8 @@ public class UserGUI extends JFrame {
  * - Initializes "Register" and "Login" buttons with specific colors, styles, and padding.
  * - Adds components to the login panel, including labels, text fields, and buttons.
  * - Adds the login panel to the main panel in the north position.
- * - Loads user data using the loadUsersData method.
  * - Initializes the user field with a new User instance.
- * - Initializes the users field with the loaded user data or an empty list.
+ * - Opens the shared UserRepository that holds the registered users.
  * - Initializes the selectedMovies field with an empty ArrayList.
  *
  * @param movieDatabase The MovieDatabase used in the application.
@@ -121,8 +127,16 @@ public class UserGUI extends JFrame {
 
         this.movieDatabase = movieDatabase;
         user = new User();
-        users = loadUsersData();
+        try {
+            userRepository = UserRepository.getDefault();
+            sessionManager = new SessionManager(userRepository);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error opening the user database", e);
+        }
+        watchlistManager = new WatchlistManager(movieDatabase, WATCHLIST_FOLDER);
         selectedMovies = new ArrayList<>();
+        sortedMovies = movieDatabase.getMovies();
+        displayedMovies = sortedMovies;
 
         // Existing ActionListener code
         /**
@@ -134,7 +148,7 @@ public class UserGUI extends JFrame {
          * Action Details:
          * - Retrieves the entered username and password from the usernameField and passwordField.
          * - Checks if a user with the entered username already exists using the findUserByUsername method.
-         * - If the username is unique, creates a new User object, adds it to the users list, and saves the updated user data.
+         * - If the username is unique, creates a new User object and registers it in the user repository.
          * - Displays a custom success dialog with an icon and a message if registration is successful.
          * - If the username already exists, throws an IllegalArgumentException and displays a custom error dialog.
          * - The error dialog includes a specific error message obtained from the thrown exception.
@@ -160,8 +174,7 @@ public class UserGUI extends JFrame {
                 try {
                     if (findUserByUsername(username) == null) {
                         User newUser = new User(username, password);
-                        users.add(newUser);
-                        saveUsersData();
+                        registerUser(newUser);
         
                         // Custom success dialog with specified font, color, and style
                         JDialog successDialog = new JDialog();
@@ -231,8 +244,8 @@ public class UserGUI extends JFrame {
          *
          * Action Details:
          * - Retrieves the entered username and password from the usernameField and passwordField.
-         * - Attempts to find a user with the entered username using the findUserByUsername method.
-         * - If a user is found and the entered password matches, sets the user field, loads watchlist data,
+         * - Opens a session for the entered credentials using the logIn method.
+         * - If the credentials match a user, sets the user field to the user of the session, loads watchlist data,
          *   shows the movie information frame, and disposes of the current JFrame.
          * - Displays a custom success dialog with an icon and a message if login is successful.
          * - If the username or password is invalid, throws an IllegalArgumentException and displays a custom error dialog.
@@ -254,12 +267,12 @@ public class UserGUI extends JFrame {
             public void actionPerformed(ActionEvent e) {
                 String username = usernameField.getText();
                 String password = new String(passwordField.getPassword());
-                User loggedInUser = findUserByUsername(username);
+                User loggedInUser = logIn(username, password);
         
                 try {
-                    if (loggedInUser != null && loggedInUser.getPassword().equals(password)) {
+                    if (loggedInUser != null) {
                         user = loggedInUser;
-                        loadWatchlistData();
+                        getWatchlist(); // Load the watchlist before showing the movies
                         showMovieInfoFrame();
         
                         // Custom success dialog with specified font, color, and style
@@ -330,7 +343,7 @@ public class UserGUI extends JFrame {
          *
          * This method adds the main panel to the frame, adjusts the frame size based on the
          * components added, disables frame resizing, centers the frame on the screen, and sets
-         * it to be visible. Additionally, it loads the user's watchlist data, and initializes
+         * it to be visible. Additionally, it initializes
          * the filterStatusLabel with an initial text, adding it to the bottom of the main panel.
          */     
         add(panel);
@@ -338,99 +351,118 @@ public class UserGUI extends JFrame {
         setResizable(false); // Disable frame resizing
         setLocationRelativeTo(null); // Center the frame on the screen
         setVisible(true);
-        loadWatchlistData();
         filterStatusLabel = new JLabel("Filter By: Title"); // Initial text
         panel.add(filterStatusLabel, BorderLayout.SOUTH);
     }
 
     /**
-     * Loads user data from the serialized file.
+     * Checks the credentials of a user once through the session manager and opens a session for them. The token
+     * of the session is kept until the user logs out.
      *
-     * @return A List of User objects loaded from the file.
+     * @param username The username of the user.
+     * @param password The password of the user.
+     * @return The user of the new session, or null if the credentials do not match a registered user.
      */
-    @SuppressWarnings("unchecked")
-    private List<User> loadUsersData() {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(USERS_DATA_FILE))) {
-            return (List<User>) ois.readObject();
-        } catch (FileNotFoundException e) {
-            return new ArrayList<>();
-        } catch (IOException | ClassNotFoundException e) {
+    private User logIn(String username, String password) {
+        try {
+            String token = sessionManager.login(username, password);
+            User loggedInUser = sessionManager.authenticate(token);
+            if (loggedInUser != null) {
+                logOut();
+                sessionToken = token;
+            }
+            return loggedInUser;
+        } catch (IOException e) {
             e.printStackTrace();
-            return new ArrayList<>();
+            return null;
         }
     }
 
     /**
-     * Saves the current list of users to a serialized file.
+     * Closes the session of the logged-in user, if any, so its token can no longer be used.
      */
-    private void saveUsersData() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(USERS_DATA_FILE))) {
-            oos.writeObject(users);
-        } catch (IOException e) {
-            e.printStackTrace();
+    private void logOut() {
+        if (sessionToken != null) {
+            sessionManager.logout(sessionToken);
+            sessionToken = null;
         }
     }
 
     /**
-     * Finds a user by their username in the list of users.
+     * Finds a user by their username in the user repository.
      *
      * @param username The username to search for.
      * @return The User object if found, or null if not found.
      */
     private User findUserByUsername(String username) {
-        for (User u : users) {
-            if (u.getUsername().equals(username)) {
-                return u;
-            }
+        try {
+            return userRepository.findByUsername(username);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
         }
-        return null;
     }
 
     /**
-     * Loads the user's watchlist data from a serialized file.
+     * Registers a new user in the user repository.
+     *
+     * @param newUser The user to register.
+     * @throws IllegalArgumentException If the username is already taken or the user cannot be saved.
      */
-    @SuppressWarnings("unchecked")
-    private void loadWatchlistData() {
-        if (user != null) {
-            String userWatchlistFolder = "UserWatchlists/";
-            String userWatchlistFileName = user.getUsername() + "_watchlist.ser";
-            String userWatchlistFilePath = userWatchlistFolder + userWatchlistFileName;
-    
-            try {
-                // Create the folder if it does not exist
-                new File(userWatchlistFolder).mkdirs();
-    
-                ObjectInputStream ois = new ObjectInputStream(new FileInputStream(userWatchlistFilePath));
-                List<Movie> loadedWatchlist = (List<Movie>) ois.readObject();
-                user.setWatchlist(loadedWatchlist);
-                ois.close();
-            } catch (FileNotFoundException e) {
-                System.out.println("Watchlist file not found. Creating a new watchlist.");
-            } catch (IOException | ClassNotFoundException e) {
-                e.printStackTrace();
+    private void registerUser(User newUser) {
+        try {
+            if (!userRepository.register(newUser)) {
+                throw new IllegalArgumentException("Username already exists");
             }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Error saving the user: " + e.getMessage());
         }
     }
 
     /**
-     * Saves the user's watchlist data to a serialized file.
+     * Gets the watchlist of the logged-in user through the watchlist manager, loading it from its watchlist file
+     * on first use.
+     *
+     * @return A copy of the movies of the watchlist, or an empty list if it cannot be read.
      */
-    private void saveWatchlistData() {
-        if (user != null) {
-            String userWatchlistFolder = "UserWatchlists/";
-            String userWatchlistFileName = user.getUsername() + "_watchlist.ser";
-            String userWatchlistFilePath = userWatchlistFolder + userWatchlistFileName;
-    
-            try {
-                // Create the folder if it doesn't exist
-                new File(userWatchlistFolder).mkdirs();
-    
-                ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(userWatchlistFilePath));
-                oos.writeObject(user.getWatchlist());
-                oos.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+    private List<Movie> getWatchlist() {
+        try {
+            return watchlistManager.getWatchlist(user);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Adds a movie to the watchlist of the logged-in user through the watchlist manager, which saves it in the
+     * background.
+     *
+     * @param movie The movie to add.
+     * @return True if the movie was added.
+     */
+    private boolean addToWatchlist(Movie movie) {
+        try {
+            return watchlistManager.add(user, movie);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Removes a movie from the watchlist of the logged-in user through the watchlist manager, which saves it in
+     * the background.
+     *
+     * @param movie The movie to remove.
+     * @return True if the movie was on the watchlist.
+     */
+    private boolean removeFromWatchlist(Movie movie) {
+        try {
+            return watchlistManager.remove(user, movie);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
         }
     }
 
@@ -455,13 +487,23 @@ public class UserGUI extends JFrame {
         movieInfoFrame.setTitle("Movie Information");
         movieInfoFrame.setSize(800, 600);
         movieInfoFrame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        // Closing the window logs the user out; disposing it to rebuild it does not
+        movieInfoFrame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                logOut();
+                try {
+                    watchlistManager.close(); // Write the pending watchlist changes
+                } catch (CompletionException ex) {
+                    System.err.println("Error saving the watchlist: " + ex.getCause().getMessage());
+                }
+            }
+        });
         movieInfoFrame.setLocationRelativeTo(null);
         JPanel moviePanel = new JPanel(new GridLayout(0, 2, 10, 10));
         moviePanel.setBackground(new Color(60, 60, 60)); 
     
-        List<Movie> movies = movieDatabase.getMovies();
-        for (int i = 0; i < movies.size(); i++) {
-            Movie movie = movies.get(i);
+        for (Movie movie : displayedMovies) {
     
             JPanel movieContainer = new JPanel(new BorderLayout());
             movieContainer.setBackground(new Color(60, 60, 60)); 
@@ -575,7 +617,7 @@ public class UserGUI extends JFrame {
          * so, adds them to the user's watchlist. Custom dialogs are displayed for
          * different scenarios, such as no movies selected, movies already on the watchlist,
          * and success in adding movies to the watchlist. The user's watchlist is updated
-         * and saved to the serialized file.
+         * through the watchlist manager, which saves it in the background.
          */
         addToWatchlistButton.addActionListener(new ActionListener() {
             @Override
@@ -605,15 +647,9 @@ public class UserGUI extends JFrame {
                     boolean movieAlreadyAdded = false;
                     List<Movie> addedMovies = new ArrayList<>(); // To store added movies
         
+                    List<Movie> watchlist = getWatchlist();
                     for (Movie selectedMovie : selectedMovies) {
-                        boolean movieExists = false;
-                        for (Movie watchlistMovie : user.getWatchlist()) {
-                            if (watchlistMovie.equals(selectedMovie)) {
-                                movieExists = true;
-                                break;
-                            }
-                        }
-                        if (movieExists) {
+                        if (watchlist.contains(selectedMovie)) {
                             movieAlreadyAdded = true;
                             break;
                         } else {
@@ -646,7 +682,7 @@ public class UserGUI extends JFrame {
                         List<Movie> moviesToAdd = new ArrayList<>(addedMovies); // Use the addedMovies list
         
                         for (Movie selectedMovie : moviesToAdd) {
-                            user.addToWatchlist(selectedMovie);
+                            addToWatchlist(selectedMovie);
                         }
         
                         // Custom success dialog for movies added to Watchlist
@@ -681,8 +717,6 @@ public class UserGUI extends JFrame {
 
                         successDialog.add(successPanel, BorderLayout.CENTER);
                         successDialog.setVisible(true);
-
-                        saveWatchlistData(); // Save updated watchlist data
                     }
                     selectedMovies.clear(); // Clear the original list after adding movies
                 }
@@ -723,15 +757,9 @@ public class UserGUI extends JFrame {
                     List<Movie> removedMovies = new ArrayList<>(); // To store removed movies
         
                     for (Movie selectedMovie : selectedMovies) {
-                        Iterator<Movie> iterator = user.getWatchlist().iterator();
-                        while (iterator.hasNext()) {
-                            Movie movie = iterator.next();
-                            if (movie.equals(selectedMovie)) {
-                                iterator.remove();
-                                moviesRemoved = true;
-                                removedMovies.add(selectedMovie); // Store removed movies
-                                break; // Break the loop after removing the movie
-                            }
+                        if (removeFromWatchlist(selectedMovie)) {
+                            moviesRemoved = true;
+                            removedMovies.add(selectedMovie); // Store removed movies
                         }
                     }
         
@@ -767,8 +795,6 @@ public class UserGUI extends JFrame {
         
                         successDialog.add(successPanel, BorderLayout.CENTER);
                         successDialog.setVisible(true);
-        
-                        saveWatchlistData(); // Save updated watchlist data
                     } else {
                         // Custom error dialog for no selected movies found in Watchlist
                         JDialog errorDialog = new JDialog();
@@ -805,7 +831,7 @@ public class UserGUI extends JFrame {
         displayWatchlistButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                List<Movie> watchlist = user.getWatchlist();
+                List<Movie> watchlist = getWatchlist();
         
                 if (watchlist.isEmpty()) {
                     // Custom dialog for an empty watchlist
@@ -881,8 +907,37 @@ public class UserGUI extends JFrame {
         filterPanel.add(filterLabel);
         filterLabel.setForeground(Color.white);
         filterPanel.add(filterComboBox);
+
+        /**
+         * Search box filtering the displayed movies by title or director prefix as the user types.
+         */
+        JLabel searchLabel = new JLabel("Search:");
+        searchLabel.setFont(new Font("Arial", Font.BOLD, 16));
+        searchLabel.setForeground(Color.white);
+        JTextField searchField = new JTextField(15);
+        filterPanel.add(searchLabel);
+        filterPanel.add(searchField);
         movieInfoFrame.add(filterPanel, BorderLayout.NORTH);
 
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                searchMovies(searchField.getText());
+                updateMovieDisplay(moviePanel, scrollPane);
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                searchMovies(searchField.getText());
+                updateMovieDisplay(moviePanel, scrollPane);
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                // attribute changes do not change the text
+            }
+        });
+
         filterComboBox.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
@@ -919,35 +974,45 @@ public class UserGUI extends JFrame {
     }
 
     /**
-     * Sorts the list of movies based on the specified filter.
+     * Switches the displayed movies to the sorted index of the movie database for the specified filter.
+     * The indexes are maintained by the database, so no sorting takes place here.
      *
      * @param filter The filter to use for sorting (Title, Director, Running Time, Release Year).
      */
     private void sortMoviesBy(String filter) {
-        List<Movie> movies = movieDatabase.getMovies();
-        List<Movie> sortedMovies;
-        
         switch (filter) {
             case "Title":
-                sortedMovies = Movie.sortMoviesByTitle(movies);
+                sortedMovies = movieDatabase.getMoviesSortedBy(MovieOrder.TITLE);
                 break;
             case "Director":
-                sortedMovies = Movie.sortMoviesByDirector(movies);
+                sortedMovies = movieDatabase.getMoviesSortedBy(MovieOrder.DIRECTOR);
                 break;
             case "Running Time":
-                sortedMovies = Movie.sortMoviesByRunningTime(movies);
+                sortedMovies = movieDatabase.getMoviesSortedBy(MovieOrder.RUNNING_TIME);
                 break;
             case "Release Year":
-                sortedMovies = Movie.sortMoviesByYear(movies);
+                sortedMovies = movieDatabase.getMoviesSortedBy(MovieOrder.YEAR);
                 break;
             default:
-                sortedMovies = movies; // Default behavior is no sorting
+                sortedMovies = movieDatabase.getMovies(); // Default behavior is no sorting
                 break;
         }
-    
-        // Update the original movie list with the sorted movies
-        movies.clear();
-        movies.addAll(sortedMovies);
+        searchMovies(searchQuery);
+    }
+
+    /**
+     * Shows the movies best matching the words of the search query, or every movie in the selected order when
+     * the query is blank.
+     *
+     * @param query The text typed in the search box.
+     */
+    private void searchMovies(String query) {
+        searchQuery = query;
+        if (query.isBlank()) {
+            displayedMovies = sortedMovies;
+        } else {
+            displayedMovies = movieDatabase.search(query, SEARCH_RESULT_LIMIT);
+        }
     }
 
     /**
@@ -976,15 +1041,15 @@ public class UserGUI extends JFrame {
      */
     private void updateMovieDisplay(JPanel moviePanel, JScrollPane scrollPane) {
         moviePanel.removeAll(); // Clear the movie panel
-        List<Movie> movies = movieDatabase.getMovies();
+        int i = 0;
         
-        for (int i = 0; i < movies.size(); i++) {
-            Movie movie = movies.get(i);
+        for (Movie movie : displayedMovies) {
+            i++;
     
             JPanel movieContainer = new JPanel(new BorderLayout());
             movieContainer.setBackground(new Color(60, 60, 60)); 
-            movieContainer.setBorder(BorderFactory.createTitledBorder("Movie " + (i + 1)));
-            TitledBorder titledBorder = BorderFactory.createTitledBorder("Movie " + (i + 1));
+            movieContainer.setBorder(BorderFactory.createTitledBorder("Movie " + i));
+            TitledBorder titledBorder = BorderFactory.createTitledBorder("Movie " + i);
             titledBorder.setTitleColor(Color.white); 
             movieContainer.setBorder(titledBorder);
     
@@ -0,0 +1,164 @@
+import java.io.*;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The `UserRepository` class is the single place user accounts are looked up and registered, shared by the
+ * static `User` API and the `UserGUI`. Users are kept in an in-memory hash index in front of a `UserStore`:
+ * lookups are answered from memory when possible and otherwise from the on-disk index of the store, and
+ * registrations are written through to the store before they become visible. Every user is represented by a
+ * single `User` instance, so a watchlist set on a user found here is seen by every other caller.
+ */
+public class UserRepository {
+
+    // Constants
+
+    static final String USER_DATABASE_FILE = "Database/UserDatabase.dat";
+    private static final String[] LEGACY_USER_DATABASE_FILES = {"Database/UserDatabase.txt", "Database/users.ser"};
+
+    private static UserRepository defaultRepository;
+
+    // Fields
+
+    private UserStore store;
+    private Map<String, User> users;
+
+    // Constructors
+
+    /**
+     * Constructs a `UserRepository` backed by the user store kept in the specified file.
+     *
+     * @param fileName The name of the data file of the user store.
+     * @throws IOException If the user store cannot be opened.
+     */
+    public UserRepository(String fileName) throws IOException {
+        this.store = new UserStore(fileName);
+        this.users = new ConcurrentHashMap<>();
+    }
+
+    // Methods
+
+    /**
+     * Gets the repository of the application, opening it on first use. When the store is still empty,
+     * the accounts of the legacy serialized user databases are imported into it.
+     *
+     * @return The repository shared by the whole application.
+     * @throws IOException If the user store cannot be opened.
+     */
+    public static synchronized UserRepository getDefault() throws IOException {
+        if (defaultRepository == null) {
+            UserRepository repository = new UserRepository(USER_DATABASE_FILE);
+            if (repository.size() == 0) {
+                for (String legacyFile : LEGACY_USER_DATABASE_FILES) {
+                    if (new File(legacyFile).exists()) {
+                        repository.importSerializedUsers(legacyFile);
+                    }
+                }
+            }
+            defaultRepository = repository;
+        }
+        return defaultRepository;
+    }
+
+    /**
+     * Finds a user by username.
+     *
+     * @param username The username to search for.
+     * @return The user with the username, or null if there is none.
+     * @throws IOException If the user store cannot be read.
+     */
+    public User findByUsername(String username) throws IOException {
+        if (username == null) {
+            return null;
+        }
+        User user = users.get(username);
+        if (user == null) {
+            User stored = store.find(username);
+            if (stored != null) {
+                User existing = users.putIfAbsent(username, stored);
+                user = existing != null ? existing : stored;
+            }
+        }
+        return user;
+    }
+
+    /**
+     * Registers a new user, persisting it before it becomes visible to lookups.
+     *
+     * @param user The user to register.
+     * @return True if the user was registered, false if the username is already taken.
+     * @throws IOException If the user store cannot be written.
+     */
+    public boolean register(User user) throws IOException {
+        if (!store.add(user)) {
+            return false;
+        }
+        users.putIfAbsent(user.getUsername(), user);
+        return true;
+    }
+
+    /**
+     * Checks whether a username and password match a registered user.
+     *
+     * @param username The username to check.
+     * @param password The password to check.
+     * @return True if the user exists and the password matches, false otherwise.
+     * @throws IOException If the user store cannot be read.
+     */
+    public boolean checkCredentials(String username, String password) throws IOException {
+        User user = findByUsername(username);
+        return user != null && user.getPassword().equals(password);
+    }
+
+    /**
+     * Gets the number of registered users.
+     *
+     * @return The number of users.
+     */
+    public int size() {
+        return store.size();
+    }
+
+    /**
+     * Closes the underlying user store.
+     *
+     * @throws IOException If the store cannot be closed.
+     */
+    public void close() throws IOException {
+        store.close();
+    }
+
+    /**
+     * Imports the users of a file written with Java serialization by an earlier version of the application.
+     * Both legacy layouts are understood: a sequence of `User` objects and a single list of users.
+     * Users whose username is already taken are skipped.
+     *
+     * @param fileName The name of the legacy file.
+     * @return The number of users imported.
+     * @throws IOException If the file cannot be read or the store cannot be written.
+     */
+    public int importSerializedUsers(String fileName) throws IOException {
+        int imported = 0;
+        try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(fileName)))) {
+            while (true) {
+                Object object;
+                try {
+                    object = ois.readObject();
+                } catch (EOFException e) {
+                    break;
+                }
+                Collection<?> batch = object instanceof Collection ? (Collection<?>) object : List.of(object);
+                for (Object item : batch) {
+                    if (item instanceof User && register((User) item)) {
+                        imported++;
+                    }
+                }
+            }
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Legacy user database contains unknown classes: " + e.getMessage());
+        }
+        return imported;
+    }
+}
@@ -0,0 +1,81 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class UserRepositoryTest {
+
+    private static final String STORE_FILE = "Tests/testUserRepository.dat";
+    private static final String LEGACY_FILE = "Tests/testLegacyUsers.ser";
+
+    private UserRepository userRepository;
+
+    @Before
+    public void setUp() throws IOException {
+        deleteFiles();
+        userRepository = new UserRepository(STORE_FILE);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        userRepository.close();
+        deleteFiles();
+    }
+
+    @Test
+    public void testRegisterAndFind() throws IOException {
+        User user = new User("alice", "password123");
+        assertTrue(userRepository.register(user));
+
+        assertSame(user, userRepository.findByUsername("alice"));
+        assertNull(userRepository.findByUsername("bob"));
+        assertFalse(userRepository.register(new User("alice", "otherPassword1")));
+    }
+
+    @Test
+    public void testCheckCredentials() throws IOException {
+        userRepository.register(new User("alice", "password123"));
+
+        assertTrue(userRepository.checkCredentials("alice", "password123"));
+        assertFalse(userRepository.checkCredentials("alice", "wrongPassword1"));
+        assertFalse(userRepository.checkCredentials("bob", "password123"));
+    }
+
+    @Test
+    public void testFindAfterReopening() throws IOException {
+        userRepository.register(new User("alice", "password123"));
+        userRepository.close();
+        userRepository = new UserRepository(STORE_FILE);
+
+        User found = userRepository.findByUsername("alice");
+        assertEquals("password123", found.getPassword());
+        assertSame(found, userRepository.findByUsername("alice"));
+    }
+
+    @Test
+    public void testImportSerializedUsers() throws IOException {
+        List<User> users = new ArrayList<>();
+        users.add(new User("alice", "password123"));
+        users.add(new User("bob", "password456"));
+        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(LEGACY_FILE))) {
+            oos.writeObject(users);
+            oos.writeObject(new User("carol", "password789"));
+        }
+
+        assertEquals(3, userRepository.importSerializedUsers(LEGACY_FILE));
+        assertTrue(userRepository.checkCredentials("bob", "password456"));
+        assertTrue(userRepository.checkCredentials("carol", "password789"));
+        assertEquals(0, userRepository.importSerializedUsers(LEGACY_FILE));
+    }
+
+    private static void deleteFiles() {
+        new File(STORE_FILE).delete();
+        new File(STORE_FILE + ".idx").delete();
+        new File(LEGACY_FILE).delete();
+    }
+}
@@ -0,0 +1,341 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The `UserStore` class is a persistent store of user accounts with an on-disk hash index keyed by username.
+ * Accounts are appended to a data file and never rewritten, and an open-addressing hash table in a separate
+ * index file maps each username to the position of its record. Looking up or registering a user reads a
+ * handful of index slots and a single record, so the cost does not grow with the number of accounts.
+ *
+ * Layout of the data file: a sequence of records, each an int length followed by the username and the
+ * password as UTF-8 strings prefixed with a short length, so neither can be longer than `Short.MAX_VALUE` bytes.
+ * Layout of the index file: a header (magic, capacity, size, indexed data length) followed by `capacity`
+ * slots of an int hash and a long data offset plus one, where zero marks an empty slot.
+ * Records appended to the data file but missing from the index, for example after a crash, are indexed
+ * again when the store is opened.
+ */
+public class UserStore implements Closeable {
+
+    // Constants
+
+    private static final int MAGIC = 0x53535549;
+    private static final int HEADER_SIZE = 20;
+    private static final int SLOT_SIZE = Integer.BYTES + Long.BYTES;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MAX_FIELD_LENGTH = Short.MAX_VALUE;
+
+    // Fields
+
+    private String indexFileName;
+    private FileChannel data;
+    private FileChannel index;
+    private int capacity;
+    private int size;
+
+    // Constructors
+
+    /**
+     * Opens the user store kept in the specified data file, creating it if it does not exist.
+     * The index is kept next to it in a file with an `.idx` suffix.
+     *
+     * @param dataFileName The name of the data file.
+     * @throws IOException If the store cannot be opened.
+     */
+    public UserStore(String dataFileName) throws IOException {
+        this.indexFileName = dataFileName + ".idx";
+        this.data = FileChannel.open(Paths.get(dataFileName), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            openIndex();
+        } catch (IOException | RuntimeException e) {
+            data.close();
+            if (index != null) {
+                index.close();
+            }
+            throw e;
+        }
+    }
+
+    // Methods
+
+    /**
+     * Finds the user with the specified username.
+     *
+     * @param username The username to look up.
+     * @return A new `User` holding the stored username and password, or null if there is no such user.
+     * @throws IOException If the store cannot be read.
+     */
+    public synchronized User find(String username) throws IOException {
+        if (username == null) {
+            return null;
+        }
+        int hash = hash(username);
+        for (int slot = hash & (capacity - 1); ; slot = (slot + 1) & (capacity - 1)) {
+            ByteBuffer entry = readSlot(slot);
+            long offset = entry.getLong(Integer.BYTES) - 1;
+            if (offset < 0) {
+                return null;
+            }
+            if (entry.getInt(0) == hash) {
+                String[] record = readRecord(offset);
+                if (record[0].equals(username)) {
+                    return new User(record[0], record[1]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends a user to the store unless the username is already taken.
+     *
+     * @param user The user to add.
+     * @return True if the user was added, false if a user with the same username already exists.
+     * @throws IOException              If the store cannot be written.
+     * @throws IllegalArgumentException If the username or the password is longer than `Short.MAX_VALUE` bytes.
+     */
+    public synchronized boolean add(User user) throws IOException {
+        byte[] username = user.getUsername().getBytes(StandardCharsets.UTF_8);
+        byte[] password = user.getPassword().getBytes(StandardCharsets.UTF_8);
+        if (username.length > MAX_FIELD_LENGTH || password.length > MAX_FIELD_LENGTH) {
+            throw new IllegalArgumentException("Username and password cannot be longer than " + MAX_FIELD_LENGTH
+                    + " bytes");
+        }
+        if (find(user.getUsername()) != null) {
+            return false;
+        }
+        ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + 2 * Short.BYTES + username.length + password.length);
+        record.putInt(record.capacity() - Integer.BYTES)
+                .putShort((short) username.length).put(username)
+                .putShort((short) password.length).put(password)
+                .flip();
+
+        long offset = data.size();
+        writeFully(data, record, offset);
+        data.force(false);
+        insert(hash(user.getUsername()), offset);
+        writeHeader(data.size());
+        return true;
+    }
+
+    /**
+     * Gets the number of users in the store.
+     *
+     * @return The number of users.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Closes the data and index files.
+     *
+     * @throws IOException If the files cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        data.close();
+        index.close();
+    }
+
+    /**
+     * Opens the index file, rebuilding it if it is missing or invalid, and indexes records it does not cover yet.
+     *
+     * @throws IOException If the index cannot be opened or rebuilt.
+     */
+    private void openIndex() throws IOException {
+        long indexedLength = -1;
+        if (Files.exists(Paths.get(indexFileName))) {
+            index = FileChannel.open(Paths.get(indexFileName), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            if (index.size() >= HEADER_SIZE) {
+                readFully(index, header, 0);
+            }
+            if (header.getInt(0) == MAGIC && index.size() == HEADER_SIZE + (long) header.getInt(4) * SLOT_SIZE
+                    && header.getLong(12) <= data.size()) {
+                capacity = header.getInt(4);
+                size = header.getInt(8);
+                indexedLength = header.getLong(12);
+            } else {
+                index.close();
+            }
+        }
+        if (indexedLength < 0) {
+            rebuildIndex(INITIAL_CAPACITY, completeLength(0));
+        } else if (indexedLength < data.size()) {
+            long length = completeLength(indexedLength);
+            for (long offset = indexedLength; offset < length; offset += recordLength(offset)) {
+                String username = readRecord(offset)[0];
+                if (find(username) == null) {
+                    insert(hash(username), offset);
+                }
+            }
+            writeHeader(length);
+        }
+    }
+
+    /**
+     * Rewrites the index with at least the specified capacity by scanning the data file, and replaces the old
+     * index atomically.
+     *
+     * @param newCapacity The minimum number of slots of the new index, a power of two.
+     * @param length      The length of the data file to index; records after it are left out.
+     * @throws IOException If the index cannot be rebuilt.
+     */
+    private void rebuildIndex(int newCapacity, long length) throws IOException {
+        Path temporary = Paths.get(indexFileName + ".tmp");
+        if (index != null && index.isOpen()) {
+            index.close();
+        }
+        index = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        int records = 0;
+        for (long offset = 0; offset < length; offset += recordLength(offset)) {
+            records++;
+        }
+        capacity = newCapacity;
+        while ((records + 1) * 2 > capacity) {
+            capacity *= 2;
+        }
+        size = 0;
+        writeFully(index, ByteBuffer.allocate(1), HEADER_SIZE + (long) capacity * SLOT_SIZE - 1);
+        for (long offset = 0; offset < length; offset += recordLength(offset)) {
+            putSlot(hash(readRecord(offset)[0]), offset);
+        }
+        writeHeader(length);
+        index.force(true);
+        index.close();
+        try {
+            Files.move(temporary, Paths.get(indexFileName), StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, Paths.get(indexFileName), StandardCopyOption.REPLACE_EXISTING);
+        }
+        index = FileChannel.open(Paths.get(indexFileName), StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Stores the position of a record in the first free slot of its probe sequence, growing the index when
+     * it becomes half full.
+     *
+     * @param hash   The hash of the username of the record.
+     * @param offset The position of the record in the data file.
+     * @throws IOException If the index cannot be written.
+     */
+    private void insert(int hash, long offset) throws IOException {
+        if ((size + 1) * 2 > capacity) {
+            rebuildIndex(capacity * 2, offset);
+        }
+        putSlot(hash, offset);
+    }
+
+    private void putSlot(int hash, long offset) throws IOException {
+        int slot = hash & (capacity - 1);
+        while (readSlot(slot).getLong(Integer.BYTES) != 0) {
+            slot = (slot + 1) & (capacity - 1);
+        }
+        ByteBuffer entry = ByteBuffer.allocate(SLOT_SIZE);
+        entry.putInt(hash).putLong(offset + 1).flip();
+        writeFully(index, entry, HEADER_SIZE + (long) slot * SLOT_SIZE);
+        size++;
+    }
+
+    /**
+     * Finds the end of the last complete record of the data file, and cuts off a record that was only
+     * partially written, for example because of a crash.
+     *
+     * @param from The position of a record to start scanning from.
+     * @return The length of the data file up to the end of its last complete record.
+     * @throws IOException If the data file cannot be read or truncated.
+     */
+    private long completeLength(long from) throws IOException {
+        long offset = from;
+        while (offset < data.size()) {
+            if (offset + Integer.BYTES > data.size() || offset + recordLength(offset) > data.size()) {
+                data.truncate(offset);
+                break;
+            }
+            offset += recordLength(offset);
+        }
+        return offset;
+    }
+
+    private void writeHeader(long indexedLength) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(capacity).putInt(size).putLong(indexedLength).flip();
+        writeFully(index, header, 0);
+    }
+
+    private ByteBuffer readSlot(int slot) throws IOException {
+        ByteBuffer entry = ByteBuffer.allocate(SLOT_SIZE);
+        readFully(index, entry, HEADER_SIZE + (long) slot * SLOT_SIZE);
+        return entry;
+    }
+
+    private int recordLength(long offset) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+        readFully(data, length, offset);
+        return Integer.BYTES + length.getInt(0);
+    }
+
+    /**
+     * Reads the username and password of the record at the specified position.
+     *
+     * @param offset The position of the record in the data file.
+     * @return An array holding the username and the password.
+     * @throws IOException If the record cannot be read or its lengths do not fit in it.
+     */
+    private String[] readRecord(long offset) throws IOException {
+        int length = recordLength(offset) - Integer.BYTES;
+        if (length < 2 * Short.BYTES || length > 2 * (Short.BYTES + MAX_FIELD_LENGTH)) {
+            throw new IOException("Corrupt user record at offset " + offset);
+        }
+        ByteBuffer record = ByteBuffer.allocate(length);
+        readFully(data, record, offset + Integer.BYTES);
+        byte[] username = readField(record, offset);
+        byte[] password = readField(record, offset);
+        if (record.hasRemaining()) {
+            throw new IOException("Corrupt user record at offset " + offset);
+        }
+        return new String[]{new String(username, StandardCharsets.UTF_8), new String(password, StandardCharsets.UTF_8)};
+    }
+
+    private static byte[] readField(ByteBuffer record, long offset) throws IOException {
+        if (record.remaining() < Short.BYTES) {
+            throw new IOException("Corrupt user record at offset " + offset);
+        }
+        int length = record.getShort();
+        if (length < 0 || length > record.remaining()) {
+            throw new IOException("Corrupt user record at offset " + offset);
+        }
+        byte[] field = new byte[length];
+        record.get(field);
+        return field;
+    }
+
+    private static int hash(String username) {
+        int hash = username.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of user store file");
+            }
+        }
+        buffer.flip();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+}
@@ -0,0 +1,120 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+
+import static org.junit.Assert.*;
+
+public class UserStoreTest {
+
+    private static final String STORE_FILE = "Tests/testUserStore.dat";
+
+    private UserStore userStore;
+
+    @Before
+    public void setUp() throws IOException {
+        deleteFiles();
+        userStore = new UserStore(STORE_FILE);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        userStore.close();
+        deleteFiles();
+    }
+
+    @Test
+    public void testAddAndFind() throws IOException {
+        assertTrue(userStore.add(new User("alice", "password123")));
+
+        User found = userStore.find("alice");
+        assertEquals("alice", found.getUsername());
+        assertEquals("password123", found.getPassword());
+        assertNull(userStore.find("bob"));
+        assertEquals(1, userStore.size());
+    }
+
+    @Test
+    public void testAddExistingUsername() throws IOException {
+        assertTrue(userStore.add(new User("alice", "password123")));
+        assertFalse(userStore.add(new User("alice", "otherPassword1")));
+        assertEquals("password123", userStore.find("alice").getPassword());
+    }
+
+    @Test
+    public void testIndexGrowsAndSurvivesReopening() throws IOException {
+        for (int i = 0; i < 1500; i++) {
+            assertTrue(userStore.add(new User("user" + i, "password" + i)));
+        }
+        userStore.close();
+        userStore = new UserStore(STORE_FILE);
+
+        assertEquals(1500, userStore.size());
+        for (int i = 0; i < 1500; i++) {
+            assertEquals("password" + i, userStore.find("user" + i).getPassword());
+        }
+    }
+
+    @Test
+    public void testRebuildsMissingIndex() throws IOException {
+        userStore.add(new User("alice", "password123"));
+        userStore.close();
+        new File(STORE_FILE + ".idx").delete();
+
+        userStore = new UserStore(STORE_FILE);
+        assertEquals("password123", userStore.find("alice").getPassword());
+    }
+
+    @Test
+    public void testDropsPartiallyWrittenRecord() throws IOException {
+        userStore.add(new User("alice", "password123"));
+        userStore.close();
+        try (FileOutputStream out = new FileOutputStream(STORE_FILE, true)) {
+            out.write(new byte[]{0, 0, 0, 40, 0, 5});
+        }
+
+        userStore = new UserStore(STORE_FILE);
+        assertEquals(1, userStore.size());
+        assertTrue(userStore.add(new User("bob", "password456")));
+        assertEquals("password456", userStore.find("bob").getPassword());
+        assertEquals("password123", userStore.find("alice").getPassword());
+    }
+
+    @Test
+    public void testRejectsTooLongUsername() throws IOException {
+        StringBuilder username = new StringBuilder();
+        for (int i = 0; i < 40000; i++) {
+            username.append('a');
+        }
+        try {
+            userStore.add(new User(username.toString(), "password123"));
+            fail("A username longer than a short length should be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        userStore.add(new User("alice", "password123"));
+        userStore.close();
+
+        userStore = new UserStore(STORE_FILE);
+        assertEquals(1, userStore.size());
+        assertEquals("password123", userStore.find("alice").getPassword());
+    }
+
+    @Test(expected = IOException.class)
+    public void testRecordWithLengthsPastItsEnd() throws IOException {
+        userStore.close();
+        new File(STORE_FILE + ".idx").delete();
+        try (FileOutputStream out = new FileOutputStream(STORE_FILE, true)) {
+            out.write(new byte[]{0, 0, 0, 6, 0, 40, 'a', 'b', 0, 0});
+        }
+
+        userStore = new UserStore(STORE_FILE);
+    }
+
+    private static void deleteFiles() {
+        new File(STORE_FILE).delete();
+        new File(STORE_FILE + ".idx").delete();
+        new File(STORE_FILE + ".idx.tmp").delete();
+    }
+}
@@ -0,0 +1,135 @@
+import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The `WatchlistFile` class reads and writes user watchlists as arrays of movie IDs.
+ * A watchlist file holds no movie data of its own: the IDs are resolved against the `MovieDatabase` when the
+ * watchlist is loaded, so a watchlist takes four bytes per movie on disk, shares the `Movie` objects of the
+ * catalog in memory, and always reflects the current catalog. Movies that have been removed from the
+ * catalog are dropped from the watchlist when it is loaded.
+ *
+ * Layout of a watchlist file (all numbers big-endian):
+ * <pre>
+ * int    magic      'SSWL'
+ * int    version
+ * int    count
+ * int[]  movieIds   count movie IDs, in watchlist order
+ * </pre>
+ * The class also migrates watchlists written with Java serialization by earlier versions of the application.
+ */
+public class WatchlistFile {
+
+    // Constants
+
+    static final int MAGIC = 0x5353574C;
+    static final int VERSION = 1;
+
+    // Constructors
+
+    private WatchlistFile() {
+    }
+
+    // Methods
+
+    /**
+     * Writes a watchlist to a file, replacing any existing content.
+     * The watchlist is written to a temporary file and atomically renamed over the target,
+     * so a crash leaves either the old or the new watchlist in place.
+     *
+     * @param fileName  The name of the file to write.
+     * @param watchlist The movies of the watchlist, which must have been added to a `MovieDatabase`.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(String fileName, List<Movie> watchlist) throws IOException {
+        Path temporary = Paths.get(fileName + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temporary.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(watchlist.size());
+            for (Movie movie : watchlist) {
+                out.writeInt(movie.getId());
+            }
+            out.flush();
+            file.getFD().sync();
+        }
+        Path target = Paths.get(fileName);
+        try {
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Reads a watchlist file and resolves its movie IDs against a movie database.
+     *
+     * @param fileName The name of the file to read.
+     * @param database The database holding the movies of the watchlist.
+     * @return A mutable list of the movies of the watchlist that are still in the database, in watchlist order.
+     * @throws IOException If the file cannot be read or is not a valid watchlist file.
+     */
+    public static List<Movie> read(String fileName, MovieDatabase database) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a watchlist file: " + fileName);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported watchlist version " + version + ": " + fileName);
+            }
+            int count = in.readInt();
+            List<Movie> watchlist = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Movie movie = database.getMovieById(in.readInt());
+                if (movie != null) {
+                    watchlist.add(movie);
+                }
+            }
+            return watchlist;
+        } catch (EOFException e) {
+            throw new IOException("Watchlist file is truncated: " + fileName);
+        }
+    }
+
+    /**
+     * Converts a watchlist written with Java serialization into a watchlist file, and deletes the legacy file.
+     * Each serialized movie is matched to the equal movie of the database; movies that are no longer in the
+     * database are dropped.
+     *
+     * @param legacyFileName The name of the serialized watchlist.
+     * @param fileName       The name of the watchlist file to write.
+     * @param database       The database holding the movies of the watchlist.
+     * @return The movies of the migrated watchlist.
+     * @throws IOException If the legacy file cannot be read or the new file cannot be written.
+     */
+    @SuppressWarnings("unchecked")
+    public static List<Movie> migrate(String legacyFileName, String fileName, MovieDatabase database)
+            throws IOException {
+        List<Movie> legacyWatchlist;
+        try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(legacyFileName)))) {
+            legacyWatchlist = (List<Movie>) ois.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Legacy watchlist contains unknown classes: " + e.getMessage());
+        }
+        List<Movie> watchlist = new ArrayList<>(legacyWatchlist.size());
+        for (Movie legacyMovie : legacyWatchlist) {
+            Movie movie = database.findMovie(legacyMovie);
+            if (movie != null) {
+                watchlist.add(movie);
+            }
+        }
+        write(fileName, watchlist);
+        if (!new File(legacyFileName).delete()) {
+            System.err.println("Error deleting the legacy watchlist: " + legacyFileName);
+        }
+        System.out.println("Migrated legacy watchlist: " + legacyFileName);
+        return watchlist;
+    }
+}
@@ -0,0 +1,84 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class WatchlistFileTest {
+
+    private static final String WATCHLIST_FILE = "Tests/testWatchlist.dat";
+    private static final String LEGACY_WATCHLIST_FILE = "Tests/testWatchlist.ser";
+
+    private MovieDatabase movieDatabase;
+    private Movie inception;
+    private Movie titanic;
+
+    @Before
+    public void setUp() {
+        movieDatabase = new MovieDatabase("Tests/testWatchlistCatalog.ser");
+        inception = new Movie("Inception", "Christopher Nolan", 2010, 148, "Database/Inception.jpg");
+        titanic = new Movie("Titanic", "James Cameron", 1997, 195, "Database/titanic.jpg");
+        movieDatabase.addMovies(Arrays.asList(inception, titanic));
+    }
+
+    @After
+    public void tearDown() {
+        movieDatabase.close();
+        new File("Tests/testWatchlistCatalog.ser").delete();
+        new File("Tests/testWatchlistCatalog.ser.log").delete();
+        new File(WATCHLIST_FILE).delete();
+        new File(LEGACY_WATCHLIST_FILE).delete();
+    }
+
+    @Test
+    public void testWriteAndReadResolvesCatalogMovies() throws IOException {
+        WatchlistFile.write(WATCHLIST_FILE, Arrays.asList(titanic, inception));
+
+        List<Movie> watchlist = WatchlistFile.read(WATCHLIST_FILE, movieDatabase);
+
+        assertEquals(2, watchlist.size());
+        assertSame(titanic, watchlist.get(0));
+        assertSame(inception, watchlist.get(1));
+        assertEquals(3 * Integer.BYTES + 2 * Integer.BYTES, new File(WATCHLIST_FILE).length());
+    }
+
+    @Test
+    public void testReadDropsRemovedMovies() throws IOException {
+        WatchlistFile.write(WATCHLIST_FILE, Arrays.asList(inception, titanic));
+        movieDatabase.removeMovie(inception);
+
+        List<Movie> watchlist = WatchlistFile.read(WATCHLIST_FILE, movieDatabase);
+
+        assertEquals(Arrays.asList(titanic), watchlist);
+    }
+
+    @Test
+    public void testMigrateLegacyWatchlist() throws IOException {
+        List<Movie> legacyWatchlist = new ArrayList<>();
+        legacyWatchlist.add(new Movie("Titanic", "James Cameron", 1997, 195, "Database/titanic.jpg"));
+        legacyWatchlist.add(new Movie("Avatar", "James Cameron", 2009, 162, null));
+        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(LEGACY_WATCHLIST_FILE))) {
+            oos.writeObject(legacyWatchlist);
+        }
+
+        List<Movie> watchlist = WatchlistFile.migrate(LEGACY_WATCHLIST_FILE, WATCHLIST_FILE, movieDatabase);
+
+        assertEquals(1, watchlist.size());
+        assertSame(titanic, watchlist.get(0));
+        assertFalse(new File(LEGACY_WATCHLIST_FILE).exists());
+        assertEquals(watchlist, WatchlistFile.read(WATCHLIST_FILE, movieDatabase));
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadInvalidFile() throws IOException {
+        try (FileOutputStream out = new FileOutputStream(WATCHLIST_FILE)) {
+            out.write("not a watchlist".getBytes());
+        }
+        WatchlistFile.read(WATCHLIST_FILE, movieDatabase);
+    }
+}
@@ -0,0 +1,223 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The `WatchlistManager` class applies concurrent changes to the watchlists of many users and persists them.
+ * Each user is guarded by one of a fixed set of striped locks, picked by the hash of the username, so changes for
+ * different users run in parallel while changes for the same user are applied one at a time, in the order they
+ * acquire its lock, without a lock object per user.
+ *
+ * Watchlists are loaded from their `WatchlistFile` on first use and written back on a background thread. A change
+ * marks its user as dirty and queues a write only if none is queued yet; the write copies the watchlist under the
+ * lock of the user when it runs, so a burst of changes to one watchlist is persisted by a single write of its
+ * latest state. Writes run in queue order on one thread, so a watchlist file is never written by two threads at once.
+ * A failed write is recorded and reported by the next {@link #flush()}.
+ * Every access to the watchlist of a `User` must go through the manager.
+ */
+public class WatchlistManager {
+
+    // Constants
+
+    static final int STRIPES = 64;
+    private static final long IDLE_TIMEOUT_SECONDS = 1;
+
+    // Fields
+
+    private MovieDatabase database;
+    private String watchlistFolder;
+    private ReentrantLock[] locks;
+    private Set<String> loadedWatchlists;
+    private Set<String> dirtyWatchlists;
+    private ConcurrentLinkedQueue<IOException> failures;
+    private ThreadPoolExecutor executor;
+
+    // Constructors
+
+    /**
+     * Constructs a `WatchlistManager`.
+     *
+     * @param database        The database the movies of the watchlists are resolved against.
+     * @param watchlistFolder The folder holding the watchlist files, such as "UserWatchlists/".
+     */
+    public WatchlistManager(MovieDatabase database, String watchlistFolder) {
+        this.database = database;
+        this.watchlistFolder = watchlistFolder;
+        this.locks = new ReentrantLock[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.loadedWatchlists = ConcurrentHashMap.newKeySet();
+        this.dirtyWatchlists = ConcurrentHashMap.newKeySet();
+        this.failures = new ConcurrentLinkedQueue<>();
+        this.executor = new ThreadPoolExecutor(1, 1, IDLE_TIMEOUT_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "watchlist-persister " + watchlistFolder);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    // Methods
+
+    /**
+     * Gets the watchlist of a user, loading it on first use.
+     *
+     * @param user The user.
+     * @return A copy of the movies of the watchlist, in watchlist order.
+     * @throws IOException If the watchlist file cannot be read.
+     */
+    public List<Movie> getWatchlist(User user) throws IOException {
+        ReentrantLock lock = lockFor(user);
+        lock.lock();
+        try {
+            return new ArrayList<>(load(user));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds a movie to the end of the watchlist of a user, unless it is already on it.
+     *
+     * @param user  The user.
+     * @param movie The movie to add.
+     * @return True if the movie was added.
+     * @throws IOException If the watchlist file cannot be read.
+     */
+    public boolean add(User user, Movie movie) throws IOException {
+        ReentrantLock lock = lockFor(user);
+        lock.lock();
+        try {
+            if (load(user).contains(movie)) {
+                return false;
+            }
+            user.addToWatchlist(movie);
+        } finally {
+            lock.unlock();
+        }
+        schedulePersist(user);
+        return true;
+    }
+
+    /**
+     * Removes a movie from the watchlist of a user.
+     *
+     * @param user  The user.
+     * @param movie The movie to remove.
+     * @return True if the movie was on the watchlist.
+     * @throws IOException If the watchlist file cannot be read.
+     */
+    public boolean remove(User user, Movie movie) throws IOException {
+        ReentrantLock lock = lockFor(user);
+        lock.lock();
+        try {
+            if (!load(user).contains(movie)) {
+                return false;
+            }
+            user.removeFromWatchlist(movie);
+        } finally {
+            lock.unlock();
+        }
+        schedulePersist(user);
+        return true;
+    }
+
+    /**
+     * Returns a future that completes once every change made so far has been written. If any write failed since
+     * the last flush, the future completes exceptionally with an `UncheckedIOException` holding the first failure,
+     * the others being suppressed by it, and the failures are cleared.
+     *
+     * @return The future tracking the queued writes.
+     */
+    public CompletableFuture<Void> flush() {
+        return CompletableFuture.runAsync(() -> {
+            IOException failure = failures.poll();
+            if (failure != null) {
+                for (IOException other = failures.poll(); other != null; other = failures.poll()) {
+                    failure.addSuppressed(other);
+                }
+                throw new UncheckedIOException(failure);
+            }
+        }, executor);
+    }
+
+    /**
+     * Writes every pending change and stops the background thread.
+     *
+     * @throws java.util.concurrent.CompletionException If a write failed since the last flush.
+     */
+    public void close() {
+        try {
+            flush().join();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private ReentrantLock lockFor(User user) {
+        int hash = user.getUsername().hashCode();
+        return locks[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+
+    /**
+     * Loads the watchlist of a user from its file the first time it is needed, migrating a serialized watchlist
+     * of an earlier version. Called while holding the lock of the user.
+     */
+    private List<Movie> load(User user) throws IOException {
+        if (!loadedWatchlists.contains(user.getUsername())) {
+            new File(watchlistFolder).mkdirs();
+            String fileName = fileName(user);
+            String legacyFileName = watchlistFolder + user.getUsername() + "_watchlist.ser";
+            if (new File(fileName).exists()) {
+                user.setWatchlist(WatchlistFile.read(fileName, database));
+            } else if (new File(legacyFileName).exists()) {
+                user.setWatchlist(WatchlistFile.migrate(legacyFileName, fileName, database));
+            }
+            loadedWatchlists.add(user.getUsername());
+        }
+        return user.getWatchlist();
+    }
+
+    /**
+     * Queues a write of the watchlist of a user, unless one is already queued and will see the latest change.
+     */
+    private void schedulePersist(User user) {
+        if (dirtyWatchlists.add(user.getUsername())) {
+            executor.execute(() -> persist(user));
+        }
+    }
+
+    private void persist(User user) {
+        dirtyWatchlists.remove(user.getUsername());
+        List<Movie> watchlist;
+        ReentrantLock lock = lockFor(user);
+        lock.lock();
+        try {
+            watchlist = new ArrayList<>(user.getWatchlist());
+        } finally {
+            lock.unlock();
+        }
+        try {
+            WatchlistFile.write(fileName(user), watchlist);
+        } catch (IOException e) {
+            System.err.println("Error saving the watchlist of " + user.getUsername() + ": " + e.getMessage());
+            failures.add(new IOException("Error saving the watchlist of " + user.getUsername(), e));
+        }
+    }
+
+    private String fileName(User user) {
+        return watchlistFolder + user.getUsername() + "_watchlist.dat";
+    }
+}
@@ -0,0 +1,140 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.Assert.*;
+
+public class WatchlistManagerTest {
+
+    private static final String DATABASE_FILE = "Tests/testWatchlistMovies.ser";
+    private static final String WATCHLIST_FOLDER = "Tests/managedWatchlists/";
+
+    private MovieDatabase database;
+    private WatchlistManager watchlists;
+    private List<Movie> movies;
+
+    @Before
+    public void setUp() {
+        database = new MovieDatabase(DATABASE_FILE);
+        movies = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            movies.add(new Movie("Movie " + i, "Director", 2000, 100, null));
+        }
+        database.addMovies(movies);
+        watchlists = new WatchlistManager(database, WATCHLIST_FOLDER);
+    }
+
+    @After
+    public void tearDown() {
+        watchlists.close();
+        database.close();
+        new File(DATABASE_FILE).delete();
+        new File(DATABASE_FILE + ".log").delete();
+        File[] files = new File(WATCHLIST_FOLDER).listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        new File(WATCHLIST_FOLDER).delete();
+    }
+
+    @Test
+    public void testConcurrentChangesAreAppliedInOrderAndPersisted() throws Exception {
+        User[] users = {new User("alice", "password123"), new User("bob", "password123")};
+        List<Throwable> failures = new ArrayList<>();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            int first = t * 50;
+            User user = users[t % users.length];
+            threads[t] = new Thread(() -> {
+                try {
+                    for (int i = first; i < first + 50; i++) {
+                        assertTrue(watchlists.add(user, movies.get(i)));
+                    }
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        watchlists.flush().join();
+
+        assertTrue(failures.toString(), failures.isEmpty());
+        for (int u = 0; u < users.length; u++) {
+            List<Movie> watchlist = watchlists.getWatchlist(users[u]);
+            assertEquals(200, watchlist.size());
+            for (int t = u; t < threads.length; t += users.length) {
+                for (int i = t * 50 + 1; i < t * 50 + 50; i++) {
+                    assertTrue(watchlist.indexOf(movies.get(i - 1)) < watchlist.indexOf(movies.get(i)));
+                }
+            }
+            String fileName = WATCHLIST_FOLDER + users[u].getUsername() + "_watchlist.dat";
+            assertEquals(watchlist, WatchlistFile.read(fileName, database));
+        }
+    }
+
+    @Test
+    public void testAddAndRemove() throws IOException {
+        User user = new User("alice", "password123");
+
+        assertTrue(watchlists.add(user, movies.get(0)));
+        assertFalse(watchlists.add(user, movies.get(0)));
+        assertTrue(watchlists.add(user, movies.get(1)));
+        assertTrue(watchlists.remove(user, movies.get(0)));
+        assertFalse(watchlists.remove(user, movies.get(0)));
+
+        List<Movie> watchlist = watchlists.getWatchlist(user);
+        watchlist.clear();
+        assertEquals(Arrays.asList(movies.get(1)), watchlists.getWatchlist(user));
+    }
+
+    @Test
+    public void testWatchlistIsLoadedOnFirstUse() throws IOException {
+        new File(WATCHLIST_FOLDER).mkdirs();
+        WatchlistFile.write(WATCHLIST_FOLDER + "alice_watchlist.dat", Arrays.asList(movies.get(3), movies.get(2)));
+        User user = new User("alice", "password123");
+
+        assertTrue(watchlists.add(user, movies.get(4)));
+        watchlists.flush().join();
+
+        List<Movie> expected = Arrays.asList(movies.get(3), movies.get(2), movies.get(4));
+        assertEquals(expected, watchlists.getWatchlist(user));
+        assertEquals(expected, WatchlistFile.read(WATCHLIST_FOLDER + "alice_watchlist.dat", database));
+    }
+
+    @Test
+    public void testFailedWritesCompleteTheFlushExceptionally() throws IOException {
+        User user = new User("alice", "password123");
+        // a folder in place of the temporary file makes every write of the watchlist fail
+        File blocker = new File(WATCHLIST_FOLDER + "alice_watchlist.dat.tmp");
+        blocker.mkdirs();
+
+        assertTrue(watchlists.add(user, movies.get(0)));
+        try {
+            watchlists.flush().join();
+            fail("The failed write should be reported");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof UncheckedIOException);
+        }
+
+        blocker.delete();
+        assertTrue(watchlists.add(user, movies.get(1)));
+        watchlists.flush().join();
+        assertEquals(Arrays.asList(movies.get(0), movies.get(1)),
+                WatchlistFile.read(WATCHLIST_FOLDER + "alice_watchlist.dat", database));
+    }
+}